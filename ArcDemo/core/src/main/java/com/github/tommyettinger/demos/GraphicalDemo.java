@@ -96,6 +96,8 @@ public class GraphicalDemo extends ApplicationCore {
     private DijkstraMap getToPlayer, playerToCursor;
     private Coord cursor;
     private List<Coord> toCursor;
+    // holds the same cells as toCursor, so putMap() can check if a cell is on the path without searching the List.
+    private GreasedRegion pathCells;
     private List<Coord> awaitedMoves;
     private String lang;
     private double[][] resistance;
@@ -368,6 +370,7 @@ public class GraphicalDemo extends ApplicationCore {
         }
         //This is used to allow clicks or taps to take the player to the desired area.
         toCursor = new ArrayList<>(200);
+        pathCells = new GreasedRegion(bigWidth, bigHeight);
         //When a path is confirmed by clicking, we draw from this List to find which cell is next to move into.
         awaitedMoves = new ArrayList<>(200);
         //DijkstraMap is the pathfinding swiss-army knife we use here to find a path to the latest cursor position.
@@ -411,48 +414,48 @@ public class GraphicalDemo extends ApplicationCore {
                     case UP:
                     case W:
                     case NUMPAD_8:
-                        toCursor.clear();
+                        clearPath();
                         //+1 is up on the screen
                         awaitedMoves.add(player.translate(0, 1));
                         break;
                     case DOWN:
                     case S:
                     case NUMPAD_2:
-                        toCursor.clear();
+                        clearPath();
                         //-1 is down on the screen
                         awaitedMoves.add(player.translate(0, -1));
                         break;
                     case LEFT:
                     case A:
                     case NUMPAD_4:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(-1, 0));
                         break;
                     case RIGHT:
                     case D:
                     case NUMPAD_6:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(1, 0));
                         break;
                     case NUMPAD_1:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(-1, -1));
                         break;
                     case NUMPAD_3:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(1, -1));
                         break;
                     case NUMPAD_7:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(-1, 1));
                         break;
                     case NUMPAD_9:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(1, 1));
                         break;
                     case PERIOD:
                     case NUMPAD_5:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player);
                         break;
                     case ESCAPE:
@@ -502,6 +505,7 @@ public class GraphicalDemo extends ApplicationCore {
                     // already been fully analyzed by the DijkstraMap.partialScan() method at the start of the
                     // program, and re-calculated whenever the player moves, we only need to do a fraction of the
                     // work to find the best path with that info.
+                    clearPath();
                     toCursor = playerToCursor.findPathPreScanned(cursor);
                     // findPathPreScanned includes the current cell (goal) by default, which is helpful when
                     // you're finding a path to a monster or loot, and want to bump into it, but here can be
@@ -511,6 +515,7 @@ public class GraphicalDemo extends ApplicationCore {
                     if (!toCursor.isEmpty()) {
                         toCursor.remove(0);
                     }
+                    pathCells.insertSeveral(toCursor);
                 }
                 return false;
             }
@@ -564,6 +569,16 @@ public class GraphicalDemo extends ApplicationCore {
         }
     }
 
+    /**
+     * Empties toCursor, and removes its cells from pathCells so they stop being highlighted.
+     */
+    private void clearPath() {
+        for (int i = 0, n = toCursor.size(); i < n; i++) {
+            pathCells.remove(toCursor.get(i));
+        }
+        toCursor.clear();
+    }
+
     private void postMove()
     {
         phase = Phase.MONSTER_ANIM;
@@ -630,11 +645,18 @@ public class GraphicalDemo extends ApplicationCore {
         //monsters running in and out of our vision. If artifacts from previous frames show up, uncomment the next line.
         //display.clear();
         Sprite monster;
-        for (int i = 0; i < bigWidth; i++) {
-            for (int j = 0; j < bigHeight; j++) {
+        // Only the cells the camera can see get drawn, plus one more on each side for monsters moving in from there,
+        // so the time this takes depends on the size of the screen and not the size of the dungeon.
+        final float halfWidth = mainViewport.getWorldWidth() * 0.5f, halfHeight = mainViewport.getWorldHeight() * 0.5f;
+        final int startX = Math.max(0, Mathf.floor((camera.position.x - halfWidth) / cellWidth) - 1),
+                startY = Math.max(0, Mathf.floor((camera.position.y - halfHeight) / cellHeight) - 1),
+                endX = Math.min(bigWidth, Mathf.floor((camera.position.x + halfWidth) / cellWidth) + 2),
+                endY = Math.min(bigHeight, Mathf.floor((camera.position.y + halfHeight) / cellHeight) + 2);
+        for (int i = startX; i < endX; i++) {
+            for (int j = startY; j < endY; j++) {
                 if(visible[i][j] > 0.0) {
                     pos.set(i * cellWidth, j * cellHeight);
-                    Draw.color(toCursor.contains(Coord.get(i, j))
+                    Draw.color(pathCells.contains(i, j)
                             ? ColorTools.lerpFloatColors(bgColors[i][j], FLOAT_WHITE, 0.9f)
                             : ColorTools.lerpFloatColors(bgColors[i][j], FLOAT_LIGHTING, (float)visible[i][j] * 0.75f + 0.25f));
                     Draw.rect(solid, pos.x, pos.y);
@@ -715,7 +737,7 @@ public class GraphicalDemo extends ApplicationCore {
                     case MONSTER_ANIM:
                         Coord m = awaitedMoves.remove(0);
                         if(!toCursor.isEmpty())
-                            toCursor.remove(0);
+                            pathCells.remove(toCursor.remove(0));
                         move(m.x - player.x, m.y - player.y);
                         break;
                     case PLAYER_ANIM:
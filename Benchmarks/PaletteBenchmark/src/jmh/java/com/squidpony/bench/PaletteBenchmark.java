@@ -0,0 +1,107 @@
+package com.squidpony.bench;
+
+import com.squidpony.PaletteReducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how long it takes to build the 32768-entry {@link PaletteReducer#paletteMapping} with
+ * {@link PaletteReducer#exact(int[])}, which uses a k-d tree over the palette, against the brute-force loop it
+ * replaced, which checks every palette color for every RGB555 cell. Setup checks that both give the same mapping
+ * before anything is measured, and fails if they don't.
+ * <br>
+ * Parameters:
+ * <ul>
+ *     <li>paletteSize: how many colors are in the palette, including the transparent one at index 0.</li>
+ * </ul>
+ * Run with {@code gradlew jmh} from this folder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PaletteBenchmark {
+
+    @Param({"16", "64", "256"})
+    public int paletteSize;
+
+    private int[] palette;
+    private PaletteReducer reducer;
+    private byte[] mapping;
+
+    @Setup
+    public void setup() {
+        // a fixed seed so every run builds the same palette
+        Random random = new Random(0x1234567890ABCDEFL);
+        palette = new int[paletteSize];
+        for (int i = 1; i < paletteSize; i++) {
+            palette[i] = random.nextInt() | 0xFF;
+        }
+        reducer = new PaletteReducer();
+        mapping = new byte[0x8000];
+
+        reducer.exact(palette);
+        bruteForce(palette, mapping);
+        if (!Arrays.equals(reducer.paletteMapping, mapping))
+            throw new IllegalStateException("The k-d tree mapping differs from the brute-force mapping for "
+                    + paletteSize + " colors");
+    }
+
+    @Benchmark
+    public byte[] kdTree() {
+        reducer.exact(palette);
+        return reducer.paletteMapping;
+    }
+
+    @Benchmark
+    public byte[] bruteForce() {
+        return bruteForce(palette, mapping);
+    }
+
+    /**
+     * The loop that {@link PaletteReducer#exact(int[])} used before it had a k-d tree, kept here as the baseline.
+     * Only the mapping is built, since that is all that differs between the two.
+     */
+    private static byte[] bruteForce(int[] rgbaPalette, byte[] paletteMapping) {
+        Arrays.fill(paletteMapping, (byte) 0);
+        final int plen = Math.min(256, rgbaPalette.length);
+        final int[] paletteArray = new int[256];
+        int color, c2;
+        double dist;
+        for (int i = 0; i < plen; i++) {
+            color = rgbaPalette[i];
+            if ((color & 0x80) != 0) {
+                paletteArray[i] = color;
+                paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
+            }
+        }
+        int rr, gg, bb;
+        for (int r = 0; r < 32; r++) {
+            rr = (r << 3 | r >>> 2);
+            for (int g = 0; g < 32; g++) {
+                gg = (g << 3 | g >>> 2);
+                for (int b = 0; b < 32; b++) {
+                    c2 = r << 10 | g << 5 | b;
+                    if (paletteMapping[c2] == 0) {
+                        bb = (b << 3 | b >>> 2);
+                        dist = 0x7FFFFFFF;
+                        for (int i = 1; i < plen; i++) {
+                            if (dist > (dist = Math.min(dist, PaletteReducer.difference(paletteArray[i], rr, gg, bb))))
+                                paletteMapping[c2] = (byte) i;
+                        }
+                    }
+                }
+            }
+        }
+        return paletteMapping;
+    }
+}
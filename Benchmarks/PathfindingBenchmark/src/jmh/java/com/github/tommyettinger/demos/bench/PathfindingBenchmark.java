@@ -0,0 +1,114 @@
+package com.github.tommyettinger.demos.bench;
+
+import com.github.tommyettinger.demos.AnimatedGlider;
+import com.github.tommyettinger.demos.MonsterPlanner;
+import com.github.tommyettinger.demos.MonsterTurns;
+import com.github.tommyettinger.demos.SerialMonsterPlanner;
+import com.github.tommyettinger.demos.lwjgl3.ParallelMonsterPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import squidpony.ArrayTools;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GWTRNG;
+import squidpony.squidmath.GreasedRegion;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many monster turns per second {@link MonsterTurns#move()} can run, without a window or GL context.
+ * The setup copies what PathfindingStressTest.create() does: the same kind of map, the same GreasedRegion of floors,
+ * and monsters placed on random floor cells, but with a fixed seed so every run measures the same turns.
+ * Allocation per turn is reported by the gc profiler, as gc.alloc.rate.norm (bytes per operation).
+ * <br>
+ * Parameters:
+ * <ul>
+ *     <li>size: the map is size by size cells, including the outer walls.</li>
+ *     <li>monsterCount: how many monsters move each turn. A map can't hold more monsters than it has floor cells, so
+ *     this is capped at half of the floor cells; the actual count is printed during setup when that happens.</li>
+ *     <li>mode: a {@link MonsterTurns.TurnMode}, or PARALLEL, which is PLANNED using a {@link ParallelMonsterPlanner}
+ *     with one thread per available processor.</li>
+ *     <li>map: "open" is the walled, empty room the demo currently uses; "generated" is
+ *     {@link DungeonGenerator#generate()} output with the same water, doors, and grass the demo adds.</li>
+ * </ul>
+ * Run with {@code gradlew jmh} from this folder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PathfindingBenchmark {
+
+    @Param({"36", "128", "512"})
+    public int size;
+
+    @Param({"100", "1000", "10000"})
+    public int monsterCount;
+
+    @Param({"PER_MONSTER", "FLOW_FIELD", "PLANNED", "PARALLEL"})
+    public String mode;
+
+    @Param({"open", "generated"})
+    public String map;
+
+    private MonsterTurns turns;
+    private MonsterPlanner planner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // maps bigger than 256 cells on a side would otherwise allocate a new Coord for most cells
+        Coord.expandPoolTo(size, size);
+        GWTRNG rng = new GWTRNG(0x1234567890ABCDEFL);
+        char[][] decoDungeon, bareDungeon;
+        if ("generated".equals(map)) {
+            DungeonGenerator dungeonGen = new DungeonGenerator(size, size, rng);
+            dungeonGen.addWater(12);
+            dungeonGen.addDoors(10, true);
+            dungeonGen.addGrass(10);
+            decoDungeon = dungeonGen.generate();
+            bareDungeon = dungeonGen.getBareDungeon();
+        }
+        else {
+            decoDungeon = DungeonUtility.wallWrap(ArrayTools.fill('.', size, size));
+            bareDungeon = ArrayTools.copy(decoDungeon);
+        }
+        GreasedRegion floors = new GreasedRegion(bareDungeon, '.');
+        int count = Math.min(monsterCount, floors.size() >>> 1);
+        if (count != monsterCount)
+            System.out.println("Only " + floors.size() + " floor cells in a " + size + "x" + size + " map; using "
+                    + count + " monsters instead of " + monsterCount);
+
+        boolean parallel = "PARALLEL".equals(mode);
+        planner = parallel ? new ParallelMonsterPlanner() : new SerialMonsterPlanner();
+        turns = new MonsterTurns(decoDungeon, floors, rng, planner, count);
+        turns.turnMode = parallel ? MonsterTurns.TurnMode.PLANNED : MonsterTurns.TurnMode.valueOf(mode);
+        for (int i = 0; i < count; i++) {
+            Coord monPos = floors.singleRandom(rng);
+            floors.remove(monPos);
+            turns.monsters.put(monPos, new AnimatedGlider(monPos));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        planner.dispose();
+    }
+
+    /**
+     * One operation is one full turn, where every monster gets a chance to move.
+     */
+    @Benchmark
+    public void turn(Blackhole bh) {
+        turns.move();
+        bh.consume(turns.monsters.firstKey());
+    }
+}
@@ -127,11 +127,17 @@ public class ColorfulDemo extends ApplicationAdapter {
     private DijkstraMap getToPlayer, playerToCursor;
     private Coord cursor;
     private List<Coord> toCursor;
+    // holds the same cells as toCursor, so putMap() can check if a cell is on the path without searching the List.
+    private GreasedRegion pathCells;
     private List<Coord> awaitedMoves;
     private String lang;
     private double[][] resistance;
     private double[][] visible;
     private TextureAtlas.AtlasRegion solid;
+    // holds the walls, floors and doors on the GPU, so only the monsters and the player are drawn with batch.
+    private TileCache tiles;
+    // the cells the camera can see, plus one more on each side for monsters moving in from there; found each frame.
+    private int startX, startY, endX, endY;
     private int health = 9;
     
     // GreasedRegion is a hard-to-explain class, but it's an incredibly useful one for map generation and many other
@@ -302,6 +308,10 @@ public class ColorfulDemo extends ApplicationAdapter {
 
         resistance = DungeonUtility.generateSimpleResistances(decoDungeon);
         visible = new double[bigWidth][bigHeight];
+        // The dungeon's walls and floors don't move, so rather than drawing each one every frame, TileCache sends them
+        // to the GPU once, in chunks, and only sends a chunk again when something in it changes. All that changes each
+        // frame is the tweak each cell is drawn with, which is one pixel per cell on the screen.
+        tiles = new TileCache(lineDungeon, bgColors, charMapping, solid, 1f, 1f);
 
         //Coord is the type we use as a general 2D point, usually in a dungeon.
         //Because we know dungeons won't be incredibly huge, Coord performs best for x and y values less than 256, but
@@ -383,6 +393,7 @@ public class ColorfulDemo extends ApplicationAdapter {
         }
         //This is used to allow clicks or taps to take the player to the desired area.
         toCursor = new ArrayList<>(200);
+        pathCells = new GreasedRegion(bigWidth, bigHeight);
         //When a path is confirmed by clicking, we draw from this List to find which cell is next to move into.
         awaitedMoves = new ArrayList<>(200);
         //DijkstraMap is the pathfinding swiss-army knife we use here to find a path to the latest cursor position.
@@ -423,7 +434,7 @@ public class ColorfulDemo extends ApplicationAdapter {
                     case 'w':
                     case 'W':
                     case NUMPAD_8:
-                        toCursor.clear();
+                        clearPath();
                         //+1 is up on the screen
                         awaitedMoves.add(player.translate(0, 1));
                         break;
@@ -431,7 +442,7 @@ public class ColorfulDemo extends ApplicationAdapter {
                     case 's':
                     case 'S':
                     case NUMPAD_2:
-                        toCursor.clear();
+                        clearPath();
                         //-1 is down on the screen
                         awaitedMoves.add(player.translate(0, -1));
                         break;
@@ -439,35 +450,35 @@ public class ColorfulDemo extends ApplicationAdapter {
                     case 'a':
                     case 'A':
                     case NUMPAD_4:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(-1, 0));
                         break;
                     case RIGHT:
                     case 'd':
                     case 'D':
                     case NUMPAD_6:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(1, 0));
                         break;
                     case NUMPAD_1:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(-1, -1));
                         break;
                     case NUMPAD_3:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(1, -1));
                         break;
                     case NUMPAD_7:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(-1, 1));
                         break;
                     case NUMPAD_9:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player.translate(1, 1));
                         break;
                     case '.':
                     case NUMPAD_5:
-                        toCursor.clear();
+                        clearPath();
                         awaitedMoves.add(player);
                         break;
                     case ESCAPE:
@@ -516,6 +527,7 @@ public class ColorfulDemo extends ApplicationAdapter {
                     // already been fully analyzed by the DijkstraMap.partialScan() method at the start of the
                     // program, and re-calculated whenever the player moves, we only need to do a fraction of the
                     // work to find the best path with that info.
+                    clearPath();
                     toCursor = playerToCursor.findPathPreScanned(cursor);
                     // findPathPreScanned includes the current cell (goal) by default, which is helpful when
                     // you're finding a path to a monster or loot, and want to bump into it, but here can be
@@ -525,6 +537,7 @@ public class ColorfulDemo extends ApplicationAdapter {
                     if (!toCursor.isEmpty()) {
                         toCursor = toCursor.subList(1, toCursor.size());
                     }
+                    pathCells.insertSeveral(toCursor);
                 }
                 return false;
             }
@@ -546,6 +559,7 @@ public class ColorfulDemo extends ApplicationAdapter {
             if (lineDungeon[newX][newY] == '+') {
                 decoDungeon[newX][newY] = '/';
                 lineDungeon[newX][newY] = '/';
+                tiles.refresh(newX, newY);
                 // changes to the map mean the resistances for FOV need to be regenerated.
                 resistance = DungeonUtility.generateSimpleResistances(decoDungeon);
                 // recalculate FOV, store it in visible for the render to use.
@@ -570,8 +584,10 @@ public class ColorfulDemo extends ApplicationAdapter {
                     monsters.remove(player);
                     for (int x = -1; x <= 1; x++) {
                         for (int y = -1; y <= 1; y++) {
-                            if(rng.nextBoolean()) 
-                                bgColors[newX+x][newY+y] = FLOAT_BLOOD;
+                            if(rng.nextBoolean()) {
+                                bgColors[newX + x][newY + y] = FLOAT_BLOOD;
+                                tiles.refresh(newX + x, newY + y);
+                            }
                         }
                     }
                 }
@@ -580,6 +596,16 @@ public class ColorfulDemo extends ApplicationAdapter {
         }
     }
 
+    /**
+     * Empties toCursor, and removes its cells from pathCells so they stop being highlighted.
+     */
+    private void clearPath() {
+        for (int i = 0, n = toCursor.size(); i < n; i++) {
+            pathCells.remove(toCursor.get(i));
+        }
+        toCursor.clear();
+    }
+
     private void postMove()
     {
         phase = Phase.MONSTER_ANIM;
@@ -639,43 +665,41 @@ public class ColorfulDemo extends ApplicationAdapter {
 
 
     /**
-     * Draws the map, applies any highlighting for the path to the cursor, and then draws the player.
+     * Finds which cells the camera can see, then gives them in tiles the same tweaks a ColorfulBatch would draw them
+     * with, applying any highlighting for the path to the cursor, and draws them. This is called before batch.begin(),
+     * since tiles doesn't draw with batch.
      */
-    public void putMap()
+    public void putTiles()
     {
-        final float time = TimeUtils.timeSinceMillis(startTime) * 0.001f;
-        //In many other situations, you would clear the drawn characters to prevent things that had been drawn in the
-        //past from affecting the current frame. This isn't a problem here, but would probably be an issue if we had
-        //monsters running in and out of our vision. If artifacts from previous frames show up, uncomment the next line.
-        //display.clear();
-        for (int i = 0; i < bigWidth; i++) {
-            for (int j = 0; j < bigHeight; j++) {
+        // Only the cells the camera can see are tweaked and drawn, so the time this takes depends on the size of the
+        // screen and not the size of the dungeon.
+        startX = Math.max(0, MathUtils.floor(camera.position.x - camera.viewportWidth * 0.5f) - 1);
+        startY = Math.max(0, MathUtils.floor(camera.position.y - camera.viewportHeight * 0.5f) - 1);
+        endX = Math.min(bigWidth, MathUtils.floor(camera.position.x + camera.viewportWidth * 0.5f) + 2);
+        endY = Math.min(bigHeight, MathUtils.floor(camera.position.y + camera.viewportHeight * 0.5f) + 2);
+        tiles.beginTweak(startX, startY, endX, endY);
+        for (int i = startX; i < endX; i++) {
+            for (int j = startY; j < endY; j++) {
                 if(visible[i][j] > 0.0) {
-                    pos.set(i, j);
-                    batch.setPackedColor(bgColors[i][j]);//
-                    batch.setTweak(toCursor.contains(Coord.get(i, j)) ? 0.875f :
+                    tiles.setTweak(i, j, pathCells.contains(i, j) ? 0.875f :
                             (float)visible[i][j] * 0.5f + 0.125f, 0.40625f, 0.40625f, 0.625f);
-//                    batch.setPackedColor(toCursor.contains(Coord.get(i, j))
-//                            ? FloatColors.lerpFloatColors(bgColors[i][j], Palette.ANGEL_WING, 0.9f)
-//                            : FloatColors.lerpFloatColors(bgColors[i][j], FLOAT_LIGHTING, (float)visible[i][j] * 0.75f + 0.25f));
-                    if(lineDungeon[i][j] == '/' || lineDungeon[i][j] == '+') // doors expect a floor drawn beneath them
-                        batch.draw(charMapping.get('.', solid), pos.x, pos.y, 1, 1);
-                    batch.draw(charMapping.get(lineDungeon[i][j], solid), pos.x, pos.y, 1, 1);
                 } else if(seen.contains(i, j)) {
-                    pos.set(i, j);
-                    batch.setPackedColor(bgColors[i][j]);
-//                    batch.setPackedColor(FloatColors.lerpFloatColors(bgColors[i][j], FLOAT_GRAY, 0.7f));
-                    batch.setTweak(0.1f, 0.2f, 0.2f, 0.25f);
-                    if(lineDungeon[i][j] == '/' || lineDungeon[i][j] == '+') // doors expect a floor drawn beneath them
-                        batch.draw(charMapping.get('.', solid), pos.x, pos.y, 1, 1);
-                    batch.draw(charMapping.get(lineDungeon[i][j], solid), pos.x, pos.y, 1, 1);
+                    tiles.setTweak(i, j, 0.1f, 0.2f, 0.2f, 0.25f);
                 }
             }
         }
+        tiles.draw(camera.combined);
+    }
 
+    /**
+     * Draws the monsters the player can see, and then draws the player; the map itself is drawn by putTiles().
+     */
+    public void putMap()
+    {
+        final float time = TimeUtils.timeSinceMillis(startTime) * 0.001f;
         AnimatedGlider monster;
-        for (int i = 0; i < bigWidth; i++) {
-            for (int j = 0; j < bigHeight; j++) {
+        for (int i = startX; i < endX; i++) {
+            for (int j = startY; j < endY; j++) {
                 if (visible[i][j] > 0.0) {
                     if ((monster = monsters.get(Coord.get(i, j))) != null) {
                         monster.animate(time).draw(batch);
@@ -698,6 +722,7 @@ public class ColorfulDemo extends ApplicationAdapter {
         camera.update();
 
         mainViewport.apply(false);
+        putTiles();
         batch.setProjectionMatrix(camera.combined);
         batch.begin();
         
@@ -733,7 +758,7 @@ public class ColorfulDemo extends ApplicationAdapter {
                 if (!awaitedMoves.isEmpty()) {
                     Coord m = awaitedMoves.remove(0);
                     if (!toCursor.isEmpty())
-                        toCursor.remove(0);
+                        pathCells.remove(toCursor.remove(0));
                     move(m.x, m.y);
                 }
             }
@@ -742,7 +767,7 @@ public class ColorfulDemo extends ApplicationAdapter {
         {
             Coord m = awaitedMoves.remove(0);
             if (!toCursor.isEmpty())
-                toCursor.remove(0);
+                pathCells.remove(toCursor.remove(0));
             move(m.x, m.y);
         }
         else if(phase == Phase.PLAYER_ANIM) {
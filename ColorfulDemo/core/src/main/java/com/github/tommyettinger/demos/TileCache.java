@@ -0,0 +1,303 @@
+package com.github.tommyettinger.demos;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Keeps the walls, floors and doors of a dungeon on the GPU, so they don't need to be drawn one at a time every frame.
+ * The dungeon is split into square chunks of {@link #CHUNK_SIZE} cells, each one cached once in a {@link SpriteCache}
+ * with the YCwCmA color of each cell, and only cached again when {@link #refresh(int, int)} is called for a cell in it
+ * (such as when a door opens or blood gets on the floor). Only chunks the camera can see are drawn.
+ * <br>
+ * What changes every frame is the tweak each cell is drawn with, the same four values given to
+ * {@link com.github.tommyettinger.colorful.ColorfulBatch#setTweak(float, float, float, float)}. Tweaks are given for
+ * just the cells on screen with {@link #beginTweak(int, int, int, int)} and
+ * {@link #setTweak(int, int, float, float, float, float)}, and go into a small texture with one pixel per cell. The
+ * shader looks up each cell's pixel and does the same math with it that ColorfulBatch's shader does with its tweak
+ * attribute. Cells that were given no tweak, or are outside that area, aren't drawn at all.
+ */
+public class TileCache implements Disposable {
+    /** How many cells to a side each chunk has. */
+    public static final int CHUNK_SIZE = 32;
+    public final int width, height;
+    private final float cellWidth, cellHeight;
+    private final char[][] map;
+    private final float[][] colors;
+    private final IntMap<TextureAtlas.AtlasRegion> regions;
+    private final TextureRegion fallback;
+    private final int chunksWide, chunksHigh;
+    // the cache ID for each chunk, how many images it was made with (it can't be made again with more), and whether
+    // it needs to be made again before it can be drawn.
+    private final int[] ids, counts;
+    private final boolean[] dirty;
+    private SpriteCache cache;
+    private final ShaderProgram shader;
+    private Pixmap tweakPixmap;
+    private Texture tweakTexture;
+    private int tweakX, tweakY, tweakWidth, tweakHeight;
+
+    /**
+     * @param map the chars to draw, indexed [x][y]; used directly, so call {@link #refresh(int, int)} after changing it
+     * @param colors the color for each cell as a packed YCwCmA float; also used directly
+     * @param regions maps each char in map to the image to draw for it
+     * @param fallback the image to draw for chars that aren't in regions
+     * @param cellWidth how wide one cell is in world units
+     * @param cellHeight how tall one cell is in world units
+     */
+    public TileCache(char[][] map, float[][] colors, IntMap<TextureAtlas.AtlasRegion> regions, TextureRegion fallback,
+                     float cellWidth, float cellHeight) {
+        this.map = map;
+        this.colors = colors;
+        this.regions = regions;
+        this.fallback = fallback;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        width = map.length;
+        height = map[0].length;
+        chunksWide = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunksHigh = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        ids = new int[chunksWide * chunksHigh];
+        counts = new int[chunksWide * chunksHigh];
+        dirty = new boolean[chunksWide * chunksHigh];
+        shader = createShader();
+        build();
+    }
+
+    /**
+     * Caches every chunk, in a new SpriteCache with exactly enough room.
+     */
+    private void build() {
+        int total = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                total += images(map[x][y]);
+            }
+        }
+        if (cache != null)
+            cache.dispose();
+        // without indices, a SpriteCache isn't limited to 8191 images, so this works for any size of dungeon.
+        cache = new SpriteCache(total, false);
+        for (int i = 0; i < ids.length; i++) {
+            cache.beginCache();
+            counts[i] = addChunk(i);
+            ids[i] = cache.endCache();
+            dirty[i] = false;
+        }
+    }
+
+    /**
+     * Doors expect a floor drawn beneath them, so they take two images.
+     */
+    private static int images(char c) {
+        return c == '/' || c == '+' ? 2 : 1;
+    }
+
+    private TextureRegion region(char c) {
+        final TextureRegion region = regions.get(c);
+        return region == null ? fallback : region;
+    }
+
+    private int addChunk(int chunk) {
+        final int startX = chunk % chunksWide * CHUNK_SIZE, startY = chunk / chunksWide * CHUNK_SIZE;
+        int count = 0;
+        for (int x = startX, xe = Math.min(width, startX + CHUNK_SIZE); x < xe; x++) {
+            for (int y = startY, ye = Math.min(height, startY + CHUNK_SIZE); y < ye; y++) {
+                final char c = map[x][y];
+                cache.setPackedColor(colors[x][y]);
+                if (images(c) == 2)
+                    cache.add(region('.'), x * cellWidth, y * cellHeight, cellWidth, cellHeight);
+                cache.add(region(c), x * cellWidth, y * cellHeight, cellWidth, cellHeight);
+                count += images(c);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Marks the chunk with the cell at x,y in it to be cached again before it is next drawn, after the char or color of
+     * that cell changed.
+     */
+    public void refresh(int x, int y) {
+        dirty[x / CHUNK_SIZE + y / CHUNK_SIZE * chunksWide] = true;
+    }
+
+    private void rebuild() {
+        for (int i = 0; i < ids.length; i++) {
+            if (!dirty[i])
+                continue;
+            dirty[i] = false;
+            final int startX = i % chunksWide * CHUNK_SIZE, startY = i / chunksWide * CHUNK_SIZE;
+            int count = 0;
+            for (int x = startX, xe = Math.min(width, startX + CHUNK_SIZE); x < xe; x++) {
+                for (int y = startY, ye = Math.min(height, startY + CHUNK_SIZE); y < ye; y++) {
+                    count += images(map[x][y]);
+                }
+            }
+            // a chunk can't be cached again with more images than it had before, which only happens if a door is
+            // put where there wasn't one; then every chunk is cached again from the start, with room for it.
+            if (count > counts[i]) {
+                build();
+                return;
+            }
+            cache.beginCache(ids[i]);
+            addChunk(i);
+            cache.endCache();
+        }
+    }
+
+    /**
+     * Starts giving the tweaks for the cells from startX,startY (inclusive) to endX,endY (exclusive), which should
+     * cover everything the camera can see; cells outside this area are discarded by the shader. Every cell starts out
+     * with no tweak, so {@link #setTweak(int, int, float, float, float, float)} only needs to be called for cells that
+     * should be drawn.
+     */
+    public void beginTweak(int startX, int startY, int endX, int endY) {
+        tweakX = startX;
+        tweakY = startY;
+        tweakWidth = Math.max(1, endX - startX);
+        tweakHeight = Math.max(1, endY - startY);
+        if (tweakPixmap == null || tweakPixmap.getWidth() < tweakWidth || tweakPixmap.getHeight() < tweakHeight) {
+            if (tweakPixmap != null) {
+                tweakPixmap.dispose();
+                tweakTexture.dispose();
+            }
+            tweakPixmap = new Pixmap(MathUtils.nextPowerOfTwo(tweakWidth), MathUtils.nextPowerOfTwo(tweakHeight), Pixmap.Format.RGBA8888);
+            tweakPixmap.setBlending(Pixmap.Blending.None);
+            tweakTexture = new Texture(tweakPixmap);
+            tweakTexture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        }
+        tweakPixmap.setColor(0);
+        tweakPixmap.fill();
+    }
+
+    /**
+     * Sets the cell at x,y to be drawn with the given tweak, which acts like the tweak a ColorfulBatch has when it draws.
+     * @param x the x-position of the cell, inside the area given to {@link #beginTweak(int, int, int, int)}
+     * @param y the y-position of the cell, inside the area given to {@link #beginTweak(int, int, int, int)}
+     * @param luma the luma part of the tweak, from 0 to 1
+     * @param warm the warm chroma part of the tweak, from 0 to 1
+     * @param mild the mild chroma part of the tweak, from 0 to 1
+     * @param contrast the contrast part of the tweak, from 0 to 1
+     */
+    public void setTweak(int x, int y, float luma, float warm, float mild, float contrast) {
+        // RGBA8888, rounded the way ColorfulBatch packs its tweak. The batch can't store the lowest bit of contrast, so
+        // here that bit means "draw this cell" instead, and the shader takes it back out.
+        tweakPixmap.drawPixel(x - tweakX, y - tweakY, (int) (luma * 255) << 24 | (int) (warm * 255) << 16
+                | (int) (mild * 255) << 8 | ((int) (contrast * 255) & 0xFE | 1));
+    }
+
+    /**
+     * Draws every chunk with part of the area given to {@link #beginTweak(int, int, int, int)} in it. This should be
+     * called outside of any Batch's begin() and end(), before drawing anything that should go over the dungeon.
+     * @param projection the camera's combined matrix
+     */
+    public void draw(Matrix4 projection) {
+        rebuild();
+        tweakTexture.draw(tweakPixmap, 0, 0);
+        cache.setShader(shader);
+        cache.setProjectionMatrix(projection);
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        cache.begin();
+        tweakTexture.bind(1);
+        Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+        shader.setUniformi("u_tweak", 1);
+        shader.setUniformf("u_tweakArea", tweakX * cellWidth, tweakY * cellHeight,
+                tweakWidth * cellWidth, tweakHeight * cellHeight);
+        // the pixmap can be bigger than the area, and its texture clamps to the edge, so the shader has to scale its
+        // lookups into just the part that was filled, and can't let anything outside that part use the edge's tweak.
+        shader.setUniformf("u_tweakScale", tweakWidth / (float) tweakPixmap.getWidth(),
+                tweakHeight / (float) tweakPixmap.getHeight());
+        final int startX = Math.max(0, tweakX / CHUNK_SIZE), startY = Math.max(0, tweakY / CHUNK_SIZE),
+                endX = Math.min(chunksWide, (tweakX + tweakWidth - 1) / CHUNK_SIZE + 1),
+                endY = Math.min(chunksHigh, (tweakY + tweakHeight - 1) / CHUNK_SIZE + 1);
+        for (int cx = startX; cx < endX; cx++) {
+            for (int cy = startY; cy < endY; cy++) {
+                cache.draw(ids[cx + cy * chunksWide]);
+            }
+        }
+        cache.end();
+    }
+
+    @Override
+    public void dispose() {
+        cache.dispose();
+        shader.dispose();
+        if (tweakPixmap != null) {
+            tweakPixmap.dispose();
+            tweakTexture.dispose();
+        }
+    }
+
+    /**
+     * Makes the shader that draws each cell like ColorfulBatch would with that cell's tweak. The color math is the same
+     * as in ColorfulBatch's default shader; only where the tweak comes from is different, since a SpriteCache has no
+     * tweak attribute. What ColorfulBatch does per vertex with the tweak is done per fragment here.
+     */
+    private static ShaderProgram createShader() {
+        String vertexShader = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+                + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+                + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+                + "uniform mat4 u_projTrans;\n" //
+                + "uniform vec4 u_tweakArea;\n" // x,y is where the tweaked area starts, z,w is how much it covers
+                + "varying vec4 v_color;\n" //
+                + "varying vec2 v_texCoords;\n" //
+                + "varying vec2 v_tweakCoords;\n" //
+                + "\n" //
+                + "void main()\n" //
+                + "{\n" //
+                + "   v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+                + "   v_color.a = v_color.a * (255.0/254.0);\n" //
+                + "   v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+                + "   v_tweakCoords = (" + ShaderProgram.POSITION_ATTRIBUTE + ".xy - u_tweakArea.xy) / u_tweakArea.zw;\n" //
+                + "   gl_Position =  u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+                + "}\n";
+        String fragmentShader =
+                "#ifdef GL_ES\n" +
+                        "#define LOWP lowp\n" +
+                        "precision mediump float;\n" +
+                        "#else\n" +
+                        "#define LOWP \n" +
+                        "#endif\n" +
+                        "varying vec2 v_texCoords;\n" +
+                        "varying vec2 v_tweakCoords;\n" +
+                        "varying LOWP vec4 v_color;\n" +
+                        "uniform sampler2D u_texture;\n" +
+                        "uniform sampler2D u_tweak;\n" +
+                        "uniform vec2 u_tweakScale;\n" +
+                        "const vec3 bright = vec3(0.375, 0.5, 0.125);\n" +
+                        "void main()\n" +
+                        "{\n" +
+                        "   if (any(lessThan(v_tweakCoords, vec2(0.0))) || any(greaterThanEqual(v_tweakCoords, vec2(1.0)))) discard;\n" +
+                        "   vec4 tweak = texture2D( u_tweak, v_tweakCoords * u_tweakScale );\n" +
+                        "   float flagged = floor(tweak.a * 255.0 + 0.5);\n" +
+                        "   if (flagged < 0.5) discard;\n" +
+                        "   tweak.a = pow((flagged - 1.0) / 254.0 + 0.5, 1.709);\n" +
+                        "   float lightFix = 1.0 + pow(tweak.a, 1.41421356);\n" +
+                        "   vec4 tgt = texture2D( u_texture, v_texCoords );\n" +
+                        "   vec3 ycc = vec3(\n" +
+                        "     (v_color.r - 0.5 + tweak.r * pow(dot(tgt.rgb, bright), tweak.a) * lightFix),\n" +
+                        "     ((v_color.g - 0.5) + (tgt.r - tgt.b) * tweak.g) * 2.0,\n" +
+                        "     ((v_color.b - 0.5) + (tgt.g - tgt.b) * tweak.b) * 2.0);\n" +
+                        "   gl_FragColor = clamp(vec4(\n" +
+                        "     dot(ycc, vec3(1.0, 0.625, -0.5)),\n" +
+                        "     dot(ycc, vec3(1.0, -0.375, 0.5)),\n" +
+                        "     dot(ycc, vec3(1.0, -0.375, -0.5)),\n" +
+                        "     v_color.a * tgt.a), 0.0, 1.0);\n" +
+                        "}";
+
+        ShaderProgram shader = new ShaderProgram(vertexShader, fragmentShader);
+        if (!shader.isCompiled()) throw new IllegalArgumentException("Error compiling shader: " + shader.getLog());
+        return shader;
+    }
+}
@@ -17,6 +17,7 @@ import com.badlogic.gdx.utils.TimeUtils;
 import squidpony.ArrayTools;
 import squidpony.FakeLanguageGen;
 import squidpony.squidai.DijkstraMap;
+import squidpony.squidgrid.Direction;
 import squidpony.squidgrid.FOV;
 import squidpony.squidgrid.Measurement;
 import squidpony.squidgrid.Radius;
@@ -104,11 +105,24 @@ public class DawnlikeDemo extends ApplicationAdapter {
     private DijkstraMap getToPlayer, playerToCursor;
     private Coord cursor;
     private List<Coord> toCursor;
+    // holds the same cells as toCursor, so putMap() can check if a cell is on the path without searching the List.
+    private GreasedRegion pathCells;
     private List<Coord> awaitedMoves;
     private String lang;
     private double[][] resistance;
     private double[][] visible;
+    // Nothing farther than fovRange from the player can be lit, so FOV only needs the square of cells around the
+    // player, fovRange cells in each direction; fovResistance gets copied from resistance in that square, and fovLight
+    // is lit by FOV and copied back into visible. Working on the square instead of the whole map means updating FOV
+    // costs the same however big the dungeon is. fovCenter is where the square was last time, so it can be cleared.
+    private final double[][] fovResistance = new double[fovRange * 2 + 1][fovRange * 2 + 1],
+            fovLight = new double[fovRange * 2 + 1][fovRange * 2 + 1];
+    private Coord fovCenter;
     private TextureAtlas.AtlasRegion solid;
+    // holds the walls, floors and doors on the GPU, so only the monsters and the player are drawn with batch.
+    private TileCache tiles;
+    // the cells the camera can see, plus one more on each side for monsters moving in from there; found each frame.
+    private int startX, startY, endX, endY;
     private int health = 9;
     
     // GreasedRegion is a hard-to-explain class, but it's an incredibly useful one for map generation and many other
@@ -890,6 +904,10 @@ public class DawnlikeDemo extends ApplicationAdapter {
 
         resistance = DungeonUtility.generateSimpleResistances(decoDungeon);
         visible = new double[bigWidth][bigHeight];
+        // The dungeon's walls and floors don't move, so rather than drawing each one every frame, TileCache sends them
+        // to the GPU once, in chunks, and only sends a chunk again when something in it changes. All that changes each
+        // frame is which cells are lit and how brightly, which is one pixel per cell on the screen.
+        tiles = new TileCache(lineDungeon, bgColors, charMapping, solid, cellWidth, cellHeight);
 
         //Coord is the type we use as a general 2D point, usually in a dungeon.
         //Because we know dungeons won't be incredibly huge, Coord performs best for x and y values less than 256, but
@@ -930,6 +948,9 @@ public class DawnlikeDemo extends ApplicationAdapter {
 //        playerSprite.setPosition(player.x * cellWidth, player.y * cellHeight);
         // Uses shadowcasting FOV and reuses the visible array without creating new arrays constantly.
         FOV.reuseFOV(resistance, visible, player.x, player.y, 9.0, Radius.CIRCLE);
+        // after this, updateFOV() only changes the cells near the player, starting with the ones lit here. A radius of
+        // 9.0 only lights cells less than 9 away, so they and their blockage are all in the square updateFOV() clears.
+        fovCenter = player;
         // 0.0 is the upper bound (inclusive), so any Coord in visible that is more well-lit than 0.0 will _not_ be in
         // the blockage Collection, but anything 0.0 or less will be in it. This lets us use blockage to prevent access
         // to cells we can't see from the start of the move.
@@ -964,6 +985,7 @@ public class DawnlikeDemo extends ApplicationAdapter {
         }
         //This is used to allow clicks or taps to take the player to the desired area.
         toCursor = new ArrayList<>(200);
+        pathCells = new GreasedRegion(bigWidth, bigHeight);
         //When a path is confirmed by clicking, we draw from this List to find which cell is next to move into.
         awaitedMoves = new ArrayList<>(200);
         //DijkstraMap is the pathfinding swiss-army knife we use here to find a path to the latest cursor position.
@@ -1006,52 +1028,53 @@ public class DawnlikeDemo extends ApplicationAdapter {
                 case UP:
                 case W:
                 case NUMPAD_8:
-                    toCursor.clear();
+                    clearPath();
                     //+1 is up on the screen
                     awaitedMoves.add(player.translate(0, 1));
                     break;
                 case DOWN:
                 case S:
                 case NUMPAD_2:
-                    toCursor.clear();
+                    clearPath();
                     //-1 is down on the screen
                     awaitedMoves.add(player.translate(0, -1));
                     break;
                 case LEFT:
                 case A:
                 case NUMPAD_4:
-                    toCursor.clear();
+                    clearPath();
                     awaitedMoves.add(player.translate(-1, 0));
                     break;
                 case RIGHT:
                 case D:
                 case NUMPAD_6:
-                    toCursor.clear();
+                    clearPath();
                     awaitedMoves.add(player.translate(1, 0));
                     break;
                 case NUMPAD_1:
-                    toCursor.clear();
+                    clearPath();
                     awaitedMoves.add(player.translate(-1, -1));
                     break;
                 case NUMPAD_3:
-                    toCursor.clear();
+                    clearPath();
                     awaitedMoves.add(player.translate(1, -1));
                     break;
                 case NUMPAD_7:
-                    toCursor.clear();
+                    clearPath();
                     awaitedMoves.add(player.translate(-1, 1));
                     break;
                 case NUMPAD_9:
-                    toCursor.clear();
+                    clearPath();
                     awaitedMoves.add(player.translate(1, 1));
                     break;
                 case PERIOD:
                 case NUMPAD_5:
-                    toCursor.clear();
+                    clearPath();
                     awaitedMoves.add(player);
                     break;
                 case B:
                     batch = (batch == simpleBatch) ? contrastBatch : simpleBatch;
+                    tiles.contrast = batch == contrastBatch;
                     break;
                 case ESCAPE:
                     Gdx.app.exit();
@@ -1099,6 +1122,7 @@ public class DawnlikeDemo extends ApplicationAdapter {
                     // already been fully analyzed by the DijkstraMap.partialScan() method at the start of the
                     // program, and re-calculated whenever the player moves, we only need to do a fraction of the
                     // work to find the best path with that info.
+                    clearPath();
                     toCursor = playerToCursor.findPathPreScanned(cursor);
                     // findPathPreScanned includes the current cell (goal) by default, which is helpful when
                     // you're finding a path to a monster or loot, and want to bump into it, but here can be
@@ -1108,6 +1132,7 @@ public class DawnlikeDemo extends ApplicationAdapter {
                     if (!toCursor.isEmpty()) {
                         toCursor = toCursor.subList(1, toCursor.size());
                     }
+                    pathCells.insertSeveral(toCursor);
                 }
                 return false;
             }
@@ -1127,21 +1152,11 @@ public class DawnlikeDemo extends ApplicationAdapter {
                 && bareDungeon[newX][newY] != '#') {
             // '+' is a door.
             if (lineDungeon[newX][newY] == '+') {
-                decoDungeon[newX][newY] = '/';
-                lineDungeon[newX][newY] = '/';
-                // changes to the map mean the resistances for FOV need to be regenerated.
-                resistance = DungeonUtility.generateSimpleResistances(decoDungeon);
-                // recalculate FOV, store it in fovmap for the render to use.
-                FOV.reuseFOV(resistance, visible, player.x, player.y, fovRange, Radius.CIRCLE);
-                blockage.refill(visible, 0.0);
-                seen.or(blockage.not());
-                blockage.fringe8way();
+                // opening the door patches the one resistance that changed, and FOV if the player can see it.
+                setTerrain(newX, newY, '/');
             } else {
-                // recalculate FOV, store it in fovmap for the render to use.
-                FOV.reuseFOV(resistance, visible, newX, newY, fovRange, Radius.CIRCLE);
-                blockage.refill(visible, 0.0);
-                seen.or(blockage.not());
-                blockage.fringe8way();
+                // recalculate FOV, store it in visible for the render to use.
+                updateFOV(newX, newY);
                 playerSprite.start = player;
                 playerSprite.end = (player = Coord.get(newX, newY));
                 playerSprite.change = 0f;
@@ -1153,8 +1168,10 @@ public class DawnlikeDemo extends ApplicationAdapter {
                     monsters.remove(player);
                     for (int x = -1; x <= 1; x++) {
                         for (int y = -1; y <= 1; y++) {
-                            if(rng.nextBoolean()) 
-                                bgColors[newX+x][newY+y] = FLOAT_BLOOD;
+                            if(rng.nextBoolean()) {
+                                bgColors[newX + x][newY + y] = FLOAT_BLOOD;
+                                tiles.refresh(newX + x, newY + y);
+                            }
                         }
                     }
                 }
@@ -1163,32 +1180,145 @@ public class DawnlikeDemo extends ApplicationAdapter {
         }
     }
 
+    /**
+     * Changes the cell at x,y to the given char, such as '/' when a door opens, in decoDungeon and lineDungeon (doors
+     * and floors look the same in both). Instead of generating the resistances for the whole map again, this only
+     * changes the resistance of that cell, and only recalculates FOV if the player could see that cell; one the player
+     * can't see isn't in the way of anything the player can see, so FOV can't change either way.
+     * @param x the x-position of the cell to change
+     * @param y the y-position of the cell to change
+     * @param terrain the char the cell should have, such as '/' for an open door or '+' for a closed one
+     */
+    private void setTerrain(int x, int y, char terrain) {
+        decoDungeon[x][y] = terrain;
+        lineDungeon[x][y] = terrain;
+        tiles.refresh(x, y);
+        // generateSimpleResistances() on just this cell, so the resistance is always the same as on the whole map.
+        final double r = DungeonUtility.generateSimpleResistances(new char[][]{{terrain}})[0][0];
+        if (resistance[x][y] == r)
+            return;
+        resistance[x][y] = r;
+        if (visible[x][y] > 0.0)
+            updateFOV(player.x, player.y);
+    }
+
+    /**
+     * Recalculates FOV from centerX,centerY, and updates blockage and seen to match, only changing cells within
+     * fovRange (plus one, for blockage) of where the last FOV was centered and of centerX,centerY. Every cell farther
+     * away is already 0.0 in visible and not in blockage, and stays that way. This gets the same results as running
+     * FOV.reuseFOV() on the whole map and then blockage.refill(), seen.or() and blockage.fringe8way(), but each of those
+     * would go through every cell on the map.
+     */
+    private void updateFOV(int centerX, int centerY) {
+        final int side = fovRange * 2 + 1;
+        // unlight the last square, and remove the blockage around it.
+        for (int x = Math.max(0, fovCenter.x - fovRange - 1), xe = Math.min(bigWidth, fovCenter.x + fovRange + 2); x < xe; x++) {
+            for (int y = Math.max(0, fovCenter.y - fovRange - 1), ye = Math.min(bigHeight, fovCenter.y + fovRange + 2); y < ye; y++) {
+                visible[x][y] = 0.0;
+                blockage.set(false, x, y);
+            }
+        }
+        // anything off the map blocks light, the same as a wall.
+        for (int i = 0, x = centerX - fovRange; i < side; i++, x++) {
+            for (int j = 0, y = centerY - fovRange; j < side; j++, y++) {
+                fovResistance[i][j] = x >= 0 && y >= 0 && x < bigWidth && y < bigHeight ? resistance[x][y] : 1.0;
+            }
+        }
+        FOV.reuseFOV(fovResistance, fovLight, fovRange, fovRange, fovRange, Radius.CIRCLE);
+        for (int i = 0, x = centerX - fovRange; i < side; i++, x++) {
+            for (int j = 0, y = centerY - fovRange; j < side; j++, y++) {
+                if (fovLight[i][j] > 0.0 && x >= 0 && y >= 0 && x < bigWidth && y < bigHeight) {
+                    visible[x][y] = fovLight[i][j];
+                    seen.insert(x, y);
+                }
+            }
+        }
+        // blockage is the fringe of the lit cells; the cells that aren't lit, but are next to one that is.
+        for (int x = Math.max(0, centerX - fovRange - 1), xe = Math.min(bigWidth, centerX + fovRange + 2); x < xe; x++) {
+            for (int y = Math.max(0, centerY - fovRange - 1), ye = Math.min(bigHeight, centerY + fovRange + 2); y < ye; y++) {
+                if (visible[x][y] > 0.0)
+                    continue;
+                OUTER:
+                for (int nx = Math.max(0, x - 1); nx <= x + 1 && nx < bigWidth; nx++) {
+                    for (int ny = Math.max(0, y - 1); ny <= y + 1 && ny < bigHeight; ny++) {
+                        if (visible[nx][ny] > 0.0) {
+                            blockage.insert(x, y);
+                            break OUTER;
+                        }
+                    }
+                }
+            }
+        }
+        fovCenter = Coord.get(centerX, centerY);
+    }
+
+    /**
+     * Empties toCursor, and removes its cells from pathCells so they stop being highlighted.
+     */
+    private void clearPath() {
+        for (int i = 0, n = toCursor.size(); i < n; i++) {
+            pathCells.remove(toCursor.get(i));
+        }
+        toCursor.clear();
+    }
+
+    /**
+     * Finds the cell a monster at pos should step into to chase the player, using the distances getToPlayer found at
+     * the start of this turn. If the closest cell next to it has another monster in it, this tries the next closest,
+     * and so on, as long as the cell is still closer to the player than pos is.
+     * Like DijkstraMap's own paths, a diagonal step can't squeeze between two walls.
+     * @param pos where the monster is now; it should have been removed from monsters already
+     * @return the cell to step into, which may be the player's cell, or null if the monster should stay where it is
+     */
+    private Coord chaseStep(Coord pos) {
+        final double[][] distances = getToPlayer.gradientMap;
+        double best = distances[pos.x][pos.y];
+        Coord next = null;
+        // OUTWARDS has the orthogonal directions first, so they win ties with diagonals.
+        for (Direction dir : Direction.OUTWARDS) {
+            final int x = pos.x + dir.deltaX, y = pos.y + dir.deltaY;
+            if (x < 0 || y < 0 || x >= bigWidth || y >= bigHeight || distances[x][y] >= best)
+                continue;
+            // both cells this diagonal passes between are walls, so it would cut the corner
+            if (dir.deltaX != 0 && dir.deltaY != 0
+                    && distances[x][pos.y] >= DijkstraMap.WALL && distances[pos.x][y] >= DijkstraMap.WALL)
+                continue;
+            final Coord c = Coord.get(x, y);
+            if (!monsters.containsKey(c)) {
+                best = distances[x][y];
+                next = c;
+            }
+        }
+        return next;
+    }
+
     private void postMove()
     {
         phase = Phase.MONSTER_ANIM;
-        Coord[] playerArray = {player};
         // in some cases you can use keySet() to get a Set of keys, but that makes a read-only view, and we want
         // a copy of the key set that we can edit (so monsters don't move into each others' spaces)
 //        OrderedSet<Coord> monplaces = monsters.keysAsOrderedSet();
         int monCount = monsters.size();
 
-        // recalculate FOV, store it in fovmap for the render to use.
-        FOV.reuseFOV(resistance, visible, player.x, player.y, fovRange, Radius.CIRCLE);
-        blockage.refill(visible, 0.0);
-        seen.or(blockage.not());
-        blockage.fringe8way();
+        // recalculate FOV, store it in visible for the render to use.
+        updateFOV(player.x, player.y);
+        // Every monster that chases the player is trying to get to the same place, so instead of each one finding its
+        // own path, the distance to the player from every cell near the player is found once per turn, and each monster
+        // steps to whichever cell next to it is closest. Monsters only chase when they can see the player, which they
+        // can't do from farther than fovRange, so the scan doesn't need to go any farther than that.
+        getToPlayer.clearGoals();
+        getToPlayer.resetMap();
+        getToPlayer.setGoal(player);
+        getToPlayer.partialScan(fovRange);
         // handle monster turns
-        ArrayList<Coord> nextMovePositions;
         for(int ci = 0; ci < monCount; ci++)
         {
             Coord pos = monsters.firstKey();
             AnimatedGlider mon = monsters.removeFirst();
             // monster values are used to store their aggression, 1 for actively stalking the player, 0 for not.
             if (visible[pos.x][pos.y] > 0.1) {
-                getToPlayer.clearGoals();
-                nextMovePositions = getToPlayer.findPath(1, 7, monsters.keySet(), null, pos, playerArray);
-                if (nextMovePositions != null && !nextMovePositions.isEmpty()) {
-                    Coord tmp = nextMovePositions.get(0);
+                Coord tmp = chaseStep(pos);
+                if (tmp != null) {
                     // if we would move into the player, instead damage the player and give newMons the current
                     // position of this monster.
                     if (tmp.x == player.x && tmp.y == player.y) {
@@ -1222,38 +1352,43 @@ public class DawnlikeDemo extends ApplicationAdapter {
 
 
     /**
-     * Draws the map, applies any highlighting for the path to the cursor, and then draws the player.
+     * Finds which cells the camera can see, then lights them in tiles, applying any highlighting for the path to the
+     * cursor, and draws them. This is called before batch.begin(), since tiles doesn't draw with batch.
      */
-    public void putMap()
+    public void putTiles()
     {
-        final float time = TimeUtils.timeSinceMillis(startTime) * 0.001f;
-        //In many other situations, you would clear the drawn characters to prevent things that had been drawn in the
-        //past from affecting the current frame. This isn't a problem here, but would probably be an issue if we had
-        //monsters running in and out of our vision. If artifacts from previous frames show up, uncomment the next line.
-        //display.clear();
-        for (int i = 0; i < bigWidth; i++) {
-            for (int j = 0; j < bigHeight; j++) {
+        // Only the cells the camera can see are lit and drawn, so the time this takes depends on the size of the screen
+        // and not the size of the dungeon.
+        startX = Math.max(0, MathUtils.floor((camera.position.x - camera.viewportWidth * 0.5f) / cellWidth) - 1);
+        startY = Math.max(0, MathUtils.floor((camera.position.y - camera.viewportHeight * 0.5f) / cellHeight) - 1);
+        endX = Math.min(bigWidth, MathUtils.floor((camera.position.x + camera.viewportWidth * 0.5f) / cellWidth) + 2);
+        endY = Math.min(bigHeight, MathUtils.floor((camera.position.y + camera.viewportHeight * 0.5f) / cellHeight) + 2);
+        tiles.beginLight(startX, startY, endX, endY);
+        for (int i = startX; i < endX; i++) {
+            for (int j = startY; j < endY; j++) {
                 if(visible[i][j] > 0.0) {
-                    pos.set(i * cellWidth, j * cellHeight, 0f);
-                    batch.setPackedColor(toCursor.contains(Coord.get(i, j))
-                            ? ColorTools.lerpFloatColors(bgColors[i][j], FLOAT_WHITE, 0.9f)
-                            : ColorTools.lerpFloatColors(bgColors[i][j], FLOAT_LIGHTING, (float)visible[i][j] * 0.75f + 0.25f));
-                    if(lineDungeon[i][j] == '/' || lineDungeon[i][j] == '+') // doors expect a floor drawn beneath them
-                        batch.draw(charMapping.get('.', solid), pos.x, pos.y, cellWidth, cellHeight);
-                    batch.draw(charMapping.get(lineDungeon[i][j], solid), pos.x, pos.y, cellWidth, cellHeight);
+                    if(pathCells.contains(i, j))
+                        tiles.setLight(i, j, FLOAT_WHITE, 0.9f);
+                    else
+                        tiles.setLight(i, j, FLOAT_LIGHTING, (float)visible[i][j] * 0.75f + 0.25f);
                 } else if(seen.contains(i, j)) {
-                    pos.set(i * cellWidth, j * cellHeight, 0f);
-                    batch.setPackedColor(ColorTools.lerpFloatColors(bgColors[i][j], FLOAT_GRAY, 0.7f));
-                    if(lineDungeon[i][j] == '/' || lineDungeon[i][j] == '+') // doors expect a floor drawn beneath them
-                        batch.draw(charMapping.get('.', solid), pos.x, pos.y, cellWidth, cellHeight);
-                    batch.draw(charMapping.get(lineDungeon[i][j], solid), pos.x, pos.y, cellWidth, cellHeight);
+                    tiles.setLight(i, j, FLOAT_GRAY, 0.7f);
                 }
             }
         }
+        tiles.draw(camera.combined);
+    }
+
+    /**
+     * Draws the monsters the player can see, and then draws the player; the map itself is drawn by putTiles().
+     */
+    public void putMap()
+    {
+        final float time = TimeUtils.timeSinceMillis(startTime) * 0.001f;
         batch.setPackedColor(FLOAT_WHITE);
         AnimatedGlider monster;
-        for (int i = 0; i < bigWidth; i++) {
-            for (int j = 0; j < bigHeight; j++) {
+        for (int i = startX; i < endX; i++) {
+            for (int j = startY; j < endY; j++) {
                 if (visible[i][j] > 0.0) {
                     if ((monster = monsters.get(Coord.get(i, j))) != null) {
                         batch.draw(monster.animate(time), monster.getX() * cellWidth, monster.getY() * cellHeight);
@@ -1276,6 +1411,7 @@ public class DawnlikeDemo extends ApplicationAdapter {
         camera.update();
 
         mainViewport.apply(false);
+        putTiles();
         batch.setProjectionMatrix(camera.combined);
         batch.begin();
         
@@ -1310,7 +1446,7 @@ public class DawnlikeDemo extends ApplicationAdapter {
                 if (!awaitedMoves.isEmpty()) {
                     Coord m = awaitedMoves.remove(0);
                     if (!toCursor.isEmpty())
-                        toCursor.remove(0);
+                        pathCells.remove(toCursor.remove(0));
                     move(m.x, m.y);
                 }
             }
@@ -1319,7 +1455,7 @@ public class DawnlikeDemo extends ApplicationAdapter {
         {
             Coord m = awaitedMoves.remove(0);
             if (!toCursor.isEmpty())
-                toCursor.remove(0);
+                pathCells.remove(toCursor.remove(0));
             move(m.x, m.y);
         }
         else if(phase == Phase.PLAYER_ANIM) {
@@ -0,0 +1,306 @@
+package com.github.tommyettinger.demos;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+import squidpony.squidmath.NumberTools;
+
+/**
+ * Keeps the walls, floors and doors of a dungeon on the GPU, so they don't need to be drawn one at a time every frame.
+ * The dungeon is split into square chunks of {@link #CHUNK_SIZE} cells, each one cached once in a {@link SpriteCache}
+ * with the background color of each cell, and only cached again when {@link #refresh(int, int)} is called for a cell in
+ * it (such as when a door opens or blood gets on the floor). Only chunks the camera can see are drawn.
+ * <br>
+ * What changes every frame is how each cell is lit, which is given for just the cells on screen with
+ * {@link #beginLight(int, int, int, int)} and {@link #setLight(int, int, float, float)}. That goes into a small texture
+ * with one pixel per cell, and the shader looks up each cell's pixel to mix its color toward the light, the same way
+ * {@link ColorTools#lerpFloatColors(float, float, float)} does. Cells that were given no light, or are outside that
+ * area, aren't drawn at all.
+ */
+public class TileCache implements Disposable {
+    /** How many cells to a side each chunk has. */
+    public static final int CHUNK_SIZE = 32;
+    public final int width, height;
+    /**
+     * If true, this draws with the same higher-contrast look as {@link ColorTools#createContrastShader()}.
+     */
+    public boolean contrast;
+    private final float cellWidth, cellHeight;
+    private final char[][] map;
+    private final float[][] colors;
+    private final IntMap<TextureAtlas.AtlasRegion> regions;
+    private final TextureRegion fallback;
+    private final int chunksWide, chunksHigh;
+    // the cache ID for each chunk, how many images it was made with (it can't be made again with more), and whether
+    // it needs to be made again before it can be drawn.
+    private final int[] ids, counts;
+    private final boolean[] dirty;
+    private SpriteCache cache;
+    private final ShaderProgram shader, contrastShader;
+    private Pixmap lightPixmap;
+    private Texture lightTexture;
+    private int lightX, lightY, lightWidth, lightHeight;
+
+    /**
+     * @param map the chars to draw, indexed [x][y]; used directly, so call {@link #refresh(int, int)} after changing it
+     * @param colors the background color for each cell as a packed float; also used directly
+     * @param regions maps each char in map to the image to draw for it
+     * @param fallback the image to draw for chars that aren't in regions
+     * @param cellWidth how wide one cell is in world units
+     * @param cellHeight how tall one cell is in world units
+     */
+    public TileCache(char[][] map, float[][] colors, IntMap<TextureAtlas.AtlasRegion> regions, TextureRegion fallback,
+                     float cellWidth, float cellHeight) {
+        this.map = map;
+        this.colors = colors;
+        this.regions = regions;
+        this.fallback = fallback;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        width = map.length;
+        height = map[0].length;
+        chunksWide = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunksHigh = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        ids = new int[chunksWide * chunksHigh];
+        counts = new int[chunksWide * chunksHigh];
+        dirty = new boolean[chunksWide * chunksHigh];
+        shader = createShader(false);
+        contrastShader = createShader(true);
+        build();
+    }
+
+    /**
+     * Caches every chunk, in a new SpriteCache with exactly enough room.
+     */
+    private void build() {
+        int total = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                total += images(map[x][y]);
+            }
+        }
+        if (cache != null)
+            cache.dispose();
+        // without indices, a SpriteCache isn't limited to 8191 images, so this works for any size of dungeon.
+        cache = new SpriteCache(total, false);
+        for (int i = 0; i < ids.length; i++) {
+            cache.beginCache();
+            counts[i] = addChunk(i);
+            ids[i] = cache.endCache();
+            dirty[i] = false;
+        }
+    }
+
+    /**
+     * Doors expect a floor drawn beneath them, so they take two images.
+     */
+    private static int images(char c) {
+        return c == '/' || c == '+' ? 2 : 1;
+    }
+
+    private TextureRegion region(char c) {
+        final TextureRegion region = regions.get(c);
+        return region == null ? fallback : region;
+    }
+
+    private int addChunk(int chunk) {
+        final int startX = chunk % chunksWide * CHUNK_SIZE, startY = chunk / chunksWide * CHUNK_SIZE;
+        int count = 0;
+        for (int x = startX, xe = Math.min(width, startX + CHUNK_SIZE); x < xe; x++) {
+            for (int y = startY, ye = Math.min(height, startY + CHUNK_SIZE); y < ye; y++) {
+                final char c = map[x][y];
+                cache.setPackedColor(colors[x][y]);
+                if (images(c) == 2)
+                    cache.add(region('.'), x * cellWidth, y * cellHeight, cellWidth, cellHeight);
+                cache.add(region(c), x * cellWidth, y * cellHeight, cellWidth, cellHeight);
+                count += images(c);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Marks the chunk with the cell at x,y in it to be cached again before it is next drawn, after the char or color of
+     * that cell changed.
+     */
+    public void refresh(int x, int y) {
+        dirty[x / CHUNK_SIZE + y / CHUNK_SIZE * chunksWide] = true;
+    }
+
+    private void rebuild() {
+        for (int i = 0; i < ids.length; i++) {
+            if (!dirty[i])
+                continue;
+            dirty[i] = false;
+            final int startX = i % chunksWide * CHUNK_SIZE, startY = i / chunksWide * CHUNK_SIZE;
+            int count = 0;
+            for (int x = startX, xe = Math.min(width, startX + CHUNK_SIZE); x < xe; x++) {
+                for (int y = startY, ye = Math.min(height, startY + CHUNK_SIZE); y < ye; y++) {
+                    count += images(map[x][y]);
+                }
+            }
+            // a chunk can't be cached again with more images than it had before, which only happens if a door is
+            // put where there wasn't one; then every chunk is cached again from the start, with room for it.
+            if (count > counts[i]) {
+                build();
+                return;
+            }
+            cache.beginCache(ids[i]);
+            addChunk(i);
+            cache.endCache();
+        }
+    }
+
+    /**
+     * Starts giving the light for the cells from startX,startY (inclusive) to endX,endY (exclusive), which should cover
+     * everything the camera can see; cells outside this area are discarded by the shader. Every cell starts out with no light, so
+     * {@link #setLight(int, int, float, float)} only needs to be called for cells that should be drawn.
+     */
+    public void beginLight(int startX, int startY, int endX, int endY) {
+        lightX = startX;
+        lightY = startY;
+        lightWidth = Math.max(1, endX - startX);
+        lightHeight = Math.max(1, endY - startY);
+        if (lightPixmap == null || lightPixmap.getWidth() < lightWidth || lightPixmap.getHeight() < lightHeight) {
+            if (lightPixmap != null) {
+                lightPixmap.dispose();
+                lightTexture.dispose();
+            }
+            lightPixmap = new Pixmap(MathUtils.nextPowerOfTwo(lightWidth), MathUtils.nextPowerOfTwo(lightHeight), Pixmap.Format.RGBA8888);
+            lightPixmap.setBlending(Pixmap.Blending.None);
+            lightTexture = new Texture(lightPixmap);
+            lightTexture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        }
+        lightPixmap.setColor(0);
+        lightPixmap.fill();
+    }
+
+    /**
+     * Sets the cell at x,y to be drawn with its color mixed toward light by amount, between 0 and 1.
+     * @param x the x-position of the cell, inside the area given to {@link #beginLight(int, int, int, int)}
+     * @param y the y-position of the cell, inside the area given to {@link #beginLight(int, int, int, int)}
+     * @param light the color of the light, as a packed float
+     * @param amount how much to mix toward light; the cell is still drawn if this is 0
+     */
+    public void setLight(int x, int y, float light, float amount) {
+        final int bits = NumberTools.floatToIntBits(light);
+        // RGBA8888, with the amount in alpha; an alpha of 0 means "don't draw", so it is at least 1.
+        lightPixmap.drawPixel(x - lightX, y - lightY, (bits & 0xFF) << 24 | (bits & 0xFF00) << 8 | (bits >>> 8 & 0xFF00)
+                | Math.max(1, Math.min(255, (int) (amount * 255f + 0.5f))));
+    }
+
+    /**
+     * Draws every chunk with part of the area given to {@link #beginLight(int, int, int, int)} in it. This should be
+     * called outside of any Batch's begin() and end(), before drawing anything that should go over the dungeon.
+     * @param projection the camera's combined matrix
+     */
+    public void draw(Matrix4 projection) {
+        rebuild();
+        lightTexture.draw(lightPixmap, 0, 0);
+        final ShaderProgram current = contrast ? contrastShader : shader;
+        cache.setShader(current);
+        cache.setProjectionMatrix(projection);
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        cache.begin();
+        lightTexture.bind(1);
+        Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+        current.setUniformi("u_light", 1);
+        current.setUniformf("u_lightArea", lightX * cellWidth, lightY * cellHeight,
+                lightWidth * cellWidth, lightHeight * cellHeight);
+        // the pixmap can be bigger than the area, and its texture clamps to the edge, so the shader has to scale its
+        // lookups into just the part that was filled, and can't let anything outside that part use the edge's light.
+        current.setUniformf("u_lightScale", lightWidth / (float) lightPixmap.getWidth(),
+                lightHeight / (float) lightPixmap.getHeight());
+        final int startX = Math.max(0, lightX / CHUNK_SIZE), startY = Math.max(0, lightY / CHUNK_SIZE),
+                endX = Math.min(chunksWide, (lightX + lightWidth - 1) / CHUNK_SIZE + 1),
+                endY = Math.min(chunksHigh, (lightY + lightHeight - 1) / CHUNK_SIZE + 1);
+        for (int cx = startX; cx < endX; cx++) {
+            for (int cy = startY; cy < endY; cy++) {
+                cache.draw(ids[cx + cy * chunksWide]);
+            }
+        }
+        cache.end();
+    }
+
+    @Override
+    public void dispose() {
+        cache.dispose();
+        shader.dispose();
+        contrastShader.dispose();
+        if (lightPixmap != null) {
+            lightPixmap.dispose();
+            lightTexture.dispose();
+        }
+    }
+
+    /**
+     * Makes the shader that mixes each cell's color toward its light; if contrast is true, the result then goes through
+     * the same steps as {@link ColorTools#createContrastShader()}, otherwise it is used like a SpriteBatch color.
+     */
+    private static ShaderProgram createShader(boolean contrast) {
+        String vertexShader = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+                + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+                + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+                + "uniform mat4 u_projTrans;\n" //
+                + "uniform vec4 u_lightArea;\n" // x,y is where the lit area starts, z,w is how much it covers
+                + "varying vec4 v_color;\n" //
+                + "varying vec2 v_texCoords;\n" //
+                + "varying vec2 v_lightCoords;\n" //
+                + "\n" //
+                + "void main()\n" //
+                + "{\n" //
+                + "   v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+                + "   v_color.a = v_color.a * (255.0/254.0);\n" //
+                + "   v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+                + "   v_lightCoords = (" + ShaderProgram.POSITION_ATTRIBUTE + ".xy - u_lightArea.xy) / u_lightArea.zw;\n" //
+                + "   gl_Position =  u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+                + "}\n";
+        String fragmentShader =
+                "#ifdef GL_ES\n" +
+                        "#define LOWP lowp\n" +
+                        "precision mediump float;\n" +
+                        "#else\n" +
+                        "#define LOWP \n" +
+                        "#endif\n" +
+                        "varying vec2 v_texCoords;\n" +
+                        "varying vec2 v_lightCoords;\n" +
+                        "varying LOWP vec4 v_color;\n" +
+                        "uniform sampler2D u_texture;\n" +
+                        "uniform sampler2D u_light;\n" +
+                        "uniform vec2 u_lightScale;\n" +
+                        "const vec3 bright = vec3(0.375, 0.5, 0.125);\n" +
+                        "void main()\n" +
+                        "{\n" +
+                        "   if (any(lessThan(v_lightCoords, vec2(0.0))) || any(greaterThanEqual(v_lightCoords, vec2(1.0)))) discard;\n" +
+                        "   vec4 light = texture2D( u_light, v_lightCoords * u_lightScale );\n" +
+                        "   if (light.a < 0.002) discard;\n" +
+                        "   vec4 color = vec4(mix(v_color.rgb, light.rgb, light.a), v_color.a);\n" +
+                        "   vec4 tgt = texture2D( u_texture, v_texCoords );\n" +
+                        (contrast
+                                ? "   vec3 ycc = vec3(\n" +
+                                "     (dot(color.rgb, bright) * 0.75 - 0.75 + 0.43 * pow(dot(tgt.rgb, bright), 1.4642634172891231) * 2.714829459393612),\n" +
+                                "     ((color.r - color.b) + (tgt.r - tgt.b) * 1.5),\n" +
+                                "     ((color.g - color.b) + (tgt.g - tgt.b) * 1.5));\n" +
+                                "   gl_FragColor = clamp(vec4(\n" +
+                                "     dot(ycc, vec3(1.0, 0.625, -0.5)),\n" +
+                                "     dot(ycc, vec3(1.0, -0.375, 0.5)),\n" +
+                                "     dot(ycc, vec3(1.0, -0.375, -0.5)),\n" +
+                                "     color.a * tgt.a), 0.0, 1.0);\n"
+                                : "   gl_FragColor = color * tgt;\n") +
+                        "}";
+
+        ShaderProgram shader = new ShaderProgram(vertexShader, fragmentShader);
+        if (!shader.isCompiled()) throw new IllegalArgumentException("Error compiling shader: " + shader.getLog());
+        return shader;
+    }
+}
@@ -0,0 +1,130 @@
+package com.squidpony.globe;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.NumberUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Keeps a {@code float[][]} color map, such as the one from
+ * {@link squidpony.squidgrid.gui.gdx.WorldMapView#getColorMap()}, in a single texture, so it can be drawn as one quad
+ * instead of one point per cell. Calling {@link #update(float[][])} only changes the pixels whose colors changed, and
+ * the next draw uploads just the band of rows holding those changes with one {@code glTexSubImage2D} call.
+ * <br>
+ * This writes raw RGBA8888 data to the texture, which the GWT backend can't upload, so web targets should keep
+ * drawing the color map another way.
+ */
+public class ColorMapTexture implements Disposable {
+    public final int width, height;
+    /**
+     * Cells with exactly this packed float color are drawn fully transparent, so whatever was behind the map shows.
+     */
+    public final float emptyColor;
+    private final Texture texture;
+    private final ByteBuffer pixels;
+    private final IntBuffer ints;
+    private int dirtyStart, dirtyEnd;
+
+    /**
+     * Makes a ColorMapTexture for color maps of the given size, where no cells are treated as empty.
+     * @param width the width of the color maps this will show, in cells
+     * @param height the height of the color maps this will show, in cells
+     */
+    public ColorMapTexture(int width, int height) {
+        this(width, height, Float.NaN);
+    }
+
+    /**
+     * Makes a ColorMapTexture for color maps of the given size, where cells with the packed float color
+     * {@code emptyColor} will be transparent, as with {@link squidpony.squidgrid.gui.gdx.WorldMapView#emptyColor}.
+     * @param width the width of the color maps this will show, in cells
+     * @param height the height of the color maps this will show, in cells
+     * @param emptyColor a packed float color that will be drawn as transparent
+     */
+    public ColorMapTexture(int width, int height, float emptyColor) {
+        this.width = width;
+        this.height = height;
+        this.emptyColor = emptyColor;
+        texture = new Texture(width, height, Pixmap.Format.RGBA8888);
+        texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        pixels = BufferUtils.newByteBuffer(width * height << 2);
+        // big-endian ints are written as the bytes R, G, B, A, which is what RGBA8888 expects
+        ints = pixels.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        // the texture starts out all transparent, same as pixels, so nothing needs uploading yet
+        dirtyStart = height;
+        dirtyEnd = -1;
+    }
+
+    /**
+     * Copies colorMap into this, noting which rows changed so only those get uploaded. The map is indexed
+     * {@code [x][y]}, and row 0 is drawn at the bottom.
+     * @param colorMap a 2D array of packed float colors at least as big as this in both dimensions
+     */
+    public void update(float[][] colorMap) {
+        int start = dirtyStart, end = dirtyEnd, color;
+        float c;
+        for (int x = 0; x < width; x++) {
+            final float[] column = colorMap[x];
+            for (int y = 0, i = x; y < height; y++, i += width) {
+                c = column[y];
+                // floatToIntColor gives ABGR8888, and reversing the bytes makes that RGBA8888
+                color = c == emptyColor ? 0 : Integer.reverseBytes(NumberUtils.floatToIntColor(c));
+                if(ints.get(i) != color) {
+                    ints.put(i, color);
+                    if(y < start) start = y;
+                    if(y > end) end = y;
+                }
+            }
+        }
+        dirtyStart = start;
+        dirtyEnd = end;
+    }
+
+    /**
+     * Uploads any rows changed since the last upload, if there are any. {@link #draw(Batch, float, float, float, float)}
+     * calls this itself, so this only needs to be called if the texture is used some other way.
+     * @return the texture holding the color map
+     */
+    public Texture flush() {
+        if(dirtyStart <= dirtyEnd) {
+            texture.bind();
+            // rows are 4 * width bytes, so they are always aligned the way GL expects by default
+            pixels.position(dirtyStart * width << 2);
+            Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, 0, dirtyStart, width, dirtyEnd - dirtyStart + 1,
+                    GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, pixels);
+            pixels.position(0);
+            dirtyStart = height;
+            dirtyEnd = -1;
+        }
+        return texture;
+    }
+
+    /**
+     * Uploads any changed rows and draws the whole color map as one quad. The batch must have begun already.
+     * @param batch a Batch that has begun, such as a SpriteBatch
+     * @param x the x-position of the bottom-left corner of the map
+     * @param y the y-position of the bottom-left corner of the map
+     * @param drawWidth how wide to draw the map, in world units
+     * @param drawHeight how tall to draw the map, in world units
+     */
+    public void draw(Batch batch, float x, float y, float drawWidth, float drawHeight) {
+        // any pending sprites may use a texture that flush() unbinds, so they need to be sent first
+        batch.flush();
+        flush();
+        // texture row 0 holds map row 0, and flipping v puts that row at the bottom
+        batch.draw(texture, x, y, drawWidth, drawHeight, 0, 0, width, height, false, true);
+    }
+
+    @Override
+    public void dispose() {
+        texture.dispose();
+    }
+}
@@ -1,10 +1,12 @@
 package com.squidpony.globe;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ImmediateModeRenderer20;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
@@ -34,6 +36,9 @@ public class GlobeDemo extends ApplicationAdapter {
 
 
     private ImmediateModeRenderer20 batch;
+    //// on platforms other than the web, the map is kept in one texture and drawn as one quad instead of as points
+    private ColorMapTexture mapTexture;
+    private SpriteBatch spriteBatch;
     private SquidInput input;
     private Viewport view;
     private GWTRNG rng;
@@ -51,8 +56,13 @@ public class GlobeDemo extends ApplicationAdapter {
 
         //// you will probably want to change batch to use whatever rendering system is appropriate
         //// for your game; here it always renders pixels
-        batch = new ImmediateModeRenderer20(width * height, false, true, 0);
         view = new StretchViewport(width, height);
+        if(Gdx.app.getType() == Application.ApplicationType.WebGL)
+            batch = new ImmediateModeRenderer20(width * height, false, true, 0);
+        else {
+            mapTexture = new ColorMapTexture(width, height, WorldMapView.emptyColor);
+            spriteBatch = new SpriteBatch();
+        }
         //seed = 0x0c415cf07774ab2eL;//0x9987a26d1e4d187dL;//0xDEBACL;
         rng = new GWTRNG();
         seed = rng.getState();
@@ -193,6 +203,15 @@ public class GlobeDemo extends ApplicationAdapter {
     public void putMap() {
         float[][] cm = wmv.getColorMap();
         //// everything after this part of putMap() should be customized to your rendering setup
+        if(mapTexture != null) {
+            //// only the rows that changed since last frame get uploaded, all in one call, then drawn as one quad
+            mapTexture.update(cm);
+            spriteBatch.setProjectionMatrix(view.getCamera().combined);
+            spriteBatch.begin();
+            mapTexture.draw(spriteBatch, 0, 0, width, height);
+            spriteBatch.end();
+            return;
+        }
         batch.begin(view.getCamera().combined, GL20.GL_POINTS);
         float c;
         for (int x = 0; x < width; x++) {
@@ -224,6 +243,16 @@ public class GlobeDemo extends ApplicationAdapter {
         Gdx.graphics.setTitle("Took " + ttg + " ms to generate");//, took " + ttd + " ms to draw");
     }
 
+    @Override
+    public void dispose() {
+        if(batch != null)
+            batch.dispose();
+        if(mapTexture != null) {
+            mapTexture.dispose();
+            spriteBatch.dispose();
+        }
+    }
+
     @Override
     public void resize(int width, int height) {
         super.resize(width, height);
@@ -16,7 +16,8 @@ import java.util.Arrays;
  * rotated without recalculating all the data, though it cannot zoom. Note that calling
  * {@link #setCenterLongitude(double)} does a lot more work than in other classes, but less than fully calling
  * {@link #generate()} in those classes, since it doesn't remake the map data at a slightly different rotation and
- * instead keeps a single map in use the whole time, using sections of it. This uses an
+ * instead keeps a single map in use the whole time, using sections of it. The trigonometry for the projection is done
+ * once, by {@link #buildProjection()}, and rotating only needs table lookups after that. This uses an
  * <a href="https://en.wikipedia.org/wiki/Orthographic_projection_in_cartography">Orthographic projection</a> with
  * the latitude always at the equator; the internal map is stored as a {@link SphereMap}, which uses a
  * <a href="https://en.wikipedia.org/wiki/Cylindrical_equal-area_projection#Discussion">cylindrical equal-area
@@ -32,6 +33,21 @@ public class RotatingSpaceMap extends WorldMapGenerator {
             zPositions;
     protected final int[] edges;
     public final SphereMap storedMap;
+    /**
+     * The parts of the orthographic projection that don't depend on the center longitude, filled in by
+     * {@link #buildProjection()} and only rebuilt if the area of the map in use changes. {@code lonOffsets} holds the
+     * longitude of each on-disc cell relative to the center, at index {@code x * height + y}; {@code rowSin},
+     * {@code rowCos} and {@code rowY} hold the sine and cosine of each row's latitude and the row of
+     * {@link #storedMap} it samples. {@code spans} holds the first and last on-disc y for each column (empty columns
+     * have the first after the last). These go by column, not by row, because every array this fills is indexed
+     * {@code [x][y]}, and walking down a column writes to each of those arrays in order.
+     */
+    protected final double[] lonOffsets, rowSin, rowCos;
+    protected final int[] rowY, spans;
+    /**
+     * The startX, startY, usedWidth and usedHeight that the projection tables were built for; -1 if not built yet.
+     */
+    protected int projectedStartX = -1, projectedStartY = -1, projectedWidth = -1, projectedHeight = -1;
     /**
      * Constructs a concrete WorldMapGenerator for a map that can be used to view a spherical world from space,
      * showing only one hemisphere at a time.
@@ -137,6 +153,11 @@ public class RotatingSpaceMap extends WorldMapGenerator {
         zPositions = new double[mapWidth][mapHeight];
         edges = new int[height << 1];
         storedMap = new SphereMap(initialSeed, mapWidth << 1, mapHeight, noiseGenerator, octaveMultiplier);
+        lonOffsets = new double[width * height];
+        rowSin = new double[height];
+        rowCos = new double[height];
+        rowY = new int[height];
+        spans = new int[width << 1];
     }
 
     /**
@@ -152,6 +173,15 @@ public class RotatingSpaceMap extends WorldMapGenerator {
         zPositions = ArrayTools.copy(other.zPositions);
         edges = Arrays.copyOf(other.edges, other.edges.length);
         storedMap = new SphereMap(other.storedMap);
+        lonOffsets = Arrays.copyOf(other.lonOffsets, other.lonOffsets.length);
+        rowSin = Arrays.copyOf(other.rowSin, other.rowSin.length);
+        rowCos = Arrays.copyOf(other.rowCos, other.rowCos.length);
+        rowY = Arrays.copyOf(other.rowY, other.rowY.length);
+        spans = Arrays.copyOf(other.spans, other.spans.length);
+        projectedStartX = other.projectedStartX;
+        projectedStartY = other.projectedStartY;
+        projectedWidth = other.projectedWidth;
+        projectedHeight = other.projectedHeight;
     }
 
 
@@ -166,25 +196,30 @@ public class RotatingSpaceMap extends WorldMapGenerator {
         return Math.max(0, Math.min(y, height - 1));
     }
 
-    @Override
-    public void setCenterLongitude(double centerLongitude) {
-        super.setCenterLongitude(centerLongitude);
-        int ax, ay;
+    /**
+     * Fills the lookup tables that {@link #setCenterLongitude(double)} uses. For a given size and area of the map in
+     * use, which cells are on the disc, each cell's longitude relative to the center, and each row's latitude never
+     * change as the globe rotates, so all of the asin, atan2, cos and sqrt calls happen here instead of on every
+     * rotation. Cells off the disc are marked as space here, once, and skipped by later rotations.
+     */
+    protected void buildProjection() {
         double
-                ps, pc,
                 qs, qc,
-                h, yPos, xPos, iyPos, ixPos,
+                yPos, xPos, iyPos, ixPos,
                 i_uw = usedWidth / (double)width,
                 i_uh = usedHeight / (double)height,
-                lon, lat, rho,
-                i_pi = 1.0 / Math.PI,
+                lat, rho,
                 rx = width * 0.5, irx = i_uw / rx,
                 ry = height * 0.5, iry = i_uh / ry;
 
+        for (int x = 0; x < width; x++) {
+            spans[x << 1] = height;
+            spans[x << 1 | 1] = -2;
+        }
         yPos = startY - ry;
         iyPos = yPos / ry;
         for (int y = 0; y < height; y++, yPos += i_uh, iyPos += iry) {
-            boolean inSpace = true;
+            int start = -1, end = -2;
             xPos = startX - rx;
             ixPos = xPos / rx;
             lat = NumberTools.asin(iyPos);
@@ -192,36 +227,66 @@ public class RotatingSpaceMap extends WorldMapGenerator {
                 rho = (ixPos * ixPos + iyPos * iyPos);
                 if(rho > 1.0) {
                     heightCodeData[x][y] = 1000;
-                    inSpace = true;
                     continue;
                 }
-                if(inSpace)
-                {
-                    inSpace = false;
-                    edges[y << 1] = x;
-                }
-                edges[y << 1 | 1] = x;
-//                    th = NumberTools.asin(rho); // c
-                lon = removeExcess((centerLongitude + (NumberTools.atan2(ixPos, NumberTools.cos(NumberTools.asin(Math.sqrt(rho)))))) * 0.5);
-//                    lon = removeExcess((centerLongitude + (NumberTools.atan2(ixPos * rho, rho * NumberTools.cos(th)))) * 0.5);
-//                lon = removeExcess(centerLongitude + NumberTools.asin(ixPos));
-                
-                qs = lat * 0.6366197723675814;
-                qc = qs + 1.0;
-                int sf = (qs >= 0.0 ? (int) qs : (int) qs - 1) & -2;
-                int cf = (qc >= 0.0 ? (int) qc : (int) qc - 1) & -2;
-                qs -= sf;
-                qc -= cf;
-                qs *= 2.0 - qs;
-                qc *= 2.0 - qc;
-                qs = qs * (-0.775 - 0.225 * qs) * ((sf & 2) - 1);
-                qc = qc * (-0.775 - 0.225 * qc) * ((cf & 2) - 1);
+                if(start < 0)
+                    start = x;
+                end = x;
+                if(y < spans[x << 1]) spans[x << 1] = y;
+                spans[x << 1 | 1] = y;
+                lonOffsets[x * height + y] = NumberTools.atan2(ixPos, NumberTools.cos(NumberTools.asin(Math.sqrt(rho))));
+            }
+            if(start >= 0)
+            {
+                edges[y << 1] = start;
+                edges[y << 1 | 1] = end;
+            }
 
+            qs = lat * 0.6366197723675814;
+            qc = qs + 1.0;
+            int sf = (qs >= 0.0 ? (int) qs : (int) qs - 1) & -2;
+            int cf = (qc >= 0.0 ? (int) qc : (int) qc - 1) & -2;
+            qs -= sf;
+            qc -= cf;
+            qs *= 2.0 - qs;
+            qc *= 2.0 - qc;
+            qs = qs * (-0.775 - 0.225 * qs) * ((sf & 2) - 1);
+            qc = qc * (-0.775 - 0.225 * qc) * ((cf & 2) - 1);
+            rowSin[y] = qs;
+            rowCos[y] = qc;
+            rowY[y] = (int)((qs + 1.0) * ry);
+        }
+        projectedStartX = startX;
+        projectedStartY = startY;
+        projectedWidth = usedWidth;
+        projectedHeight = usedHeight;
+    }
+
+    @Override
+    public void setCenterLongitude(double centerLongitude) {
+        super.setCenterLongitude(centerLongitude);
+        if(projectedStartX != startX || projectedStartY != startY
+                || projectedWidth != usedWidth || projectedHeight != usedHeight)
+            buildProjection();
+        int ax, ay, start, end;
+        double
+                ps, pc,
+                qs, qc,
+                h, lon,
+                i_pi = 1.0 / Math.PI;
+
+        for (int x = 0; x < width; x++) {
+            start = spans[x << 1];
+            end = spans[x << 1 | 1];
+            for (int y = start, i = x * height + start; y <= end; y++, i++) {
+                qs = rowSin[y];
+                qc = rowCos[y];
+                lon = removeExcess((centerLongitude + lonOffsets[i]) * 0.5);
 
                 ps = lon * 0.6366197723675814;
                 pc = ps + 1.0;
-                sf = (ps >= 0.0 ? (int) ps : (int) ps - 1) & -2;
-                cf = (pc >= 0.0 ? (int) pc : (int) pc - 1) & -2;
+                int sf = (ps >= 0.0 ? (int) ps : (int) ps - 1) & -2;
+                int cf = (pc >= 0.0 ? (int) pc : (int) pc - 1) & -2;
                 ps -= sf;
                 pc -= cf;
                 ps *= 2.0 - ps;
@@ -230,12 +295,7 @@ public class RotatingSpaceMap extends WorldMapGenerator {
                 pc = pc * (-0.775 - 0.225 * pc) * ((cf & 2) - 1);
 
                 ax = (int)((lon * i_pi + 1.0) * width);
-                ay = (int)((qs + 1.0) * ry);
-                
-//                    // Hammer projection, not an inverse projection like we usually use
-//                    z = 1.0 / Math.sqrt(1 + qc * NumberTools.cos(lon * 0.5));
-//                    ax = (int)((qc * NumberTools.sin(lon * 0.5) * z + 1.0) * width);
-//                    ay = (int)((qs * z + 1.0) * height * 0.5);
+                ay = rowY[y];
 
                 if(ax >= storedMap.width || ax < 0 || ay >= storedMap.height || ay < 0)
                 {
@@ -260,10 +320,9 @@ public class RotatingSpaceMap extends WorldMapGenerator {
                 minHeightActual = Math.min(minHeightActual, h);
                 maxHeightActual = Math.max(maxHeightActual, h);
             }
-            minHeightActual = Math.min(minHeightActual, minHeight);
-            maxHeightActual = Math.max(maxHeightActual, maxHeight);
         }
-
+        minHeightActual = Math.min(minHeightActual, minHeight);
+        maxHeightActual = Math.max(maxHeightActual, maxHeight);
     }
 
     protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
@@ -0,0 +1,334 @@
+package jarshrink;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Reads which classes a class-file depends on straight from its bytes, instead of asking jdeps. <br>
+ * Dependencies are taken from the constant-pool's class-entries, from every descriptor (fields, methods,
+ * method-references, local variables) and generic signature, and from the types used in annotations that are kept
+ * at runtime. <br>
+ * String-constants that could be the name of a class are gathered as well, so that the ones naming a class inside the
+ * jar can count too, and classes only loaded through something like <code>Class.forName("some.Class")</code> are kept.
+ */
+public class ClassScanner {
+
+
+	private static final int CAFEBABE = 0xCAFEBABE;
+
+
+	/**
+	 * Scans a class-file and adds the names of the classes it depends on to <code>out</code>,
+	 * leaving out the class itself and anything in <code>java.*</code> or <code>javax.*</code>.
+	 *
+	 * @param bytes		The contents of the class-file.
+	 * @param out		Receives the names of the dependencies, such as <code>some.pkg.Outer$Inner</code>.
+	 * @param strings	Receives every String-constant that could be the name of a class, with '/' turned into '.'.
+	 *
+	 * @return The name of the scanned class.
+	 */
+	public static String scan(byte[] bytes, Set<String> out, Set<String> strings) throws IOException {
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		if (in.readInt() != CAFEBABE) { throw new IOException("Not a class-file"); }
+		in.skipBytes(4);
+
+		int count = in.readUnsignedShort();
+
+		String[] utf8 = new String[count];
+		byte[] tags = new byte[count];
+		int[] refs = new int[count];
+
+		for (int i = 1; i < count; i++) {
+
+			int tag = in.readUnsignedByte();
+			tags[i] = (byte)tag;
+
+			switch (tag) {
+
+				case 1: utf8[i] = in.readUTF(); break; // Utf8
+				case 7: case 8: case 16: refs[i] = in.readUnsignedShort(); break; // Class, String, MethodType
+				case 19: case 20: in.skipBytes(2); break; // Module, Package
+				case 3: case 4: in.skipBytes(4); break; // Integer, Float
+				case 5: case 6: in.skipBytes(8); i++; break; // Long and Double take up two entries
+				case 9: case 10: case 11: case 17: case 18: in.skipBytes(4); break; // references, (Invoke)Dynamic
+				case 12: in.skipBytes(2); refs[i] = in.readUnsignedShort(); break; // NameAndType, keeps the descriptor
+				case 15: in.skipBytes(3); break; // MethodHandle
+				default: throw new IOException("Unknown constant-pool tag "+tag+" at entry "+i);
+			}
+		}
+
+		for (int i = 1; i < count; i++) {
+
+			if (tags[i] == 7) {
+
+				addClass(utf8[refs[i]], out);
+
+			} else if (tags[i] == 12 || tags[i] == 16) {
+
+				addSignature(utf8[refs[i]], out);
+
+			} else if (tags[i] == 8) {
+
+				String s = utf8[refs[i]];
+				if (couldBeClassName(s)) { strings.add(s.replace('/', '.')); }
+			}
+		}
+
+		in.skipBytes(2);
+		String name = utf8[refs[in.readUnsignedShort()]].replace('/', '.');
+
+		in.skipBytes(2);
+		in.skipBytes(in.readUnsignedShort() * 2); // interfaces are class-entries
+
+		for (int members = 0; members < 2; members++) { // fields, then methods
+
+			for (int i = 0, n = in.readUnsignedShort(); i < n; i++) {
+
+				in.skipBytes(4);
+				addSignature(utf8[in.readUnsignedShort()], out);
+				readAttributes(in, utf8, out);
+			}
+		}
+
+		readAttributes(in, utf8, out);
+
+		out.remove(name);
+
+		return name;
+	}
+
+
+	private static void readAttributes(DataInputStream in, String[] utf8, Set<String> out) throws IOException {
+
+		for (int i = 0, n = in.readUnsignedShort(); i < n; i++) {
+
+			String attribute = utf8[in.readUnsignedShort()];
+			int length = in.readInt();
+
+			if (attribute.equals("Signature")) {
+
+				addSignature(utf8[in.readUnsignedShort()], out);
+
+			} else if (attribute.equals("RuntimeVisibleAnnotations")) { // invisible ones aren't needed to run
+
+				readAnnotations(in, utf8, out);
+
+			} else if (attribute.equals("RuntimeVisibleParameterAnnotations")) {
+
+				for (int p = 0, params = in.readUnsignedByte(); p < params; p++) {
+
+					readAnnotations(in, utf8, out);
+				}
+
+			} else if (attribute.equals("AnnotationDefault")) {
+
+				readElementValue(in, utf8, out);
+
+			} else if (attribute.equals("Code")) {
+
+				in.skipBytes(4);
+				in.skipBytes(in.readInt());
+				in.skipBytes(in.readUnsignedShort() * 8); // exception-table, its types are class-entries
+				readAttributes(in, utf8, out);
+
+			} else if (attribute.equals("LocalVariableTable") || attribute.equals("LocalVariableTypeTable")) {
+
+				for (int v = 0, vars = in.readUnsignedShort(); v < vars; v++) {
+
+					in.skipBytes(6);
+					addSignature(utf8[in.readUnsignedShort()], out);
+					in.skipBytes(2);
+				}
+
+			} else if (attribute.equals("Record")) {
+
+				for (int c = 0, components = in.readUnsignedShort(); c < components; c++) {
+
+					in.skipBytes(2);
+					addSignature(utf8[in.readUnsignedShort()], out);
+					readAttributes(in, utf8, out);
+				}
+
+			} else {
+
+				in.skipBytes(length);
+			}
+		}
+	}
+
+	private static void readAnnotations(DataInputStream in, String[] utf8, Set<String> out) throws IOException {
+
+		for (int i = 0, n = in.readUnsignedShort(); i < n; i++) {
+
+			readAnnotation(in, utf8, out);
+		}
+	}
+
+	private static void readAnnotation(DataInputStream in, String[] utf8, Set<String> out) throws IOException {
+
+		addSignature(utf8[in.readUnsignedShort()], out);
+
+		for (int i = 0, n = in.readUnsignedShort(); i < n; i++) {
+
+			in.skipBytes(2);
+			readElementValue(in, utf8, out);
+		}
+	}
+
+	private static void readElementValue(DataInputStream in, String[] utf8, Set<String> out) throws IOException {
+
+		int tag = in.readUnsignedByte();
+
+		switch (tag) {
+
+			case 'e': addSignature(utf8[in.readUnsignedShort()], out); in.skipBytes(2); break;
+			case 'c': addSignature(utf8[in.readUnsignedShort()], out); break;
+			case '@': readAnnotation(in, utf8, out); break;
+			case '[': for (int i = 0, n = in.readUnsignedShort(); i < n; i++) { readElementValue(in, utf8, out); } break;
+			default: in.skipBytes(2); break;
+		}
+	}
+
+
+	private static boolean couldBeClassName(String s) {
+
+		if (s.isEmpty() || !Character.isJavaIdentifierStart(s.charAt(0))) { return false; }
+
+		for (int i = 1, len = s.length(); i < len; i++) {
+			char c = s.charAt(i);
+
+			if (c == '.' || c == '/') {
+
+				if (i+1 == len || !Character.isJavaIdentifierStart(s.charAt(i+1))) { return false; }
+
+			} else if (!Character.isJavaIdentifierPart(c)) { return false; }
+		}
+
+		return true;
+	}
+
+	private static void addClass(String internalName, Set<String> out) {
+
+		if (internalName.startsWith("[")) { addSignature(internalName, out); return; }
+
+		add(internalName, out);
+	}
+
+	private static void add(String internalName, Set<String> out) {
+
+		String name = internalName.replace('/', '.');
+
+		if (name.startsWith("java.") || name.startsWith("javax.")) { return; }
+
+		out.add(name);
+	}
+
+	/**
+	 * Adds every class named in a descriptor or a generic signature, of a class, a field or a method.
+	 */
+	private static void addSignature(String signature, Set<String> out) {
+
+		try {
+
+			int i = 0, len = signature.length();
+
+			if (signature.charAt(0) == '<') { i = readTypeParameters(signature, i, out); }
+
+			if (signature.charAt(i) == '(') {
+
+				for (i++; signature.charAt(i) != ')';) { i = readType(signature, i, out); }
+
+				i = readType(signature, i+1, out);
+
+				while (i < len && signature.charAt(i) == '^') { i = readType(signature, i+1, out); }
+
+			} else {
+
+				while (i < len) { i = readType(signature, i, out); }
+			}
+
+		} catch (IndexOutOfBoundsException e) { } // not a signature after all, what was found so far is kept
+	}
+
+	/**
+	 * Reads <code>&lt;T:Lsome/Bound;U::Lsome/Interface;&gt;</code> and returns the index after it.
+	 */
+	private static int readTypeParameters(String signature, int i, Set<String> out) {
+
+		for (i++; signature.charAt(i) != '>';) {
+
+			i = signature.indexOf(':', i);
+
+			while (signature.charAt(i) == ':') {
+
+				i++;
+
+				if (signature.charAt(i) != ':') { i = readType(signature, i, out); }
+			}
+		}
+
+		return i+1;
+	}
+
+	/**
+	 * Reads one type and returns the index after it.
+	 */
+	private static int readType(String signature, int i, Set<String> out) {
+
+		char c = signature.charAt(i);
+
+		if (c == '[') { return readType(signature, i+1, out); }
+		if (c == 'T') { return after(signature, ';', i); }
+		if (c != 'L') { return i+1; }
+
+		String outer = null;
+		int start = i+1;
+
+		for (i = start;; i++) {
+			c = signature.charAt(i);
+
+			if (c != ';' && c != '<' && c != '.') { continue; }
+
+			// in Lsome/Outer<TT;>.Inner; the inner class is written after a dot
+			String name = (outer == null) ? signature.substring(start, i) : outer+"$"+signature.substring(start, i);
+
+			if (start < i) { add(name, out); }
+
+			if (c == '<') { i = readTypeArguments(signature, i, out); c = signature.charAt(i); }
+			if (c == ';') { return i+1; }
+
+			outer = name;
+			start = i+1;
+		}
+	}
+
+	private static int after(String signature, char c, int from) {
+
+		int i = signature.indexOf(c, from);
+		if (i < 0) { throw new StringIndexOutOfBoundsException("No '"+c+"' after "+from+" in "+signature); }
+
+		return i+1;
+	}
+
+	/**
+	 * Reads <code>&lt;*+Lsome/Type;&gt;</code> and returns the index of the character after it.
+	 */
+	private static int readTypeArguments(String signature, int i, Set<String> out) {
+
+		for (i++; signature.charAt(i) != '>';) {
+			char c = signature.charAt(i);
+
+			if (c == '*') { i++; continue; }
+			if (c == '+' || c == '-') { i++; }
+
+			i = readType(signature, i, out);
+		}
+
+		return i+1;
+	}
+
+}
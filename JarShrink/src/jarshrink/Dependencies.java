@@ -1,16 +1,25 @@
 package jarshrink;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
-import visionCore.util.Lists;
-import visionCore.util.Zipper;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * @author Deconimus
@@ -19,77 +28,173 @@ public class Dependencies {
 	
 	
 	/**
-	 * Gathers information on dependencies of all present classes in the specified jar.
+	 * Gathers information on dependencies of all present classes in the specified jar,
+	 * reading the class-files on as many threads as there are processors.
 	 * @author Deconimus
 	 */
-	public static Map<String, String[]> buildDependencyMap(String jdeps, File jar) {
+	public static Map<String, String[]> buildDependencyMap(File jar) {
 		
-		List<String> lines = new ArrayList<String>(32);
+		return buildDependencyMap(jar, null);
+	}
+	
+	/**
+	 * Gathers information on dependencies of all present classes in the specified jar,
+	 * reading the class-files on as many threads as there are processors.
+	 * 
+	 * @param jar		The jar to read the class-files of.
+	 * @param cache		A {@link DependencyCache} file to reuse the results of earlier runs from and save this one's to,
+	 * 					or null to scan every class-file without saving anything.
+	 */
+	public static Map<String, String[]> buildDependencyMap(File jar, File cache) {
 		
-		try {
+		return buildDependencyMap(jar, cache, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Gathers information on dependencies of all present classes in the specified jar. <br>
+	 * Each class maps to the classes it depends on, leaving out those in <code>java.*</code> and <code>javax.*</code>,
+	 * the same way <code>jdeps -verbose:class</code> reported them. See {@link ClassScanner} for what counts. <br>
+	 * Only class-files that aren't in the cache with the same CRC-32 and size get scanned.
+	 * 
+	 * @param jar		The jar to read the class-files of.
+	 * @param cache		A {@link DependencyCache} file to reuse the results of earlier runs from and save this one's to,
+	 * 					or null to scan every class-file without saving anything.
+	 * @param threads	How many class-files to read at once.
+	 */
+	public static Map<String, String[]> buildDependencyMap(File jar, File cache, int threads) {
 		
-			ProcessBuilder pb = new ProcessBuilder(jdeps, "-verbose:class", "-filter:none", "\""+jar.getAbsolutePath()+"\"");
-			Process p = pb.start();
-			
-			BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
-			
-			for (String line = "", cur = ""; (line = reader.readLine()) != null;) {
-				
-				lines.add(line.trim());
-			}
-			
-		} catch (Exception e) { e.printStackTrace(); }
+		DependencyCache previous = (cache != null) ? DependencyCache.read(cache) : new DependencyCache();
+		final DependencyCache current = new DependencyCache();
 		
-		Map<String, String[]> map = new HashMap<String, String[]>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		ZipFile zip = null;
 		
-		String lastKey = null;
-		List<String> buffer = new ArrayList<String>();
+		Set<String> known = new HashSet<String>();
+		boolean complete = false;
 		
-		for (String line : lines) {
+		try {
 			
-			if (line.contains(" java.") || line.contains(" javax.")) { continue; }
+			zip = new ZipFile(jar);
 			
-			int ind = line.indexOf("->");
-			int parInd = line.indexOf(" (");
+			List<ZipEntry> changed = new ArrayList<ZipEntry>();
 			
-			if (ind < 0 && parInd >= 0) {
+			for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements();) {
+				ZipEntry ze = it.nextElement();
 				
-				if (lastKey != null && buffer != null) {
-					
-					map.put(lastKey, buffer.toArray(new String[buffer.size()]));
-				}
+				String name = ze.getName();
+				
+				// META-INF holds module-info and the other versions of classes in multi-release jars
+				if (ze.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/")) { continue; }
 				
-				lastKey = line.substring(0, parInd).trim();
-				buffer.clear();
+				known.add(name.substring(0, name.length()-6).replace('/', '.'));
 				
-			} else if (ind == 0) {
+				DependencyCache.Entry cached = previous.get(name, ze.getCrc(), ze.getSize());
 				
-				int start = -1, end = -1;
+				if (cached != null) { current.put(cached); }
+				else { changed.add(ze); }
+			}
+			
+			List<Future<?>> futures = new ArrayList<Future<?>>(changed.size());
+			
+			final ZipFile source = zip;
+			
+			for (final ZipEntry ze : changed) {
 				
-				for (int i = ind+3, len = line.length(); i < len; i++) {
-					char c = line.charAt(i);
+				futures.add(executor.submit(new Callable<Void>() {
 					
-					if (c != ' ' && c != '\t' && c != '\n') {
+					@Override
+					public Void call() throws IOException {
 						
-						if (start < 0) { start = i; }
+						Set<String> deps = new LinkedHashSet<String>(), strings = new LinkedHashSet<String>();
+						String name = ClassScanner.scan(readEntry(source, ze), deps, strings);
 						
-					} else if (start > -1) { end = i; break; }
-				}
+						current.put(new DependencyCache.Entry(ze.getName(), ze.getCrc(), ze.getSize(), name,
+								deps.toArray(new String[deps.size()]), strings.toArray(new String[strings.size()])));
+						
+						return null;
+					}
+				}));
+			}
+			
+			complete = true;
+			
+			for (int i = 0; i < futures.size(); i++) {
 				
-				if (end == -1) { end = line.length(); }
+				try { futures.get(i).get(); }
+				catch (ExecutionException e) {
+					
+					System.err.println("Couldn't read "+changed.get(i).getName()+": "+e.getCause());
+				}
+			}
+			
+		} catch (Exception e) { e.printStackTrace(); }
+		finally {
+			
+			executor.shutdownNow();
+			try { if (zip != null) { zip.close(); } } catch (IOException e) {}
+		}
+		
+		Map<String, String[]> map = new HashMap<String, String[]>(current.size() * 4 / 3 + 1);
+		
+		for (DependencyCache.Entry e : current.getEntries()) {
+			
+			Set<String> deps = new LinkedHashSet<String>();
+			Collections.addAll(deps, e.dependencies);
+			
+			for (String s : e.strings) {
 				
-				buffer.add(line.substring(start, end));
+				if (known.contains(s)) { deps.add(s); }
 			}
+			
+			deps.remove(e.className);
+			
+			map.put(e.className, deps.toArray(new String[deps.size()]));
 		}
 		
-		if (lastKey != null && !buffer.isEmpty()) {
+		// a jar that couldn't be read fully leaves the old cache alone
+		if (cache != null && complete) {
 			
-			map.put(lastKey, buffer.toArray(new String[buffer.size()]));
+			try { current.write(cache); }
+			catch (IOException e) { System.err.println("Couldn't write dependency-cache "+cache+": "+e); }
 		}
 		
 		return map;
 	}
 	
+	private static byte[] readEntry(ZipFile zip, ZipEntry ze) throws IOException {
+		
+		InputStream in = zip.getInputStream(ze);
+		
+		try {
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream((ze.getSize() > 0) ? (int)ze.getSize() : 8192);
+			byte[] buffer = new byte[8192];
+			
+			for (int len; (len = in.read(buffer)) > 0;) {
+				
+				out.write(buffer, 0, len);
+			}
+			
+			return out.toByteArray();
+			
+		} finally { in.close(); }
+	}
+	
+	
+	/**
+	 * Whether the entry of a jar with the given name is a class-file that can be left out.
+	 * Classes in <code>org.eclipse.jdt.internal</code> are always kept, the same as in removeRedundantClasses().
+	 */
+	public static boolean isRedundant(String entryName, Set<String> dependencies) {
+		
+		if (!entryName.toLowerCase().endsWith(".class")) { return false; }
+		if (entryName.regionMatches(true, 0, "org/eclipse/jdt/internal/", 0, 25)) { return false; }
+		
+		String className = entryName.substring(0, entryName.lastIndexOf('.')).replace('/', '.').trim();
+		
+		return !dependencies.contains(className);
+	}
+	
 	
 	public static void removeRedundantClasses(File dir, Set<String> dependencies) {
 		
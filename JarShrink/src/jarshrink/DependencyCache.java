@@ -0,0 +1,163 @@
+package jarshrink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What {@link ClassScanner} found in each class-file of a jar, saved between runs so that class-files which haven't
+ * changed don't need to be scanned again. <br>
+ * Entries are looked up by their name in the jar together with the CRC-32 and size the jar's central directory lists
+ * for them, so a class-file that changed in any way misses the cache. <br>
+ * Each entry keeps the String-constants that could name a class, not just the ones that named a class in the jar it
+ * was scanned from, so classes being added to or removed from the jar can't leave stale dependencies behind.
+ */
+public class DependencyCache {
+
+
+	private static final int MAGIC = 0x4A534443, VERSION = 1; // "JSDC"
+
+
+	public static final class Entry {
+
+		public final String entryName, className;
+		public final long crc, size;
+		public final String[] dependencies, strings;
+
+		public Entry(String entryName, long crc, long size, String className, String[] dependencies, String[] strings) {
+
+			this.entryName = entryName;
+			this.crc = crc;
+			this.size = size;
+			this.className = className;
+			this.dependencies = dependencies;
+			this.strings = strings;
+		}
+	}
+
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+
+	/**
+	 * Gets what was found in the class-file with the given name, if the cache has it with the same CRC-32 and size.
+	 */
+	public Entry get(String entryName, long crc, long size) {
+
+		Entry e = entries.get(entryName);
+
+		return (e != null && e.crc == crc && e.size == size) ? e : null;
+	}
+
+	/**
+	 * Adds or replaces an entry; can be called from several threads at once.
+	 */
+	public void put(Entry e) { entries.put(e.entryName, e); }
+
+	public Collection<Entry> getEntries() { return entries.values(); }
+
+	public int size() { return entries.size(); }
+
+
+	/**
+	 * Reads a cache written by {@link #write(File)}. A missing file gives an empty cache, and so does one that can't be
+	 * read, after printing why; either way every class-file gets scanned.
+	 */
+	public static DependencyCache read(File file) {
+
+		DependencyCache cache = new DependencyCache();
+
+		if (!file.exists()) { return cache; }
+
+		DataInputStream in = null;
+
+		try {
+
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) { throw new IOException("Not a dependency-cache of this version"); }
+
+			for (int i = 0, n = in.readInt(); i < n; i++) {
+
+				String entryName = in.readUTF();
+				long crc = in.readLong(), size = in.readLong();
+				String className = in.readUTF();
+
+				cache.put(new Entry(entryName, crc, size, className, readStrings(in), readStrings(in)));
+			}
+
+		} catch (IOException e) {
+
+			System.err.println("Ignoring dependency-cache "+file+": "+e);
+			cache.entries.clear();
+
+		} finally {
+
+			try { if (in != null) { in.close(); } } catch (IOException e) {}
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Writes the cache to a temporary file next to <code>file</code>, then moves it over <code>file</code>,
+	 * so a run that stops partway through leaves the last complete cache in place.
+	 */
+	public void write(File file) throws IOException {
+
+		File tmp = new File(file.getAbsolutePath()+".tmp");
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+
+		try {
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+
+			for (Entry e : entries.values()) {
+
+				out.writeUTF(e.entryName);
+				out.writeLong(e.crc);
+				out.writeLong(e.size);
+				out.writeUTF(e.className);
+
+				writeStrings(out, e.dependencies);
+				writeStrings(out, e.strings);
+			}
+
+		} finally { out.close(); }
+
+		java.nio.file.Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+
+		int n = in.readInt();
+		if (n < 0) { throw new IOException("Negative count"); }
+
+		String[] strings = new String[n];
+
+		for (int i = 0; i < n; i++) { strings[i] = in.readUTF(); }
+
+		return strings;
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+
+		out.writeInt(strings.length);
+
+		for (String s : strings) { out.writeUTF(s); }
+	}
+
+}
@@ -0,0 +1,337 @@
+package jarshrink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Copies the entries of a jar that are still needed straight into a new jar, without extracting anything. <br>
+ * Entries are copied as they are stored, still compressed, so nothing gets inflated or deflated again;
+ * the new jar is written by hand from the central directory of the old one. <br>
+ * Jars this can't read that way (Zip64, encrypted entries, or anything else unexpected) are copied through
+ * {@link ZipFile} and {@link ZipOutputStream} instead, which still needs no temporary files, but re-deflates.
+ */
+public class JarCopier {
+
+
+	private static final Charset UTF8 = Charset.forName("UTF8");
+
+	private static final int LOCAL = 0x04034b50, CENTRAL = 0x02014b50, END = 0x06054b50;
+
+
+	/**
+	 * Copies every entry of <code>jar</code> into <code>out</code>, except class-files that aren't in
+	 * <code>dependencies</code> and directories that would be left empty.
+	 *
+	 * @param jar			The jar to copy entries from.
+	 * @param out			The new jar, which is replaced if it exists.
+	 * @param dependencies	The names of the classes to keep, such as <code>some.pkg.Outer$Inner</code>.
+	 */
+	public static void copy(File jar, File out, Set<String> dependencies) throws IOException {
+
+		if (out.exists()) { out.delete(); }
+
+		List<Entry> entries = readCentralDirectory(jar);
+
+		if (entries != null) {
+
+			copyRaw(jar, out, keep(entries, dependencies));
+
+		} else {
+
+			copyInflated(jar, out, dependencies);
+		}
+	}
+
+
+	private static final class Entry {
+
+		private String name;
+		private int versionNeeded, flags, method, time, date, crc, compressedSize, size, externalAttributes, offset;
+		private byte[] rawName, extra, comment;
+	}
+
+
+	private static List<Entry> keep(List<Entry> entries, Set<String> dependencies) {
+
+		List<Entry> kept = new ArrayList<Entry>(entries.size());
+		Set<String> usedDirs = new HashSet<String>();
+
+		for (Entry e : entries) {
+
+			if (e.name.endsWith("/") || Dependencies.isRedundant(e.name, dependencies)) { continue; }
+
+			for (int i = e.name.indexOf('/'); i >= 0; i = e.name.indexOf('/', i+1)) {
+
+				usedDirs.add(e.name.substring(0, i+1));
+			}
+		}
+
+		for (Entry e : entries) {
+
+			if (e.name.endsWith("/") ? usedDirs.contains(e.name) : !Dependencies.isRedundant(e.name, dependencies)) {
+
+				kept.add(e);
+			}
+		}
+
+		return kept;
+	}
+
+
+	/**
+	 * Reads the central directory, or returns null if the jar isn't something copyRaw() can handle.
+	 */
+	private static List<Entry> readCentralDirectory(File jar) throws IOException {
+
+		RandomAccessFile raf = new RandomAccessFile(jar, "r");
+
+		try {
+
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+
+			// the end record is 22 bytes, followed by a comment of up to 65535 bytes
+			int tail = (int)Math.min(length, 22 + 0xFFFF);
+			ByteBuffer buf = ByteBuffer.allocate(tail).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, buf, length - tail);
+
+			int end = -1;
+
+			for (int i = tail - 22; i >= 0; i--) {
+
+				if (buf.getInt(i) == END && i + 22 + (buf.getShort(i + 20) & 0xFFFF) == tail) { end = i; break; }
+			}
+
+			if (end < 0) { return null; }
+
+			int count = buf.getShort(end + 10) & 0xFFFF;
+			long size = buf.getInt(end + 12) & 0xFFFFFFFFL, start = buf.getInt(end + 16) & 0xFFFFFFFFL;
+
+			// Zip64, or a jar with something prepended to it
+			if (count == 0xFFFF || start == 0xFFFFFFFFL || start + size != length - tail + end) { return null; }
+
+			buf = ByteBuffer.allocate((int)size).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, buf, start);
+
+			List<Entry> entries = new ArrayList<Entry>(count);
+
+			for (int i = 0, at = 0; i < count; i++) {
+
+				if (buf.getInt(at) != CENTRAL) { return null; }
+
+				Entry e = new Entry();
+
+				e.versionNeeded = buf.getShort(at + 6) & 0xFFFF;
+				e.flags = buf.getShort(at + 8) & 0xFFFF;
+				e.method = buf.getShort(at + 10) & 0xFFFF;
+				e.time = buf.getShort(at + 12) & 0xFFFF;
+				e.date = buf.getShort(at + 14) & 0xFFFF;
+				e.crc = buf.getInt(at + 16);
+				e.compressedSize = buf.getInt(at + 20);
+				e.size = buf.getInt(at + 24);
+				e.externalAttributes = buf.getInt(at + 38);
+				e.offset = buf.getInt(at + 42);
+
+				if ((e.flags & 1) != 0 || e.compressedSize == -1 || e.size == -1 || e.offset == -1) { return null; }
+
+				int nameLength = buf.getShort(at + 28) & 0xFFFF, extraLength = buf.getShort(at + 30) & 0xFFFF,
+					commentLength = buf.getShort(at + 32) & 0xFFFF;
+
+				e.rawName = bytes(buf, at + 46, nameLength);
+				e.extra = bytes(buf, at + 46 + nameLength, extraLength);
+				e.comment = bytes(buf, at + 46 + nameLength + extraLength, commentLength);
+				e.name = new String(e.rawName, UTF8);
+
+				entries.add(e);
+
+				at += 46 + nameLength + extraLength + commentLength;
+			}
+
+			return entries;
+
+		} catch (IndexOutOfBoundsException e) {
+
+			return null;
+
+		} finally { raf.close(); }
+	}
+
+	private static void copyRaw(File jar, File out, List<Entry> entries) throws IOException {
+
+		RandomAccessFile source = new RandomAccessFile(jar, "r");
+		FileOutputStream target = new FileOutputStream(out);
+
+		try {
+
+			FileChannel in = source.getChannel(), outChannel = target.getChannel();
+
+			ByteBuffer local = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+			int[] offsets = new int[entries.size()];
+
+			for (int i = 0; i < entries.size(); i++) {
+				Entry e = entries.get(i);
+
+				local.clear();
+				readFully(in, local, e.offset & 0xFFFFFFFFL);
+
+				if (local.getInt(0) != LOCAL) { throw new IOException("Bad local header for "+e.name); }
+
+				long data = (e.offset & 0xFFFFFFFFL) + 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+
+				offsets[i] = (int)outChannel.position();
+
+				// sizes and CRC are known up front, so the copy never needs a data-descriptor after its data
+				ByteBuffer header = ByteBuffer.allocate(30 + e.rawName.length + e.extra.length).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(LOCAL).putShort((short)e.versionNeeded).putShort((short)(e.flags & ~8)).putShort((short)e.method)
+					  .putShort((short)e.time).putShort((short)e.date).putInt(e.crc).putInt(e.compressedSize).putInt(e.size)
+					  .putShort((short)e.rawName.length).putShort((short)e.extra.length).put(e.rawName).put(e.extra);
+
+				header.flip();
+				writeFully(outChannel, header);
+
+				for (long at = data, left = e.compressedSize & 0xFFFFFFFFL; left > 0;) {
+
+					long n = in.transferTo(at, left, outChannel);
+					if (n <= 0) { throw new IOException("Unexpected end of "+jar+" in "+e.name); }
+
+					at += n;
+					left -= n;
+				}
+			}
+
+			long start = outChannel.position();
+
+			if (start + 22 > 0xFFFFFFFFL) { throw new IOException("The new jar would need Zip64"); }
+
+			for (int i = 0; i < entries.size(); i++) {
+				Entry e = entries.get(i);
+
+				ByteBuffer header = ByteBuffer.allocate(46 + e.rawName.length + e.extra.length + e.comment.length)
+											  .order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(CENTRAL).putShort((short)20).putShort((short)e.versionNeeded).putShort((short)(e.flags & ~8))
+					  .putShort((short)e.method).putShort((short)e.time).putShort((short)e.date).putInt(e.crc)
+					  .putInt(e.compressedSize).putInt(e.size).putShort((short)e.rawName.length)
+					  .putShort((short)e.extra.length).putShort((short)e.comment.length).putShort((short)0)
+					  .putShort((short)0).putInt(e.externalAttributes).putInt(offsets[i])
+					  .put(e.rawName).put(e.extra).put(e.comment);
+
+				header.flip();
+				writeFully(outChannel, header);
+			}
+
+			long size = outChannel.position() - start;
+
+			ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+			end.putInt(END).putShort((short)0).putShort((short)0).putShort((short)entries.size())
+			   .putShort((short)entries.size()).putInt((int)size).putInt((int)start).putShort((short)0);
+
+			end.flip();
+			writeFully(outChannel, end);
+
+		} finally {
+
+			source.close();
+			target.close();
+		}
+	}
+
+	private static void copyInflated(File jar, File out, Set<String> dependencies) throws IOException {
+
+		ZipFile zip = new ZipFile(jar);
+		ZipOutputStream zout = null;
+
+		try {
+
+			List<ZipEntry> entries = new ArrayList<ZipEntry>(zip.size());
+			Set<String> usedDirs = new HashSet<String>();
+
+			for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements();) {
+				ZipEntry ze = it.nextElement();
+
+				entries.add(ze);
+
+				String name = ze.getName();
+				if (ze.isDirectory() || Dependencies.isRedundant(name, dependencies)) { continue; }
+
+				for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i+1)) { usedDirs.add(name.substring(0, i+1)); }
+			}
+
+			zout = new ZipOutputStream(new FileOutputStream(out));
+			byte[] buffer = new byte[8192];
+
+			for (ZipEntry ze : entries) {
+
+				String name = ze.getName();
+				if (ze.isDirectory() ? !usedDirs.contains(name) : Dependencies.isRedundant(name, dependencies)) { continue; }
+
+				ZipEntry copy = new ZipEntry(name);
+				copy.setTime(ze.getTime());
+
+				if (ze.getMethod() == ZipEntry.STORED) {
+
+					copy.setMethod(ZipEntry.STORED);
+					copy.setSize(ze.getSize());
+					copy.setCompressedSize(ze.getSize());
+					copy.setCrc(ze.getCrc());
+				}
+
+				zout.putNextEntry(copy);
+
+				InputStream in = zip.getInputStream(ze);
+
+				try {
+
+					for (int len; (len = in.read(buffer)) > 0;) { zout.write(buffer, 0, len); }
+
+				} finally { in.close(); }
+
+				zout.closeEntry();
+			}
+
+		} finally {
+
+			if (zout != null) { zout.close(); }
+			zip.close();
+		}
+	}
+
+
+	private static byte[] bytes(ByteBuffer buf, int at, int length) {
+
+		byte[] bytes = new byte[length];
+
+		for (int i = 0; i < length; i++) { bytes[i] = buf.get(at + i); }
+
+		return bytes;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+
+		while (buf.hasRemaining()) {
+
+			int n = channel.read(buf, position + buf.position());
+			if (n < 0) { throw new IOException("Unexpected end of file"); }
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+
+		while (buf.hasRemaining()) { channel.write(buf); }
+	}
+
+}
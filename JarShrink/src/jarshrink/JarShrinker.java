@@ -1,6 +1,7 @@
 package jarshrink;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Map;
 import java.util.Set;
@@ -15,15 +16,9 @@ import visionCore.util.Jars;
 public class JarShrinker {
 	
 	
-	private static final boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
-	private static final String ext = ((isWindows) ? ".exe" : "");
+	private File tmpdir, cacheFile;
 	
-	
-	private File tmpdir;
-	
-	private String jdepsLocation;
-	
-	private boolean printStatus, printDependencyList;
+	private boolean printStatus, printDependencyList, streaming;
 	
 	private PrintStream printStream;
 	
@@ -39,21 +34,11 @@ public class JarShrinker {
 	 */
 	public JarShrinker(File tmpdir) {
 		
-		this(tmpdir, findJdepsLocation());
-	}
-	
-	/**
-	 * @param tmpdir	Specifies the directory in which the jar will be temporarily extracted
-	 * @param tmpdir	Specifies the location of jdeps
-	 * @author Deconimus
-	 */
-	public JarShrinker(File tmpdir, String jdepsLocation) {
-		
 		this.tmpdir = tmpdir;
-		this.jdepsLocation = jdepsLocation;
 		
 		this.printStatus = false;
 		this.printDependencyList = false;
+		this.streaming = true;
 		
 		this.setPrintStream(System.out);
 	}
@@ -71,13 +56,6 @@ public class JarShrinker {
 	 */
 	public void shrink(File jarFile, File out, String... keep) {
 		
-		String jarFileName = jarFile.getName();
-		int ind = jarFileName.lastIndexOf('.');
-		
-		File unpacked = new File(tmpdir.getAbsolutePath()+File.separator+jarFileName.substring(0, (ind == -1) ? jarFileName.length() : ind));
-		if (unpacked.exists()) { Files.deleteDir(unpacked); }
-		if (!unpacked.mkdir()) { unpacked.mkdirs(); }
-		
 		String mainClass = Jars.getMainClass(jarFile);
 		
 		if ((mainClass == null || mainClass.trim().isEmpty()) && (keep == null || keep.length <= 0)) { 
@@ -86,13 +64,9 @@ public class JarShrinker {
 			return;
 		}
 		
-		if (printStatus && printStream != null) printStream.println("Unpacking .jar");
-		
-		Jars.extract(jarFile, unpacked);
-		
 		if (printStatus && printStream != null) printStream.println("Analyzing dependencies");
 		
-		Map<String, String[]> dependencyMap = Dependencies.buildDependencyMap(jdepsLocation, unpacked);
+		Map<String, String[]> dependencyMap = Dependencies.buildDependencyMap(jarFile, cacheFile);
 		
 		if (printStatus && printStream != null) printStream.println("Constructing dependency-tree");
 		
@@ -109,15 +83,36 @@ public class JarShrinker {
 			printStream.println();
 		}
 		
-		if (printStatus && printStream != null) printStream.println("Scraping redundant classes");
-		
-		Dependencies.removeRedundantClasses(unpacked, classTree);
-		
-		if (printStatus && printStream != null) printStream.println("Building new .jar");
-		
-		Jars.create(unpacked, out);
-		
-		Files.deleteDir(unpacked);
+		if (streaming) {
+			
+			if (printStatus && printStream != null) printStream.println("Copying needed entries to new .jar");
+			
+			try { JarCopier.copy(jarFile, out, classTree); }
+			catch (IOException e) { e.printStackTrace(); }
+			
+		} else {
+			
+			String jarFileName = jarFile.getName();
+			int ind = jarFileName.lastIndexOf('.');
+			
+			File unpacked = new File(tmpdir.getAbsolutePath()+File.separator+jarFileName.substring(0, (ind == -1) ? jarFileName.length() : ind));
+			if (unpacked.exists()) { Files.deleteDir(unpacked); }
+			if (!unpacked.mkdir()) { unpacked.mkdirs(); }
+			
+			if (printStatus && printStream != null) printStream.println("Unpacking .jar");
+			
+			Jars.extract(jarFile, unpacked);
+			
+			if (printStatus && printStream != null) printStream.println("Scraping redundant classes");
+			
+			Dependencies.removeRedundantClasses(unpacked, classTree);
+			
+			if (printStatus && printStream != null) printStream.println("Building new .jar");
+			
+			Jars.create(unpacked, out);
+			
+			Files.deleteDir(unpacked);
+		}
 		
 		if (printStatus && printStream != null) printStream.println("Done");
 	}
@@ -126,12 +121,24 @@ public class JarShrinker {
 	public File getTmpdir() { return tmpdir; }
 	public void setTmpdir(File tmpdir) { this.tmpdir = tmpdir; }
 
-	public String getJdepsLocation() { return jdepsLocation; }
-	public void setJdepsLocation(String jdepsLocation) { this.jdepsLocation = jdepsLocation; }
-
 	public boolean getPrintStatus() { return printStatus; }
 	public void setPrintStatus(boolean printStatus) { this.printStatus = printStatus; }
 
+	/**
+	 * A file to keep the dependencies of each class-file in between runs, so that the next run only needs to scan the
+	 * class-files that changed. Null, which is the default, scans every class-file every time.
+	 */
+	public File getCacheFile() { return cacheFile; }
+	public void setCacheFile(File cacheFile) { this.cacheFile = cacheFile; }
+	
+	/**
+	 * If true, which is the default, needed entries are copied straight from the jar into the new one, still
+	 * compressed. If false, the jar is extracted into the tmpdir, redundant classes are deleted there,
+	 * and the new jar is made from what's left.
+	 */
+	public boolean getStreaming() { return streaming; }
+	public void setStreaming(boolean streaming) { this.streaming = streaming; }
+
 	public boolean getPrintDependencyList() { return printDependencyList; }
 	public void setPrintDependencyList(boolean printDependencyList) { this.printDependencyList = printDependencyList; }
 	
@@ -161,44 +168,5 @@ public class JarShrinker {
 		
 		return (abspath == null) ? "" : abspath;
 	}
-	
-	private static String findJdepsLocation() {
-		
-		File home = new File(System.getProperty("java.home"));
-		
-		if (home.getName().toLowerCase().equals("jre")) {
-			
-			home = home.getParentFile();
-			
-		}/* else if (!home.getName().toLowerCase().startsWith("jdk")) {
-			
-			File d = home.getParentFile();
-			
-			long ver = -1L;
-			
-			for (File f : d.listFiles()) {
-				
-				if (f.isDirectory() && f.getName().toLowerCase().startsWith("jdk")) {
-					
-					if (!new File(f.getAbsolutePath()+File.separator+"bin"+File.separator+"jdeps"+ext).exists()) { continue; }
-					
-					long v = -1L;
-					
-					try {
-						v = (long)Double.parseDouble(f.getName().replace(" ", "").substring(3).replace(".", "")
-										.replace("x86", "").replace("x64", "").replace("u", "").replace("_", "")); 
-					} catch (Exception e) {}
-					
-					if (v > ver) {
-						
-						ver = v;
-						home = f;
-					}
-				}
-			}
-		}
-		*/
-		return home.getAbsolutePath()+File.separator+"bin"+File.separator+"jdeps"+ext;
-	}
 
 }
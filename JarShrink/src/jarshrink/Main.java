@@ -30,9 +30,9 @@ public class Main {
 	public static String abspath, javaHome;
 	
 	
-	public static String jar, out, keep[], tmpdir;
+	public static String jar, out, keep[], tmpdir, cache;
 	
-	public static boolean printStatus, printDependencyList;
+	public static boolean printStatus, printDependencyList, extract;
 	
 	static {
 		
@@ -63,6 +63,8 @@ public class Main {
 		JarShrinker shrinker = new JarShrinker(new File(tmpdir));
 		shrinker.setPrintStatus(printStatus);
 		shrinker.setPrintDependencyList(printDependencyList);
+		shrinker.setStreaming(!extract);
+		if (cache != null) { shrinker.setCacheFile(new File(cache)); }
 		
 		try {
 			
@@ -101,6 +103,10 @@ public class Main {
 				
 				printDependencyList = false;
 				
+			} else if (arg.equals("-e") || arg.equals("-extract")) {
+				
+				extract = true;
+				
 			} else if (nextArg != null) {
 			
 				if (arg.equals("-o") || arg.equals("-out")) {
@@ -120,6 +126,11 @@ public class Main {
 					
 					tmpdir = nextArg;
 					i++;
+					
+				} else if (arg.equals("-c") || arg.equals("-cache")) {
+					
+					cache = nextArg;
+					i++;
 				}
 				
 			}
@@ -161,6 +172,10 @@ public class Main {
 		System.out.println("\t\t\tdependencies. Can be called multiple times.");
 		System.out.println("\t-s | -status\tPrint status information.");
 		System.out.println("\t-n | -nolist\tDon't print the dependency list.");
+		System.out.println("\t-e | -extract\tExtract the jar into the tmp directory instead of copying");
+		System.out.println("\t\t\tentries straight into the new jar.");
+		System.out.println("\t-c | -cache\tSpecifies a file to keep the dependencies of each class in between");
+		System.out.println("\t\t\truns, so only classes that changed need to be read again.");
 		
 		System.out.println();
 		
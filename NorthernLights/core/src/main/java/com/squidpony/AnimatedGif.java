@@ -6,6 +6,7 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.StreamUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -14,6 +15,12 @@ import java.io.OutputStream;
  * Alessandro La Rossa's J2ME port ( http://www.jappit.com/blog/2008/12/04/j2me-animated-gif-encoder/ ) of this pure
  * Java animated GIF encoder by Kevin Weiner ( http://www.java2s.com/Code/Java/2D-Graphics-GUI/AnimatedGifEncoder.htm ).
  * The original has no copyright asserted, so this file continues that tradition and does not assert copyright either.
+ * <br>
+ * Frames can be given all at once with {@link #write(FileHandle, Array, int)}, or one at a time with
+ * {@link #begin(OutputStream, int, int, int)}, {@link #addFrame(Pixmap)}, and {@link #finish()}, which writes each
+ * frame as soon as it arrives and so never needs more than a few frames in memory. If {@link #palette} is null when
+ * frames are streamed this way, the palette is analyzed from the first {@link #paletteSampleFrames} frames, which are
+ * the only ones copied and held until they can be written.
  */
 public class AnimatedGif {
     public void write(FileHandle file, Array<Pixmap> frames) throws IOException {
@@ -31,13 +38,38 @@ public class AnimatedGif {
     private void write(OutputStream output, Array<Pixmap> frames, int fps) throws IOException {
         if (palette == null)
             palette = new PaletteReducer(frames);
-        start(output);
-        setFrameRate(fps);
+        Pixmap first = frames.first();
+        begin(output, first.getWidth(), first.getHeight(), fps);
         for (int i = 0; i < frames.size; i++) {
             addFrame(frames.get(i));
         }
         finish();
     }
+
+    /**
+     * Starts writing a GIF of the given size to output, which will not be closed, at the given frames per second.
+     * Frames should be given to {@link #addFrame(Pixmap)} afterwards, and each one is written to output as soon as it
+     * can be, through a buffer of fixed size, so no more than one frame needs to be kept in memory at a time. When there
+     * are no more frames, {@link #finish()} must be called to end the GIF and flush the buffer.
+     * <br>
+     * If {@link #palette} is null, the first {@link #paletteSampleFrames} frames are copied and held until that many
+     * have arrived (or until finish() is called), and then a palette is analyzed from them and assigned to
+     * {@link #palette}. Assigning a PaletteReducer to palette before calling this avoids holding any frames at all.
+     *
+     * @param output an OutputStream that will not be closed
+     * @param width  the width of every frame, in pixels
+     * @param height the height of every frame, in pixels
+     * @param fps    how many frames per second the animation should run at
+     * @return false if the initial write failed
+     */
+    public boolean begin(OutputStream output, int width, int height, int fps) {
+        if (output == null)
+            return false;
+        setSize(width, height);
+        setFrameRate(fps);
+        // every write here is a byte or two at a time, so this keeps those from each reaching output on their own
+        return start(new BufferedOutputStream(output, 8192));
+    }
     
     protected int width; // image size
 
@@ -79,6 +111,21 @@ public class AnimatedGif {
 
     public PaletteReducer palette;
 
+    /**
+     * How many frames are sampled to make a palette when {@link #palette} is null and frames are given one at a time.
+     * Those frames are copied and kept until the palette is made, so raising this uses more memory, but can give a
+     * better palette if the colors change over the course of the animation. Default is 8.
+     */
+    public int paletteSampleFrames = 8;
+
+    protected Pixmap[] sampleFrames; // copies of frames held until the palette is known
+
+    protected int sampleCount = 0; // how many of sampleFrames are in use
+
+    protected Pixmap resized; // reused when a frame has a different size than the GIF
+
+    protected LZWEncoder encoder; // reused for every frame
+
     /**
      * Sets the delay time between each frame, or changes it for subsequent frames
      * (applies to last frame added).
@@ -121,7 +168,8 @@ public class AnimatedGif {
      * deferred until the next frame is received so that timing data can be
      * inserted. Invoking <code>finish()</code> flushes all frames. If
      * <code>setSize</code> was not invoked, the size of the first image is used
-     * for all subsequent frames.
+     * for all subsequent frames. If {@link #palette} is null, the frame is
+     * copied and held as a palette sample instead; see {@link #paletteSampleFrames}.
      *
      * @param im BufferedImage containing frame to write.
      * @return true if successful.
@@ -130,6 +178,50 @@ public class AnimatedGif {
         if ((im == null) || !started) {
             return false;
         }
+        if (palette == null) {
+            if (!sizeSet) {
+                setSize(im.getWidth(), im.getHeight());
+            }
+            holdSample(im);
+            return sampleCount < paletteSampleFrames || writeSamples();
+        }
+        return writeFrame(im);
+    }
+
+    /**
+     * Copies im into {@link #sampleFrames}, since the caller is free to change or dispose im once addFrame() returns.
+     */
+    protected void holdSample(Pixmap im) {
+        if (sampleFrames == null || sampleFrames.length < paletteSampleFrames)
+            sampleFrames = new Pixmap[Math.max(1, paletteSampleFrames)];
+        Pixmap copy = new Pixmap(im.getWidth(), im.getHeight(), Pixmap.Format.RGBA8888);
+        copy.setBlending(Pixmap.Blending.None);
+        copy.drawPixmap(im, 0, 0);
+        sampleFrames[sampleCount++] = copy;
+    }
+
+    /**
+     * Analyzes a palette from the held sample frames, then writes and disposes each of them in order.
+     *
+     * @return true if every held frame was written successfully
+     */
+    protected boolean writeSamples() {
+        palette = new PaletteReducer();
+        palette.analyze(sampleFrames, sampleCount, 400, 256);
+        boolean ok = true;
+        for (int i = 0; i < sampleCount; i++) {
+            ok &= writeFrame(sampleFrames[i]);
+            sampleFrames[i].dispose();
+            sampleFrames[i] = null;
+        }
+        sampleCount = 0;
+        return ok;
+    }
+
+    /**
+     * Writes one frame using the current {@link #palette}, which must not be null.
+     */
+    protected boolean writeFrame(Pixmap im) {
         boolean ok = true;
         try {
             if (!sizeSet) {
@@ -168,7 +260,8 @@ public class AnimatedGif {
     public boolean finish() {
         if (!started)
             return false;
-        boolean ok = true;
+        // fewer frames than paletteSampleFrames were given, so the palette comes from all of them
+        boolean ok = sampleCount == 0 || writeSamples();
         started = false;
         try {
             out.write(0x3b); // gif trailer
@@ -184,10 +277,13 @@ public class AnimatedGif {
         transIndex = -1;
         out = null;
         image = null;
-        indexedPixels = null;
-        colorTab = null;
+        if (resized != null) {
+            resized.dispose();
+            resized = null;
+        }
         closeStream = false;
         firstFrame = true;
+        sizeSet = false;
 
         return ok;
     }
@@ -259,12 +355,15 @@ public class AnimatedGif {
      */
     protected void analyzePixels() {
         int nPix = width * height;
-        indexedPixels = new byte[nPix];
+        // both arrays are kept between frames (and between GIFs), and only grow when a bigger frame needs it
+        if (indexedPixels == null || indexedPixels.length < nPix)
+            indexedPixels = new byte[nPix];
 //        palette.analyze(image);
         final int[] paletteArray = palette.paletteArray;
         final byte[] paletteMapping = palette.paletteMapping;
         // initialize quantizer
-        colorTab = new byte[256 * 3]; // create reduced palette
+        if (colorTab == null)
+            colorTab = new byte[256 * 3]; // create reduced palette
         for (int i = 0, bi = 0; i < 256; i++) {
             int pa = paletteArray[i];
             colorTab[bi++] = (byte) (pa >>> 24);
@@ -319,10 +418,16 @@ public class AnimatedGif {
         int w = image.getWidth();
         int h = image.getHeight();
         if ((w != width) || (h != height)) {
-            // create new image with right size/format
-            Pixmap temp = new Pixmap(width, height, Pixmap.Format.RGBA8888);
-            temp.drawPixmap(image, 0, 0);
-            image = temp;
+            // make (or reuse) an image with right size/format
+            if (resized == null || resized.getWidth() != width || resized.getHeight() != height) {
+                if (resized != null)
+                    resized.dispose();
+                resized = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+                resized.setBlending(Pixmap.Blending.None);
+            }
+            resized.fill();
+            resized.drawPixmap(image, 0, 0);
+            image = resized;
         }
     }
 
@@ -426,7 +531,9 @@ public class AnimatedGif {
      * Encodes and writes pixel data
      */
     protected void writePixels() throws IOException {
-        LZWEncoder encoder = new LZWEncoder(width, height, indexedPixels, colorDepth);
+        if (encoder == null)
+            encoder = new LZWEncoder();
+        encoder.reset(width, height, indexedPixels, colorDepth);
         encoder.encode(out);
     }
 
@@ -456,12 +563,12 @@ class LZWEncoder {
 
     private static final int EOF = -1;
 
-    private final int imgW;
-	private final int imgH;
+    private int imgW;
+	private int imgH;
 
-    private final byte[] pixAry;
+    private byte[] pixAry;
 
-    private final int initCodeSize;
+    private int initCodeSize;
 
     private int remaining;
 
@@ -556,7 +663,15 @@ class LZWEncoder {
     byte[] accum = new byte[256];
 
     // ----------------------------------------------------------------------------
+    LZWEncoder() {
+    }
+
     LZWEncoder(int width, int height, byte[] pixels, int color_depth) {
+        reset(width, height, pixels, color_depth);
+    }
+
+    // Point this encoder at a new image, so the tables above can be reused for it.
+    void reset(int width, int height, byte[] pixels, int color_depth) {
         imgW = width;
         imgH = height;
         pixAry = pixels;
@@ -665,6 +780,8 @@ class LZWEncoder {
 
         remaining = imgW * imgH; // reset navigation variables
         curPixel = 0;
+        cur_accum = 0; // the last image can leave these partway through a byte
+        cur_bits = 0;
 
         compress(initCodeSize + 1, os); // compress and write the pixel data
 
@@ -7,6 +7,7 @@ import com.badlogic.gdx.utils.ByteArray;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.StreamUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -20,6 +21,9 @@ import java.util.zip.DeflaterOutputStream;
 /**
  * Animated PNG encoder with compression.
  * An instance can be reused to encode multiple animated PNGs with minimal allocation.
+ * Frames can be given all at once with {@link #write(FileHandle, Array, int)}, or one at a time with
+ * {@link #begin(OutputStream, int, int, int, int)}, {@link #addFrame(Pixmap)}, and {@link #finish()}, which writes
+ * each frame as soon as it arrives, so even very long animations only need one frame in memory at a time.
  *
  * <pre>
  * Copyright (c) 2007 Matthias Mann - www.matthiasmann.de
@@ -61,10 +65,16 @@ public class AnimatedPNG implements Disposable {
 
     private final ChunkBuffer buffer;
     private final Deflater deflater;
+    private DeflaterOutputStream deflaterOutput;
+    private DataOutputStream dataOutput;
     private ByteArray lineOutBytes, curLineBytes, prevLineBytes;
     private boolean flipY = true;
     private int lastLineLen;
 
+    // state of the animated PNG being written between begin() and finish()
+    private boolean started;
+    private int width, height, fps, frameCount, framesWritten, seq;
+
     /**
      * Creates an AnimatedPNG writer with an initial buffer size of 16384. The buffer can resize later if needed.
      */
@@ -141,12 +151,46 @@ public class AnimatedPNG implements Disposable {
      * @throws IOException if an I/O error occurs.
      */
     public void write(OutputStream output, Array<Pixmap> frames, int fps) throws IOException {
-        Pixmap pixmap = frames.first();
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
+        Pixmap first = frames.first();
+        begin(output, first.getWidth(), first.getHeight(), fps, frames.size);
+        for (int i = 0; i < frames.size; i++) {
+            addFrame(frames.get(i));
+        }
+        finish();
+    }
+
+    /**
+     * Starts writing animated PNG data to {@code output}, which will not be closed, at {@code fps} frames per second.
+     * Frames should be given to {@link #addFrame(Pixmap)} afterwards, and each one is compressed and written to output
+     * as soon as it arrives, so no more than one frame needs to be kept in memory at a time. When there are no more
+     * frames, {@link #finish()} must be called to end the animated PNG and flush output.
+     * <br>
+     * An animated PNG states how many frames it has before the first frame, and output may not be seekable, so the
+     * count must be known here.
+     * @param output the stream to write to; the stream will not be closed
+     * @param width the width of every frame, in pixels
+     * @param height the height of every frame, in pixels
+     * @param fps how many frames per second the animated PNG should display
+     * @param frameCount exactly how many frames will be given to {@link #addFrame(Pixmap)}; must be at least 1
+     * @throws IOException if an I/O error occurs.
+     */
+    public void begin(OutputStream output, int width, int height, int fps, int frameCount) throws IOException {
+        if (started)
+            throw new IllegalStateException("finish() must be called before begin() can be called again");
+        if (frameCount < 1)
+            throw new IllegalArgumentException("An animated PNG must have at least one frame, but frameCount was " + frameCount);
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+        this.frameCount = frameCount;
+        framesWritten = 0;
+        seq = 0;
+        // chunk headers and CRCs are written an int at a time, so this keeps those from each reaching output alone
+        dataOutput = new DataOutputStream(new BufferedOutputStream(output, 8192));
+        if (deflaterOutput == null)
+            deflaterOutput = new DeflaterOutputStream(buffer, deflater);
         dataOutput.write(SIGNATURE);
-        final int width = pixmap.getWidth();
-        final int height = pixmap.getHeight();
+        started = true;
 
         buffer.writeInt(IHDR);
         buffer.writeInt(width);
@@ -159,107 +203,130 @@ public class AnimatedPNG implements Disposable {
         buffer.endChunk(dataOutput);
 
         buffer.writeInt(acTL);
-        buffer.writeInt(frames.size);
+        buffer.writeInt(frameCount);
         buffer.writeInt(0);
         buffer.endChunk(dataOutput);
+    }
 
-        int lineLen = width * 4;
-        byte[] lineOut, curLine, prevLine;
-        ByteBuffer pixels;
-        int oldPosition;
-        boolean rgba8888 = pixmap.getFormat() == Pixmap.Format.RGBA8888;
-        int seq = 0;
-        for (int i = 0; i < frames.size; i++) {
+    /**
+     * Compresses and writes the next frame, which should be the size given to
+     * {@link #begin(OutputStream, int, int, int, int)}. The pixmap can be changed or disposed once this returns.
+     * @param pixmap the next frame to write
+     * @throws IOException if an I/O error occurs, or if this would be more frames than begin() was told
+     */
+    public void addFrame(Pixmap pixmap) throws IOException {
+        if (!started)
+            throw new IllegalStateException("begin() must be called before addFrame()");
+        if (framesWritten >= frameCount)
+            throw new IOException("More frames were added than the " + frameCount + " given to begin()");
+
+        buffer.writeInt(fcTL);
+        buffer.writeInt(seq++);
+        buffer.writeInt(width);
+        buffer.writeInt(height);
+        buffer.writeInt(0);
+        buffer.writeInt(0);
+        buffer.writeShort(1);
+        buffer.writeShort(fps);
+        buffer.writeByte(0);
+        buffer.writeByte(0);
+        buffer.endChunk(dataOutput);
 
-            buffer.writeInt(fcTL);
+        if (framesWritten == 0) {
+            buffer.writeInt(IDAT);
+        } else {
+            buffer.writeInt(fdAT);
             buffer.writeInt(seq++);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeInt(0);
-            buffer.writeInt(0);
-            buffer.writeShort(1);
-            buffer.writeShort(fps);
-            buffer.writeByte(0);
-            buffer.writeByte(0);
-            buffer.endChunk(dataOutput);
+        }
+        deflater.reset();
 
-            if (i == 0) {
-                buffer.writeInt(IDAT);
-            } else {
-                pixmap = frames.get(i);
-                buffer.writeInt(fdAT);
-                buffer.writeInt(seq++);
-            }
-            deflater.reset();
+        int lineLen = width * 4;
+        byte[] lineOut, curLine, prevLine;
+        if (lineOutBytes == null) {
+            lineOut = (lineOutBytes = new ByteArray(lineLen)).items;
+            curLine = (curLineBytes = new ByteArray(lineLen)).items;
+            prevLine = (prevLineBytes = new ByteArray(lineLen)).items;
+        } else {
+            lineOut = lineOutBytes.ensureCapacity(lineLen);
+            curLine = curLineBytes.ensureCapacity(lineLen);
+            prevLine = prevLineBytes.ensureCapacity(lineLen);
+            for (int ln = 0, n = lastLineLen; ln < n; ln++)
+                prevLine[ln] = 0;
+        }
+        lastLineLen = lineLen;
 
-            if (lineOutBytes == null) {
-                lineOut = (lineOutBytes = new ByteArray(lineLen)).items;
-                curLine = (curLineBytes = new ByteArray(lineLen)).items;
-                prevLine = (prevLineBytes = new ByteArray(lineLen)).items;
+        ByteBuffer pixels = pixmap.getPixels();
+        int oldPosition = pixels.position();
+        boolean rgba8888 = pixmap.getFormat() == Pixmap.Format.RGBA8888;
+        for (int y = 0; y < height; y++) {
+            int py = flipY ? (height - y - 1) : y;
+            if (rgba8888) {
+                pixels.position(py * lineLen);
+                pixels.get(curLine, 0, lineLen);
             } else {
-                lineOut = lineOutBytes.ensureCapacity(lineLen);
-                curLine = curLineBytes.ensureCapacity(lineLen);
-                prevLine = prevLineBytes.ensureCapacity(lineLen);
-                for (int ln = 0, n = lastLineLen; ln < n; ln++)
-                    prevLine[ln] = 0;
-            }
-            lastLineLen = lineLen;
-
-            pixels = pixmap.getPixels();
-            oldPosition = pixels.position();
-            for (int y = 0; y < height; y++) {
-                int py = flipY ? (height - y - 1) : y;
-                if (rgba8888) {
-                    pixels.position(py * lineLen);
-                    pixels.get(curLine, 0, lineLen);
-                } else {
-                    for (int px = 0, x = 0; px < width; px++) {
-                        int pixel = pixmap.getPixel(px, py);
-                        curLine[x++] = (byte) ((pixel >> 24) & 0xff);
-                        curLine[x++] = (byte) ((pixel >> 16) & 0xff);
-                        curLine[x++] = (byte) ((pixel >> 8) & 0xff);
-                        curLine[x++] = (byte) (pixel & 0xff);
-                    }
+                for (int px = 0, x = 0; px < width; px++) {
+                    int pixel = pixmap.getPixel(px, py);
+                    curLine[x++] = (byte) ((pixel >> 24) & 0xff);
+                    curLine[x++] = (byte) ((pixel >> 16) & 0xff);
+                    curLine[x++] = (byte) ((pixel >> 8) & 0xff);
+                    curLine[x++] = (byte) (pixel & 0xff);
                 }
+            }
 
-                lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-                lineOut[1] = (byte) (curLine[1] - prevLine[1]);
-                lineOut[2] = (byte) (curLine[2] - prevLine[2]);
-                lineOut[3] = (byte) (curLine[3] - prevLine[3]);
+            lineOut[0] = (byte) (curLine[0] - prevLine[0]);
+            lineOut[1] = (byte) (curLine[1] - prevLine[1]);
+            lineOut[2] = (byte) (curLine[2] - prevLine[2]);
+            lineOut[3] = (byte) (curLine[3] - prevLine[3]);
 
-                for (int x = 4; x < lineLen; x++) {
-                    int a = curLine[x - 4] & 0xff;
-                    int b = prevLine[x] & 0xff;
-                    int c = prevLine[x - 4] & 0xff;
-                    int p = a + b - c;
-                    int pa = p - a;
-                    if (pa < 0) pa = -pa;
-                    int pb = p - b;
-                    if (pb < 0) pb = -pb;
-                    int pc = p - c;
-                    if (pc < 0) pc = -pc;
-                    if (pa <= pb && pa <= pc)
-                        c = a;
-                    else if (pb <= pc) //
-                        c = b;
-                    lineOut[x] = (byte) (curLine[x] - c);
-                }
+            for (int x = 4; x < lineLen; x++) {
+                int a = curLine[x - 4] & 0xff;
+                int b = prevLine[x] & 0xff;
+                int c = prevLine[x - 4] & 0xff;
+                int p = a + b - c;
+                int pa = p - a;
+                if (pa < 0) pa = -pa;
+                int pb = p - b;
+                if (pb < 0) pb = -pb;
+                int pc = p - c;
+                if (pc < 0) pc = -pc;
+                if (pa <= pb && pa <= pc)
+                    c = a;
+                else if (pb <= pc) //
+                    c = b;
+                lineOut[x] = (byte) (curLine[x] - c);
+            }
 
-                deflaterOutput.write(PAETH);
-                deflaterOutput.write(lineOut, 0, lineLen);
+            deflaterOutput.write(PAETH);
+            deflaterOutput.write(lineOut, 0, lineLen);
 
-                byte[] temp = curLine;
-                curLine = prevLine;
-                prevLine = temp;
-            }
-            pixels.position(oldPosition);
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+            byte[] temp = curLine;
+            curLine = prevLine;
+            prevLine = temp;
         }
-        buffer.writeInt(IEND);
+        pixels.position(oldPosition);
+        deflaterOutput.finish();
         buffer.endChunk(dataOutput);
+        framesWritten++;
+    }
 
-        output.flush();
+    /**
+     * Ends the animated PNG and flushes it to the stream given to begin(), without closing that stream. This instance
+     * can then begin another animated PNG.
+     * @throws IOException if an I/O error occurs, or if fewer frames were added than begin() was told
+     */
+    public void finish() throws IOException {
+        if (!started)
+            throw new IllegalStateException("begin() must be called before finish()");
+        try {
+            if (framesWritten != frameCount)
+                throw new IOException("Only " + framesWritten + " frames were added, but begin() was told " + frameCount);
+            buffer.writeInt(IEND);
+            buffer.endChunk(dataOutput);
+            dataOutput.flush();
+        } finally {
+            started = false;
+            dataOutput = null;
+        }
     }
 
     /**
@@ -20,6 +20,9 @@ import java.util.zip.DeflaterOutputStream;
 
 /**
  * Indexed-mode AnimatedPNG encoder with compression. An instance can be reused to encode multiple APNGs with low allocation.
+ * Frames can be given all at once with {@link #write(FileHandle, Array, int)}, or one at a time with
+ * {@link #begin(OutputStream, int, int, int, int)}, {@link #addFrame(Pixmap)}, and {@link #finish()}, which writes
+ * each frame as soon as it arrives, so even very long animations only need one frame in memory at a time.
  * You can configure the target palette and how this can dither colors via the {@link #palette} field, which is a
  * {@link PaletteReducer} object that is allowed to be null and can be reused. The methods
  * {@link PaletteReducer#exact(Color[])} or {@link PaletteReducer#analyze(Pixmap)} can be used to make the target
@@ -68,15 +71,35 @@ public class AnimatedPNG8 implements Disposable {
     static private final byte FILTER_NONE = 0;
     static private final byte INTERLACE_NONE = 0;
     static private final byte PAETH = 4;
+    /**
+     * Once this many bytes of a frame have been compressed, they are written out as a chunk, so the buffer never needs
+     * to hold a whole frame.
+     */
+    static private final int CHUNK_LIMIT = 1 << 16;
 
     private final ChunkBuffer buffer;
     private final Deflater deflater;
+    private DeflaterOutputStream deflaterOutput;
+    private DataOutputStream dataOutput;
     private ByteArray lineOutBytes, curLineBytes, prevLineBytes;
     private boolean flipY = true;
     private int lastLineLen;
 
+    // state of the APNG being written between begin() and finish()
+    private boolean started, dither, hasTransparent;
+    private int width, height, fps, frameCount, framesWritten, seq;
+    private Pixmap[] sampleFrames;
+    private int sampleCount;
+
     public PaletteReducer palette;
 
+    /**
+     * How many frames are sampled to make a palette when {@link #palette} is null and frames are given one at a time
+     * with {@link #addFrame(Pixmap)}. Those frames are copied and kept until the palette is made, so raising this uses
+     * more memory, but can give a better palette if the colors change over the course of the animation. Default is 8.
+     */
+    public int paletteSampleFrames = 8;
+
     public AnimatedPNG8 () {
         this(128 * 128);
     }
@@ -141,7 +164,11 @@ public class AnimatedPNG8 implements Disposable {
      * Pixmaps. If {@link #palette} is null (the default unless it has been assigned a PaletteReducer value), this will
      * compute a palette from all of the frames given. Otherwise, this uses the colors already in {@link #palette}.
      * Optionally dithers the result if {@code dither} is true.
-     * 
+     * <br>
+     * The frames go through {@link #addFrame(Pixmap)}, so a frame with more than 64 KB of compressed data is split
+     * across several IDAT or fdAT chunks. The decoded image is the same, but for frames that large, the bytes differ
+     * from what this class wrote when it kept each frame in one chunk.
+     *
      * @param output an OutputStream that will not be closed
      * @param frames a Pixmap Array to write as a sequence of frames to the given output stream
      * @param fps    how many frames per second the animation should run at
@@ -150,182 +177,153 @@ public class AnimatedPNG8 implements Disposable {
     public void write(OutputStream output, Array<Pixmap> frames, int fps, boolean dither) throws IOException {
         if (palette == null)
             palette = new PaletteReducer(frames);
-        if (dither)
-            writeDithered(output, frames, fps);
-        else
-            writeSolid(output, frames, fps);
+        Pixmap first = frames.first();
+        begin(output, first.getWidth(), first.getHeight(), fps, frames.size, dither);
+        for (int i = 0; i < frames.size; i++) {
+            addFrame(frames.get(i));
+        }
+        finish();
     }
 
-    private void writeSolid(OutputStream output, Array<Pixmap> frames, int fps) throws IOException {
-        Pixmap pixmap = frames.first();
-        final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
+    /**
+     * Starts writing a dithered APNG to output, which will not be closed; see
+     * {@link #begin(OutputStream, int, int, int, int, boolean)} for how the frames are given.
+     *
+     * @param output     an OutputStream that will not be closed
+     * @param width      the width of every frame, in pixels
+     * @param height     the height of every frame, in pixels
+     * @param fps        how many frames per second the animation should run at
+     * @param frameCount exactly how many frames will be given to {@link #addFrame(Pixmap)}
+     * @throws IOException if writing fails for any reason
+     */
+    public void begin(OutputStream output, int width, int height, int fps, int frameCount) throws IOException {
+        begin(output, width, height, fps, frameCount, true);
+    }
 
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
+    /**
+     * Starts writing an APNG to output, which will not be closed, optionally dithering colors that can't be represented
+     * exactly. Frames should be given to {@link #addFrame(Pixmap)} afterwards, and each one is compressed and written
+     * to output as soon as it can be, in chunks of bounded size, so no more than one frame needs to be kept in memory at
+     * a time. When there are no more frames, {@link #finish()} must be called to end the APNG and flush output.
+     * <br>
+     * Unlike a GIF, an APNG states how many frames it has before the first frame, and output may not be seekable, so
+     * the count must be known here. If {@link #palette} is null, the first {@link #paletteSampleFrames} frames are
+     * copied and held until that many have arrived (or until finish() is called), and then a palette is analyzed from
+     * them and assigned to {@link #palette}. Assigning a PaletteReducer to palette before calling this avoids holding
+     * any frames at all.
+     *
+     * @param output     an OutputStream that will not be closed
+     * @param width      the width of every frame, in pixels
+     * @param height     the height of every frame, in pixels
+     * @param fps        how many frames per second the animation should run at
+     * @param frameCount exactly how many frames will be given to {@link #addFrame(Pixmap)}; must be at least 1
+     * @param dither     true if this should dither colors that can't be represented exactly
+     * @throws IOException if writing fails for any reason
+     */
+    public void begin(OutputStream output, int width, int height, int fps, int frameCount, boolean dither) throws IOException {
+        if (started)
+            throw new IllegalStateException("finish() must be called before begin() can be called again");
+        if (frameCount < 1)
+            throw new IllegalArgumentException("An APNG must have at least one frame, but frameCount was " + frameCount);
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+        this.frameCount = frameCount;
+        this.dither = dither;
+        framesWritten = 0;
+        seq = 0;
+        // chunk headers and CRCs are written an int at a time, so this keeps those from each reaching output alone
+        dataOutput = new DataOutputStream(new BufferedOutputStream(output, 8192));
+        if (deflaterOutput == null)
+            deflaterOutput = new DeflaterOutputStream(buffer, deflater);
         dataOutput.write(SIGNATURE);
+        started = true;
+        if (palette != null)
+            writeHeader();
+    }
 
-        final int width = pixmap.getWidth();
-        final int height = pixmap.getHeight();
-
-        buffer.writeInt(IHDR);
-        buffer.writeInt(width);
-        buffer.writeInt(height);
-        buffer.writeByte(8); // 8 bits per component.
-        buffer.writeByte(COLOR_INDEXED);
-        buffer.writeByte(COMPRESSION_DEFLATE);
-        buffer.writeByte(FILTER_NONE);
-        buffer.writeByte(INTERLACE_NONE);
-        buffer.endChunk(dataOutput);
-
-        buffer.writeInt(PLTE);
-        for (int i = 0; i < paletteArray.length; i++) {
-            int p = paletteArray[i];
-            buffer.write(p >>> 24);
-            buffer.write(p >>> 16);
-            buffer.write(p >>> 8);
-        }
-        buffer.endChunk(dataOutput);
-
-        boolean hasTransparent = false;
-        if (paletteArray[0] == 0) {
-            hasTransparent = true;
-            buffer.writeInt(TRNS);
-            buffer.write(0);
-            buffer.endChunk(dataOutput);
+    /**
+     * Adds the next frame, which should be the size given to {@link #begin(OutputStream, int, int, int, int, boolean)}.
+     * The frame is written right away unless {@link #palette} is null, in which case it is copied and held as a palette
+     * sample; see {@link #paletteSampleFrames}. Either way, pixmap can be changed or disposed once this returns.
+     *
+     * @param pixmap the next frame to write
+     * @throws IOException if writing fails for any reason, or if this would be more frames than begin() was told
+     */
+    public void addFrame(Pixmap pixmap) throws IOException {
+        if (!started)
+            throw new IllegalStateException("begin() must be called before addFrame()");
+        if (framesWritten + sampleCount >= frameCount)
+            throw new IOException("More frames were added than the " + frameCount + " given to begin()");
+        if (palette == null) {
+            holdSample(pixmap);
+            if (sampleCount >= paletteSampleFrames || sampleCount == frameCount)
+                writeSamples();
+            return;
         }
-        buffer.writeInt(acTL);
-        buffer.writeInt(frames.size);
-        buffer.writeInt(0);
-        buffer.endChunk(dataOutput);
-
-        byte[] lineOut, curLine, prevLine;
-        int color;
-        int seq = 0;
-        for (int i = 0; i < frames.size; i++) {
+        writeFrame(pixmap);
+    }
 
-            buffer.writeInt(fcTL);
-            buffer.writeInt(seq++);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeInt(0);
-            buffer.writeInt(0);
-            buffer.writeShort(1);
-            buffer.writeShort(fps);
-            buffer.writeByte(0);
-            buffer.writeByte(0);
+    /**
+     * Ends the APNG and flushes it to the OutputStream given to begin(), without closing that stream. This instance can
+     * then begin another APNG.
+     *
+     * @throws IOException if writing fails for any reason, or if fewer frames were added than begin() was told
+     */
+    public void finish() throws IOException {
+        if (!started)
+            throw new IllegalStateException("begin() must be called before finish()");
+        try {
+            if (sampleCount > 0)
+                writeSamples();
+            if (framesWritten != frameCount)
+                throw new IOException("Only " + framesWritten + " frames were added, but begin() was told " + frameCount);
+            buffer.writeInt(IEND);
             buffer.endChunk(dataOutput);
-
-            if (i == 0) {
-                buffer.writeInt(IDAT);
-            } else {
-                pixmap = frames.get(i);
-                buffer.writeInt(fdAT);
-                buffer.writeInt(seq++);
-            }
-            deflater.reset();
-
-            if (lineOutBytes == null) {
-                lineOut = (lineOutBytes = new ByteArray(width)).items;
-                curLine = (curLineBytes = new ByteArray(width)).items;
-                prevLine = (prevLineBytes = new ByteArray(width)).items;
-            } else {
-                lineOut = lineOutBytes.ensureCapacity(width);
-                curLine = curLineBytes.ensureCapacity(width);
-                prevLine = prevLineBytes.ensureCapacity(width);
-                for (int ln = 0, n = lastLineLen; ln < n; ln++)
-                    prevLine[ln] = 0;
-            }
-            lastLineLen = width;
-
-            for (int y = 0; y < height; y++) {
-                int py = flipY ? (height - y - 1) : y;
-                for (int px = 0; px < width; px++) {
-                    color = pixmap.getPixel(px, py);
-                    if ((color & 0x80) == 0 && hasTransparent)
-                        curLine[px] = 0;
-                    else {
-                        int rr = ((color >>> 24));
-                        int gg = ((color >>> 16) & 0xFF);
-                        int bb = ((color >>> 8) & 0xFF);
-                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
-                                | ((gg << 2) & 0x3E0)
-                                | ((bb >>> 3))];
-                    }
-                }
-
-                lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-
-                //Paeth
-                for (int x = 1; x < width; x++) {
-                    int a = curLine[x - 1] & 0xff;
-                    int b = prevLine[x] & 0xff;
-                    int c = prevLine[x - 1] & 0xff;
-                    int p = a + b - c;
-                    int pa = p - a;
-                    if (pa < 0) pa = -pa;
-                    int pb = p - b;
-                    if (pb < 0) pb = -pb;
-                    int pc = p - c;
-                    if (pc < 0) pc = -pc;
-                    if (pa <= pb && pa <= pc)
-                        c = a;
-                    else if (pb <= pc)
-                        c = b;
-                    lineOut[x] = (byte) (curLine[x] - c);
-                }
-
-                deflaterOutput.write(PAETH);
-                deflaterOutput.write(lineOut, 0, width);
-
-                byte[] temp = curLine;
-                curLine = prevLine;
-                prevLine = temp;
+            dataOutput.flush();
+        } finally {
+            started = false;
+            dataOutput = null;
+            for (int i = 0; i < sampleCount; i++) {
+                sampleFrames[i].dispose();
+                sampleFrames[i] = null;
             }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+            sampleCount = 0;
         }
+    }
 
-        buffer.writeInt(IEND);
-        buffer.endChunk(dataOutput);
-
-        output.flush();
+    /**
+     * Copies pixmap into {@link #sampleFrames}, since the caller is free to change or dispose it once addFrame() returns.
+     */
+    private void holdSample(Pixmap pixmap) {
+        if (sampleFrames == null || sampleFrames.length < paletteSampleFrames)
+            sampleFrames = new Pixmap[Math.max(1, paletteSampleFrames)];
+        Pixmap copy = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), Pixmap.Format.RGBA8888);
+        copy.setBlending(Pixmap.Blending.None);
+        copy.drawPixmap(pixmap, 0, 0);
+        sampleFrames[sampleCount++] = copy;
     }
+
     /**
-     * Inverse cosine function (arccos) but with output measured in turns instead of radians. Possible results for this
-     * range from 0.0f (inclusive) to 0.5f (inclusive).
-     * <br>
-     * This method is extremely similar to the non-turn approximation.
-     * @param n a float from -1.0f to 1.0f (both inclusive), usually the output of sin_() or cos_()
-     * @return one of the values that would produce {@code n} if it were adjusted to 1/2pi range and passed to cos() 
+     * Analyzes a palette from the held sample frames, writes the header that needed it, then writes and disposes each
+     * held frame in order.
      */
-    private static float acos_(final float n)
-    {
-        final float ax = Math.abs(n), ay = (float) Math.sqrt(1f - n * n);
-        if(ax < ay)
-        {
-            final float a = ax / ay, s = a * a,
-                    r = 0.25f - (((-0.0464964749f * s + 0.15931422f) * s - 0.327622764f) * s * a + a) * 0.15915494309189535f;
-            return (n < 0.0f) ? 0.5f - r : r;
-        }
-        else {
-            final float a = ay / ax, s = a * a,
-                    r = (((-0.0464964749f * s + 0.15931422f) * s - 0.327622764f) * s * a + a) * 0.15915494309189535f;
-            return (n < 0.0f) ? 0.5f - r : r;
+    private void writeSamples() throws IOException {
+        palette = new PaletteReducer();
+        palette.analyze(sampleFrames, sampleCount, 400, 256);
+        writeHeader();
+        // count down sampleCount as frames go, so finish() only disposes the ones left if a write fails
+        for (int i = 0, n = sampleCount; i < n; i++) {
+            writeFrame(sampleFrames[i]);
+            sampleFrames[i].dispose();
+            sampleFrames[i] = null;
+            sampleCount--;
         }
+        sampleCount = 0;
     }
 
-    private void writeDithered(OutputStream output, Array<Pixmap> frames, int fps) throws IOException {
-        Pixmap pixmap = frames.first();
+    private void writeHeader() throws IOException {
         final int[] paletteArray = palette.paletteArray;
-        final byte[] paletteMapping = palette.paletteMapping;
-
-        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        dataOutput.write(SIGNATURE);
-
-        final int width = pixmap.getWidth();
-        final int height = pixmap.getHeight();
 
         buffer.writeInt(IHDR);
         buffer.writeInt(width);
@@ -346,7 +344,7 @@ public class AnimatedPNG8 implements Disposable {
         }
         buffer.endChunk(dataOutput);
 
-        boolean hasTransparent = false;
+        hasTransparent = false;
         if (paletteArray[0] == 0) {
             hasTransparent = true;
             buffer.writeInt(TRNS);
@@ -354,58 +352,63 @@ public class AnimatedPNG8 implements Disposable {
             buffer.endChunk(dataOutput);
         }
         buffer.writeInt(acTL);
-        buffer.writeInt(frames.size);
+        buffer.writeInt(frameCount);
         buffer.writeInt(0);
         buffer.endChunk(dataOutput);
+    }
 
-        byte[] lineOut, curLine, prevLine;
-        int color, used;
-
-        lastLineLen = width;
+    /**
+     * The first frame goes in IDAT chunks, and later ones in fdAT chunks, which also need a sequence number.
+     */
+    private void startDataChunk() throws IOException {
+        if (framesWritten == 0) {
+            buffer.writeInt(IDAT);
+        } else {
+            buffer.writeInt(fdAT);
+            buffer.writeInt(seq++);
+        }
+    }
 
-        byte paletteIndex;
-        float pos, adj;
-        final float strength = palette.ditherStrength * 3.333f;
+    private void writeFrame(Pixmap pixmap) throws IOException {
+        final int[] paletteArray = palette.paletteArray;
+        final byte[] paletteMapping = palette.paletteMapping;
 
-        int seq = 0;
-        for (int i = 0; i < frames.size; i++) {
+        buffer.writeInt(fcTL);
+        buffer.writeInt(seq++);
+        buffer.writeInt(width);
+        buffer.writeInt(height);
+        buffer.writeInt(0);
+        buffer.writeInt(0);
+        buffer.writeShort(1);
+        buffer.writeShort(fps);
+        buffer.writeByte(0);
+        buffer.writeByte(0);
+        buffer.endChunk(dataOutput);
 
-            buffer.writeInt(fcTL);
-            buffer.writeInt(seq++);
-            buffer.writeInt(width);
-            buffer.writeInt(height);
-            buffer.writeInt(0);
-            buffer.writeInt(0);
-            buffer.writeShort(1);
-            buffer.writeShort(fps);
-            buffer.writeByte(0);
-            buffer.writeByte(0);
-            buffer.endChunk(dataOutput);
+        startDataChunk();
+        deflater.reset();
 
-            if (i == 0) {
-                buffer.writeInt(IDAT);
-            } else {
-                pixmap = frames.get(i);
-                buffer.writeInt(fdAT);
-                buffer.writeInt(seq++);
-            }
-            deflater.reset();
+        byte[] lineOut, curLine, prevLine;
+        if (lineOutBytes == null) {
+            lineOut = (lineOutBytes = new ByteArray(width)).items;
+            curLine = (curLineBytes = new ByteArray(width)).items;
+            prevLine = (prevLineBytes = new ByteArray(width)).items;
+        } else {
+            lineOut = lineOutBytes.ensureCapacity(width);
+            curLine = curLineBytes.ensureCapacity(width);
+            prevLine = prevLineBytes.ensureCapacity(width);
+            for (int ln = 0, n = lastLineLen; ln < n; ln++)
+                prevLine[ln] = 0;
+        }
+        lastLineLen = width;
 
-            if (lineOutBytes == null) {
-                lineOut = (lineOutBytes = new ByteArray(width)).items;
-                curLine = (curLineBytes = new ByteArray(width)).items;
-                prevLine = (prevLineBytes = new ByteArray(width)).items;
-            } else {
-                lineOut = lineOutBytes.ensureCapacity(width);
-                curLine = curLineBytes.ensureCapacity(width);
-                prevLine = prevLineBytes.ensureCapacity(width);
-                for (int ln = 0, n = lastLineLen; ln < n; ln++)
-                    prevLine[ln] = 0;
-            }
-            lastLineLen = width;
+        int color, used;
+        float pos, adj;
+        final float strength = palette.ditherStrength * 3.333f;
 
-            for (int y = 0; y < height; y++) {
-                int py = flipY ? (height - y - 1) : y;
+        for (int y = 0; y < height; y++) {
+            int py = flipY ? (height - y - 1) : y;
+            if (dither) {
                 for (int px = 0; px < width; px++) {
                     color = pixmap.getPixel(px, py) & 0xF8F8F880;
                     if ((color & 0x80) == 0 && hasTransparent)
@@ -415,13 +418,11 @@ public class AnimatedPNG8 implements Disposable {
                         int rr = ((color >>> 24)       );
                         int gg = ((color >>> 16) & 0xFF);
                         int bb = ((color >>> 8)  & 0xFF);
-                        paletteIndex =
-                                paletteMapping[((rr << 7) & 0x7C00)
-                                        | ((gg << 2) & 0x3E0)
-                                        | ((bb >>> 3))];
-                        used = paletteArray[paletteIndex & 0xFF];
+                        used = paletteArray[paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))] & 0xFF];
 //                        adj = (acos_((BlueNoise.get(px, y, i) + 0.5f) * 0.00784313725490196f) - 0.25f) * strength;
-                        
+
                         pos = (px * 0.06711056f + y * 0.00583715f);
                         pos -= (int)pos;
                         pos *= 52.9829189f;
@@ -436,45 +437,85 @@ public class AnimatedPNG8 implements Disposable {
                         curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
                                 | ((gg << 2) & 0x3E0)
                                 | ((bb >>> 3))];
-
                     }
                 }
-                lineOut[0] = (byte) (curLine[0] - prevLine[0]);
-
-                //Paeth
-                for (int x = 1; x < width; x++) {
-                    int a = curLine[x - 1] & 0xff;
-                    int b = prevLine[x] & 0xff;
-                    int c = prevLine[x - 1] & 0xff;
-                    int p = a + b - c;
-                    int pa = p - a;
-                    if (pa < 0) pa = -pa;
-                    int pb = p - b;
-                    if (pb < 0) pb = -pb;
-                    int pc = p - c;
-                    if (pc < 0) pc = -pc;
-                    if (pa <= pb && pa <= pc)
-                        c = a;
-                    else if (pb <= pc)
-                        c = b;
-                    lineOut[x] = (byte) (curLine[x] - c);
+            } else {
+                for (int px = 0; px < width; px++) {
+                    color = pixmap.getPixel(px, py);
+                    if ((color & 0x80) == 0 && hasTransparent)
+                        curLine[px] = 0;
+                    else {
+                        int rr = ((color >>> 24));
+                        int gg = ((color >>> 16) & 0xFF);
+                        int bb = ((color >>> 8) & 0xFF);
+                        curLine[px] = paletteMapping[((rr << 7) & 0x7C00)
+                                | ((gg << 2) & 0x3E0)
+                                | ((bb >>> 3))];
+                    }
                 }
+            }
+
+            lineOut[0] = (byte) (curLine[0] - prevLine[0]);
+
+            //Paeth
+            for (int x = 1; x < width; x++) {
+                int a = curLine[x - 1] & 0xff;
+                int b = prevLine[x] & 0xff;
+                int c = prevLine[x - 1] & 0xff;
+                int p = a + b - c;
+                int pa = p - a;
+                if (pa < 0) pa = -pa;
+                int pb = p - b;
+                if (pb < 0) pb = -pb;
+                int pc = p - c;
+                if (pc < 0) pc = -pc;
+                if (pa <= pb && pa <= pc)
+                    c = a;
+                else if (pb <= pc)
+                    c = b;
+                lineOut[x] = (byte) (curLine[x] - c);
+            }
 
-                deflaterOutput.write(PAETH);
-                deflaterOutput.write(lineOut, 0, width);
+            deflaterOutput.write(PAETH);
+            deflaterOutput.write(lineOut, 0, width);
 
-                byte[] temp = curLine;
-                curLine = prevLine;
-                prevLine = temp;
+            // a frame's compressed data can be split across any number of chunks, so once enough has built up, it
+            // goes to output now instead of waiting for the whole frame
+            if (buffer.buffer.size() >= CHUNK_LIMIT) {
+                buffer.endChunk(dataOutput);
+                startDataChunk();
             }
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
-        }
 
-        buffer.writeInt(IEND);
+            byte[] temp = curLine;
+            curLine = prevLine;
+            prevLine = temp;
+        }
+        deflaterOutput.finish();
         buffer.endChunk(dataOutput);
-
-        output.flush();
+        framesWritten++;
+    }
+    /**
+     * Inverse cosine function (arccos) but with output measured in turns instead of radians. Possible results for this
+     * range from 0.0f (inclusive) to 0.5f (inclusive).
+     * <br>
+     * This method is extremely similar to the non-turn approximation.
+     * @param n a float from -1.0f to 1.0f (both inclusive), usually the output of sin_() or cos_()
+     * @return one of the values that would produce {@code n} if it were adjusted to 1/2pi range and passed to cos() 
+     */
+    private static float acos_(final float n)
+    {
+        final float ax = Math.abs(n), ay = (float) Math.sqrt(1f - n * n);
+        if(ax < ay)
+        {
+            final float a = ax / ay, s = a * a,
+                    r = 0.25f - (((-0.0464964749f * s + 0.15931422f) * s - 0.327622764f) * s * a + a) * 0.15915494309189535f;
+            return (n < 0.0f) ? 0.5f - r : r;
+        }
+        else {
+            final float a = ay / ax, s = a * a,
+                    r = (((-0.0464964749f * s + 0.15931422f) * s - 0.327622764f) * s * a + a) * 0.15915494309189535f;
+            return (n < 0.0f) ? 0.5f - r : r;
+        }
     }
 
     /**
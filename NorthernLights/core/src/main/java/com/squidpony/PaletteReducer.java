@@ -298,33 +298,16 @@ public class PaletteReducer {
         Arrays.fill(paletteArray, 0);
         Arrays.fill(paletteMapping, (byte) 0);
         final int plen = Math.min(256, rgbaPalette.length);
-        int color, c2;
-        double dist;
+        int color;
+        final int[] indices = new int[plen];
         for (int i = 0; i < plen; i++) {
             color = rgbaPalette[i];
             if ((color & 0x80) != 0) {
                 paletteArray[i] = color;
-                paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-            }
-        }
-        int rr, gg, bb;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = 0x7FFFFFFF;
-                        for (int i = 1; i < plen; i++) {
-                            if (dist > (dist = Math.min(dist, difference(paletteArray[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
+                paletteMapping[indices[i] = (color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
             }
         }
+        fillMapping(indices, plen);
 //        generatePreloadCode(paletteMapping);
     }
 
@@ -388,31 +371,14 @@ public class PaletteReducer {
         Arrays.fill(paletteArray, 0);
         Arrays.fill(paletteMapping, (byte) 0);
         final int plen = Math.min(Math.min(256, colorPalette.length), limit);
-        int color, c2;
-        double dist;
+        int color;
+        final int[] indices = new int[plen];
         for (int i = 0; i < plen; i++) {
             color = Color.rgba8888(colorPalette[i]);
             paletteArray[i] = color;
-            paletteMapping[(color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
-        }
-        int rr, gg, bb;
-        for (int r = 0; r < 32; r++) {
-            rr = (r << 3 | r >>> 2);
-            for (int g = 0; g < 32; g++) {
-                gg = (g << 3 | g >>> 2);
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        bb = (b << 3 | b >>> 2);
-                        dist = 0x7FFFFFFF;
-                        for (int i = 1; i < plen; i++) {
-                            if (dist > (dist = Math.min(dist, difference(paletteArray[i], rr, gg, bb))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
+            paletteMapping[indices[i] = (color >>> 17 & 0x7C00) | (color >>> 14 & 0x3E0) | (color >>> 11 & 0x1F)] = (byte) i;
         }
+        fillMapping(indices, plen);
     }
     /**
      * Analyzes {@code pixmap} for color count and frequency, building a palette with at most 256 colors if there are
@@ -539,22 +505,11 @@ public class PaletteReducer {
                 i++;
             }
         }
-        int c2;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            for (int g = 0; g < 32; g++) {
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        dist = Double.POSITIVE_INFINITY;
-                        for (int i = 1; i < limit; i++) {
-                            if (dist > (dist = Math.min(dist, difference(reds[i], greens[i], blues[i], r, g, b))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
-                }
-            }
+        final int[] indices = new int[limit];
+        for (int i = 1; i < limit; i++) {
+            indices[i] = reds[i] << 10 | greens[i] << 5 | blues[i];
         }
+        fillMapping(indices, limit);
     }
 
     /**
@@ -704,21 +659,153 @@ public class PaletteReducer {
                 i++;
             }
         }
-        int c2;
-        double dist;
-        for (int r = 0; r < 32; r++) {
-            for (int g = 0; g < 32; g++) {
-                for (int b = 0; b < 32; b++) {
-                    c2 = r << 10 | g << 5 | b;
-                    if (paletteMapping[c2] == 0) {
-                        dist = Double.POSITIVE_INFINITY;
-                        for (int i = 1; i < limit; i++) {
-                            if (dist > (dist = Math.min(dist, difference(reds[i], greens[i], blues[i], r, g, b))))
-                                paletteMapping[c2] = (byte) i;
-                        }
-                    }
+        final int[] indices = new int[limit];
+        for (int i = 1; i < limit; i++) {
+            indices[i] = reds[i] << 10 | greens[i] << 5 | blues[i];
+        }
+        fillMapping(indices, limit);
+    }
+
+    /**
+     * Fills every item of {@link #paletteMapping} that is still 0 with the index of the nearest palette color, as
+     * measured by {@link #difference(int, int, int, int, int, int)}, out of indices 1 up to but not including
+     * {@code count}; when several are equally near, the lowest index wins. That is exactly what checking every palette
+     * color for each of the 32768 RGB555 cells would produce, but a k-d tree over the palette lets most cells skip
+     * almost all of the palette.
+     *
+     * @param indices the RGB555 index of each palette color, as used by paletteMapping; the item at 0 is ignored
+     * @param count   how many items of indices to use, including the ignored one at 0
+     */
+    private void fillMapping(final int[] indices, final int count) {
+        if (count < 2)
+            return;
+        final PaletteTree tree = new PaletteTree(indices, count);
+        int previous = 1;
+        for (int c = 0; c < 0x8000; c++) {
+            if (paletteMapping[c] == 0)
+                paletteMapping[c] = (byte) (previous = tree.nearest(c, previous));
+        }
+    }
+
+    /**
+     * A k-d tree over the Lab coordinates of palette colors, stored implicitly: the node for a range of
+     * {@link #order} is at the middle of that range, with smaller coordinates on its split axis before it and larger
+     * ones after it. Distances use exactly the same arithmetic as {@link #difference(int, int, int, int, int, int)},
+     * and a subtree is only skipped when even its closest possible color is strictly farther than the best so far, so
+     * ties are still found and broken by lowest index.
+     */
+    private static final class PaletteTree {
+        private final int[] indices, order, axes;
+        /**
+         * The L, A and B coordinates of the palette color at each position of {@link #order}, copied out of
+         * {@link #LAB} so a search reads them in one place.
+         */
+        private final double[] ls, as, bs;
+        private double cellL, cellA, cellB, bestDist;
+        private int bestIndex;
+
+        PaletteTree(final int[] indices, final int count) {
+            this.indices = indices;
+            final int size = count - 1;
+            order = new int[size];
+            axes = new int[size];
+            ls = new double[size];
+            as = new double[size];
+            bs = new double[size];
+            for (int i = 1; i < count; i++) {
+                order[i - 1] = i;
+            }
+            build(0, size);
+            for (int k = 0; k < size; k++) {
+                final int p = indices[order[k]];
+                ls[k] = LAB[0][p];
+                as[k] = LAB[1][p];
+                bs[k] = LAB[2][p];
+            }
+        }
+
+        private void build(final int lo, final int hi) {
+            if (lo >= hi)
+                return;
+            // split on the axis where this range of colors is most spread out, weighting L the same way distance does
+            int axis = 0;
+            double widest = -1.0;
+            for (int a = 0; a < 3; a++) {
+                double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, v;
+                for (int k = lo; k < hi; k++) {
+                    v = LAB[a][indices[order[k]]];
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                v = (max - min) * (max - min) * (a == 0 ? 7 : 1);
+                if (v > widest) {
+                    widest = v;
+                    axis = a;
                 }
             }
+            // palettes have at most 256 colors, so an insertion sort is plenty
+            final double[] coords = LAB[axis];
+            for (int k = lo + 1; k < hi; k++) {
+                final int item = order[k];
+                final double v = coords[indices[item]];
+                int j = k - 1;
+                for (; j >= lo && coords[indices[order[j]]] > v; j--) {
+                    order[j + 1] = order[j];
+                }
+                order[j + 1] = item;
+            }
+            final int mid = lo + hi >>> 1;
+            axes[mid] = axis;
+            build(lo, mid);
+            build(mid + 1, hi);
+        }
+
+        /**
+         * Finds the nearest palette index to the RGB555 {@code cell}, starting from the distance to {@code guess}. A
+         * neighboring cell's answer is usually the right one or close to it, which lets the search skip more of the
+         * tree from the start; it can't change the result, because ties are still broken by lowest index.
+         */
+        int nearest(final int cell, final int guess) {
+            cellL = LAB[0][cell];
+            cellA = LAB[1][cell];
+            cellB = LAB[2][cell];
+            final int p = indices[guess];
+            final double
+                    L = LAB[0][p] - cellL,
+                    A = LAB[1][p] - cellA,
+                    B = LAB[2][p] - cellB;
+            bestDist = (L * L * 7 + A * A + B * B);
+            bestIndex = guess;
+            search(0, order.length);
+            return bestIndex;
+        }
+
+        private void search(final int lo, final int hi) {
+            if (lo >= hi)
+                return;
+            final int mid = lo + hi >>> 1, i = order[mid];
+            final double
+                    L = ls[mid] - cellL,
+                    A = as[mid] - cellA,
+                    B = bs[mid] - cellB,
+                    d = (L * L * 7 + A * A + B * B);
+            if (d < bestDist || (d == bestDist && i < bestIndex)) {
+                bestDist = d;
+                bestIndex = i;
+            }
+            final int axis = axes[mid];
+            final double diff = axis == 0 ? L : axis == 1 ? A : B,
+                    bound = axis == 0 ? diff * diff * 7 : diff * diff;
+            // every color past the split is at least bound away on this axis alone
+            if (diff > 0) {
+                search(lo, mid);
+                if (bound <= bestDist)
+                    search(mid + 1, hi);
+            } else {
+                search(mid + 1, hi);
+                if (bound <= bestDist)
+                    search(lo, mid);
+            }
         }
     }
 
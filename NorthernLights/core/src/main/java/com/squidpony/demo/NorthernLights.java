@@ -7,14 +7,15 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.NumberUtils;
 import com.badlogic.gdx.utils.TimeUtils;
-import com.github.tommyettinger.anim8.PNG8;
-import com.github.tommyettinger.anim8.AnimatedGif;
-import com.github.tommyettinger.anim8.AnimatedPNG;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.squidpony.AnimatedGif;
+import com.squidpony.AnimatedPNG;
+import com.squidpony.AnimatedPNG8;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /** {@link com.badlogic.gdx.ApplicationListener} implementation shared by all platforms. */
 public class NorthernLights extends ApplicationAdapter {
@@ -26,9 +27,8 @@ public class NorthernLights extends ApplicationAdapter {
     private int width, height;
     private float iw, ih;
     private final transient float[] con = new float[3];
-    private Array<Pixmap> frames;
     private AnimatedPNG animatedPNG;
-    private PNG8 iapng;
+    private AnimatedPNG8 iapng;
     private AnimatedGif animatedGif;
     @Override
     public void create() {
@@ -50,7 +50,7 @@ public class NorthernLights extends ApplicationAdapter {
         animatedPNG = new AnimatedPNG(width * height * 3 >>> 1);
         animatedGif = new AnimatedGif();
 //        animatedGif.palette = new PaletteReducer(new int[]{0, 255, -1});
-        iapng = new PNG8(width * height * 3 >>> 1);
+        iapng = new AnimatedPNG8(width * height * 3 >>> 1);
 //        iapng.palette = animatedGif.palette;
 //        iapng.palette = new PaletteReducer(new int[]{
 //                0x00000000, 0x19092DFF, 0x213118FF, 0x314A29FF, 0x8C847BFF, 0x6E868EFF, 0x9CA59CFF, 0xAFC7CFFF,
@@ -62,43 +62,64 @@ public class NorthernLights extends ApplicationAdapter {
 //                0x2910DEFF, 0x29189CFF, 0x21105AFF, 0x6329E7FF, 0x9C84CEFF, 0x8A49DBFF, 0xCEADE7FF, 0x9C29B5FF,
 //                0x6B1873FF, 0xD631DEFF, 0xE773D6FF, 0xA52973FF, 0xE7298CFF, 0xCF1562FF, 0x845A6BFF, 0xD66B7BFF
 //        });
-        frames = new Array<>(true, 120, Pixmap.class);
         iw = 1f / width;
         ih = 1f / height;
 //        width = Gdx.graphics.getWidth();
 //        height = Gdx.graphics.getHeight();
         
-        for (int i = 0; i < 50; i++) {
-            Pixmap frame = new Pixmap(width, height, Pixmap.Format.RGBA8888);
-            final int tm = i << 4;
-            final float rt = tm * RATE,
-                    ftm = rt * 0x5p-13f;
+        // each frame goes to all three encoders as soon as it is drawn, and is disposed right after, so only one
+        // frame (plus the few the GIF and indexed PNG copy to sample their palettes) is ever held in memory
+        final long time = TimeUtils.millis();
+        OutputStream pngOutput = null, iapngOutput = null, gifOutput = null;
+        try {
+            pngOutput = Gdx.files.local("animated" + time + ".png").write(false);
+            iapngOutput = Gdx.files.local("animatedIndexed" + time + ".png").write(false);
+            gifOutput = Gdx.files.local("animatedIndexed" + time + ".gif").write(false);
+            animatedPNG.begin(pngOutput, width, height, 20, 50);
+            iapng.begin(iapngOutput, width, height, 20, 50);
+            boolean gifOk = animatedGif.begin(gifOutput, width, height, 20);
+            for (int i = 0; i < 50; i++) {
+                Pixmap frame = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+                final int tm = i << 4;
+                final float rt = tm * RATE,
+                        ftm = rt * 0x5p-13f;
 
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    final float ax = x * iw, ay = y * ih; // adjusted for starting dimensions
-                    con[0] = ftm + ay;
-                    con[1] = ftm + ax;
-                    con[2] = ax + ay;
-                    cosmic(seed ^ 0xC13FA9A9, con, 1, 2, 0);
-                    cosmic(seed ^ 0xDB4F0B91, con, 2, 0, 1);
-                    cosmic(seed ^ 0x19F1D48E, con, 0, 1, 2);
-                    frame.setColor(swayTight(con[0]), swayTight(con[1]), swayTight(con[2]), 1f);
-                    frame.drawPixel(x, y
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        final float ax = x * iw, ay = y * ih; // adjusted for starting dimensions
+                        con[0] = ftm + ay;
+                        con[1] = ftm + ax;
+                        con[2] = ax + ay;
+                        cosmic(seed ^ 0xC13FA9A9, con, 1, 2, 0);
+                        cosmic(seed ^ 0xDB4F0B91, con, 2, 0, 1);
+                        cosmic(seed ^ 0x19F1D48E, con, 0, 1, 2);
+                        frame.setColor(swayTight(con[0]), swayTight(con[1]), swayTight(con[2]), 1f);
+                        frame.drawPixel(x, y
 //                            255 - Math.min(255, (int)(260 * Math.sqrt(((x - 128) * (x - 128) + (y - 128) * (y - 128)) * 0x1p-14)))
 ////use as the alpha to get a circle that fades at the edges
 //                            1f - Math.min(1f, (int)(1.02f * Math.sqrt(((x - 128) * (x - 128) + (y - 128) * (y - 128)) * 0x1p-14)))
-                    );
+                        );
+                    }
+                }
+                try {
+                    animatedPNG.addFrame(frame);
+                    iapng.addFrame(frame);
+                    gifOk &= animatedGif.addFrame(frame);
+                } finally {
+                    frame.dispose();
                 }
             }
-            frames.add(frame);
-        }
-        try {
-            animatedPNG.write(Gdx.files.local("animated" + TimeUtils.millis() + ".png"), frames, 20);
-            iapng.write(Gdx.files.local("animatedIndexed" + TimeUtils.millis() + ".png"), frames, 20);
-            animatedGif.write(Gdx.files.local("animatedIndexed" + TimeUtils.millis() + ".gif"), frames, 20);
+            animatedPNG.finish();
+            iapng.finish();
+            gifOk = animatedGif.finish() && gifOk;
+            if (!gifOk)
+                throw new IOException("Could not write animatedIndexed" + time + ".gif");
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            StreamUtils.closeQuietly(pngOutput);
+            StreamUtils.closeQuietly(iapngOutput);
+            StreamUtils.closeQuietly(gifOutput);
         }
     }
 
@@ -8,13 +8,14 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.scenes.scene2d.utils.UIUtils;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.StreamUtils;
 import com.badlogic.gdx.utils.TimeUtils;
-import com.github.tommyettinger.anim8.AnimatedGif;
-import com.github.tommyettinger.anim8.AnimatedPNG;
+import com.squidpony.AnimatedGif;
+import com.squidpony.AnimatedPNG;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Credit for the shader adaptation goes to angelickite , a very helpful user on the libGDX Discord.
@@ -88,44 +89,62 @@ public class NorthernLights extends ApplicationAdapter {
 	}
 
 	public void renderAPNG () {
-		Array<Pixmap> pixmaps = new Array<>(100);
-		for (int i = 1; i <= 80; i++) {
-			Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
-			Gdx.gl.glClear(Gdx.gl.GL_COLOR_BUFFER_BIT);
-			batch.begin();
-			shader.setUniformf("seed", seed);
-			shader.setUniformf("tm", i * 1.25f);
-			batch.draw(pixel, 0, 0, width, height);
-			batch.end();
-			pixmaps.add(ScreenUtils.getFrameBufferPixmap(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight()));
-		}
 		AnimatedPNG apng = new AnimatedPNG();
 		apng.setCompression(7);
+		OutputStream output = null;
 		try {
-			apng.write(Gdx.files.local("build/woahdude"+startTime+".png"), pixmaps, 20);
+			output = Gdx.files.local("build/woahdude"+startTime+".png").write(false);
+			apng.begin(output, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), 20, 80);
+			for (int i = 1; i <= 80; i++) {
+				Pixmap frame = renderFrame(i);
+				try {
+					apng.addFrame(frame);
+				} finally {
+					frame.dispose();
+				}
+			}
+			apng.finish();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} finally {
+			StreamUtils.closeQuietly(output);
+			apng.dispose();
 		}
 	}
 	public void renderGif() {
-		Array<Pixmap> pixmaps = new Array<>(100);
-		for (int i = 1; i <= 80; i++) {
-			Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
-			Gdx.gl.glClear(Gdx.gl.GL_COLOR_BUFFER_BIT);
-			batch.begin();
-			shader.setUniformf("seed", seed);
-			shader.setUniformf("tm", i * 1.25f);
-			batch.draw(pixel, 0, 0, width, height);
-			batch.end();
-			pixmaps.add(ScreenUtils.getFrameBufferPixmap(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight()));
-		}
 		AnimatedGif gif = new AnimatedGif();
 //		gif.palette = new PaletteReducer(new int[]{0x00000000, 0x2B2821FF, 0x624C3CFF, 0xD9AC8BFF, 0xE3CFB4FF,
 //				0x243D5CFF, 0x5D7275FF, 0x5C8B93FF, 0xB1A58DFF, 0xB03A48FF, 0xD4804DFF, 0xE0C872FF, 0x3E6958FF, });
+		OutputStream output = null;
 		try {
-			gif.write(Gdx.files.local("build/woahdude"+startTime+".gif"), pixmaps, 20);
+			output = Gdx.files.local("build/woahdude"+startTime+".gif").write(false);
+			boolean ok = gif.begin(output, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), 20);
+			for (int i = 1; i <= 80; i++) {
+				Pixmap frame = renderFrame(i);
+				ok &= gif.addFrame(frame);
+				frame.dispose();
+			}
+			ok = gif.finish() && ok;
+			if (!ok)
+				throw new IOException("Could not write build/woahdude"+startTime+".gif");
 		} catch (IOException e) {
 			e.printStackTrace();
+		} finally {
+			StreamUtils.closeQuietly(output);
 		}
 	}
+
+	/**
+	 * Draws the shader at the given step of an animation and reads it back; the caller must dispose the Pixmap.
+	 */
+	private Pixmap renderFrame (int i) {
+		Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+		Gdx.gl.glClear(Gdx.gl.GL_COLOR_BUFFER_BIT);
+		batch.begin();
+		shader.setUniformf("seed", seed);
+		shader.setUniformf("tm", i * 1.25f);
+		batch.draw(pixel, 0, 0, width, height);
+		batch.end();
+		return ScreenUtils.getFrameBufferPixmap(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+	}
 }
@@ -0,0 +1,430 @@
+package com.squidpony;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Streams frames into {@link AnimatedGif}, {@link AnimatedPNG8} and {@link AnimatedPNG} one at a time, disposing each
+ * frame as soon as it has been added, and then walks the bytes that come out to check they are a well-formed GIF or
+ * APNG with every frame in it. Each indexed encoder is checked both with a palette given up front and with the palette
+ * sampled from the first few frames, with more frames than are sampled and with fewer.
+ */
+public class AnimatedEncoderTest {
+    private static final int WIDTH = 48, HEIGHT = 32;
+    private static final int[] SIXTEEN = {
+            0x000000FF, 0x1D2B53FF, 0x7E2553FF, 0x008751FF, 0xAB5236FF, 0x5F574FFF, 0xC2C3C7FF, 0xFFF1E8FF,
+            0xFF004DFF, 0xFFA300FF, 0xFFEC27FF, 0x00E436FF, 0x29ADFFFF, 0x83769CFF, 0xFF77A8FF, 0xFFCCAAFF,
+    };
+
+    @BeforeClass
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    /**
+     * A frame that scrolls a gradient with some noise on it, so each frame differs and there are plenty of colors.
+     */
+    private static Pixmap frame(int index, int width, int height) {
+        final Random random = new Random(index);
+        final Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                pixmap.drawPixel(x, y, ((x * 5 + index * 16) & 0xFF) << 24 | ((y * 7) & 0xFF) << 16
+                        | (random.nextInt() & 0xFF00) | 0xFF);
+            }
+        }
+        return pixmap;
+    }
+
+    private static byte[] writeGif(AnimatedGif gif, int frames) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(gif.begin(output, WIDTH, HEIGHT, 20));
+        for (int i = 0; i < frames; i++) {
+            final Pixmap pixmap = frame(i, WIDTH, HEIGHT);
+            assertTrue(gif.addFrame(pixmap));
+            pixmap.dispose();
+        }
+        assertTrue(gif.finish());
+        return output.toByteArray();
+    }
+
+    private static byte[] writePNG8(AnimatedPNG8 png, int frames, int width, int height) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        png.begin(output, width, height, 20, frames);
+        for (int i = 0; i < frames; i++) {
+            final Pixmap pixmap = frame(i, width, height);
+            png.addFrame(pixmap);
+            pixmap.dispose();
+        }
+        png.finish();
+        return output.toByteArray();
+    }
+
+    /**
+     * Walks a GIF block by block, checking that every image is the full size and decodes to exactly that many pixels,
+     * each using one of the first {@code colors} palette entries, and that the trailer is the last byte.
+     *
+     * @return the global color table, as RGBA8888 ints
+     */
+    private static int[] checkGif(byte[] bytes, int frames, int colors) {
+        final ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        final byte[] header = new byte[6];
+        in.get(header);
+        assertEquals("GIF89a", new String(header));
+        assertEquals(WIDTH, in.getShort());
+        assertEquals(HEIGHT, in.getShort());
+        final int packed = in.get() & 0xFF;
+        assertTrue("no global color table", (packed & 0x80) != 0);
+        in.get();
+        in.get();
+        final int[] palette = readColorTable(in, packed);
+        int images = 0, controls = 0, loops = 0;
+        while (true) {
+            final int block = in.get() & 0xFF;
+            if (block == 0x3B)
+                break;
+            if (block == 0x21) {
+                final int label = in.get() & 0xFF;
+                if (label == 0xF9)
+                    controls++;
+                else if (label == 0xFF)
+                    loops++;
+                skipSubBlocks(in);
+            } else if (block == 0x2C) {
+                assertEquals("a frame came before its graphic control extension", images + 1, controls);
+                assertEquals(0, in.getShort());
+                assertEquals(0, in.getShort());
+                assertEquals(WIDTH, in.getShort());
+                assertEquals(HEIGHT, in.getShort());
+                final int imagePacked = in.get() & 0xFF;
+                if ((imagePacked & 0x80) != 0)
+                    readColorTable(in, imagePacked);
+                final int minCodeSize = in.get() & 0xFF;
+                final byte[] indices = decodeLzw(readSubBlocks(in), minCodeSize, WIDTH * HEIGHT);
+                for (int i = 0; i < indices.length; i++) {
+                    assertTrue("pixel uses color " + (indices[i] & 0xFF), (indices[i] & 0xFF) < colors);
+                }
+                images++;
+            } else {
+                fail("Unknown GIF block 0x" + Integer.toHexString(block) + " at " + (in.position() - 1));
+            }
+        }
+        assertEquals("the trailer must be the last byte", bytes.length, in.position());
+        assertEquals(frames, images);
+        assertEquals(frames, controls);
+        assertEquals(1, loops);
+        return palette;
+    }
+
+    private static int[] readColorTable(ByteBuffer in, int packed) {
+        final int[] table = new int[2 << (packed & 7)];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (in.get() & 0xFF) << 24 | (in.get() & 0xFF) << 16 | (in.get() & 0xFF) << 8 | 0xFF;
+        }
+        return table;
+    }
+
+    private static void skipSubBlocks(ByteBuffer in) {
+        for (int size = in.get() & 0xFF; size != 0; size = in.get() & 0xFF) {
+            in.position(in.position() + size);
+        }
+    }
+
+    private static byte[] readSubBlocks(ByteBuffer in) {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int size = in.get() & 0xFF; size != 0; size = in.get() & 0xFF) {
+            data.write(in.array(), in.position(), size);
+            in.position(in.position() + size);
+        }
+        return data.toByteArray();
+    }
+
+    /**
+     * A plain GIF LZW decoder; fails if the data doesn't hold exactly {@code count} pixels followed by an end code.
+     */
+    private static byte[] decodeLzw(byte[] data, int minCodeSize, int count) {
+        final int clear = 1 << minCodeSize, end = clear + 1;
+        final int[] prefix = new int[4096];
+        final byte[] suffix = new byte[4096], stack = new byte[4097], out = new byte[count];
+        int codeSize = minCodeSize + 1, next = end + 1, previous = -1, first = 0, written = 0;
+        int bits = 0, bitCount = 0, position = 0;
+        while (true) {
+            while (bitCount < codeSize) {
+                assertTrue("LZW data ended without an end code", position < data.length);
+                bits |= (data[position++] & 0xFF) << bitCount;
+                bitCount += 8;
+            }
+            final int code = bits & (1 << codeSize) - 1;
+            bits >>>= codeSize;
+            bitCount -= codeSize;
+            if (code == clear) {
+                codeSize = minCodeSize + 1;
+                next = end + 1;
+                previous = -1;
+                continue;
+            }
+            if (code == end)
+                break;
+            int top = 0, current = code;
+            if (previous == -1) {
+                assertTrue(code < clear);
+                stack[top++] = (byte) code;
+            } else {
+                assertTrue("LZW code " + code + " is past the table", code <= next);
+                if (code == next) {
+                    stack[top++] = (byte) first;
+                    current = previous;
+                }
+                while (current >= clear) {
+                    stack[top++] = suffix[current];
+                    current = prefix[current];
+                }
+                stack[top++] = (byte) current;
+            }
+            first = stack[top - 1] & 0xFF;
+            assertTrue("more than " + count + " pixels", written + top <= count);
+            while (top > 0)
+                out[written++] = stack[--top];
+            if (previous != -1 && next < 4096) {
+                prefix[next] = previous;
+                suffix[next] = (byte) first;
+                if (++next == 1 << codeSize && codeSize < 12)
+                    codeSize++;
+            }
+            previous = code;
+        }
+        assertEquals(count, written);
+        return out;
+    }
+
+    private static final class Chunk {
+        final String type;
+        final byte[] data;
+
+        Chunk(String type, byte[] data) {
+            this.type = type;
+            this.data = data;
+        }
+
+        int intAt(int offset) {
+            return ByteBuffer.wrap(data).getInt(offset);
+        }
+    }
+
+    private static ArrayList<Chunk> readChunks(byte[] bytes) {
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        assertEquals(0x89504E470D0A1A0AL, in.getLong());
+        final ArrayList<Chunk> chunks = new ArrayList<>();
+        final CRC32 crc = new CRC32();
+        while (in.hasRemaining()) {
+            final int length = in.getInt();
+            final byte[] type = new byte[4], data = new byte[length];
+            in.get(type);
+            in.get(data);
+            crc.reset();
+            crc.update(type);
+            crc.update(data);
+            assertEquals("bad CRC on " + new String(type), (int) crc.getValue(), in.getInt());
+            chunks.add(new Chunk(new String(type), data));
+        }
+        return chunks;
+    }
+
+    /**
+     * Checks the chunk order of an APNG: IHDR first, an acTL with the frame count, then for each frame an fcTL followed
+     * by its data in one or more IDAT chunks (first frame) or fdAT chunks (later frames), with fcTL and fdAT sharing one
+     * sequence that counts up from 0 without gaps, and IEND last. Each frame's data is inflated to check it holds every
+     * row of the frame.
+     *
+     * @return the chunks, for further checks
+     */
+    private static ArrayList<Chunk> checkApng(byte[] bytes, int frames, int width, int height, int bytesPerPixel)
+            throws DataFormatException {
+        final ArrayList<Chunk> chunks = readChunks(bytes);
+        assertEquals("IHDR", chunks.get(0).type);
+        assertEquals(width, chunks.get(0).intAt(0));
+        assertEquals(height, chunks.get(0).intAt(4));
+        assertEquals("IEND", chunks.get(chunks.size() - 1).type);
+        int i = 1;
+        while (!chunks.get(i).type.equals("acTL")) {
+            assertFalse("frame data before acTL", chunks.get(i).type.equals("IDAT") || chunks.get(i).type.equals("fcTL"));
+            i++;
+        }
+        assertEquals(frames, chunks.get(i).intAt(0));
+        assertEquals(0, chunks.get(i).intAt(4));
+        i++;
+        int sequence = 0;
+        final Inflater inflater = new Inflater();
+        final byte[] raw = new byte[height * (1 + width * bytesPerPixel)];
+        for (int f = 0; f < frames; f++) {
+            final Chunk control = chunks.get(i++);
+            assertEquals("fcTL", control.type);
+            assertEquals(sequence++, control.intAt(0));
+            assertEquals(width, control.intAt(4));
+            assertEquals(height, control.intAt(8));
+            final String dataType = f == 0 ? "IDAT" : "fdAT";
+            final int skip = f == 0 ? 0 : 4;
+            assertEquals(dataType, chunks.get(i).type);
+            inflater.reset();
+            while (chunks.get(i).type.equals(dataType)) {
+                final Chunk data = chunks.get(i++);
+                if (skip != 0)
+                    assertEquals(sequence++, data.intAt(0));
+                inflater.setInput(data.data, skip, data.data.length - skip);
+                inflater.inflate(raw, inflater.getTotalOut(), raw.length - inflater.getTotalOut());
+            }
+            assertTrue("frame " + f + " has too little data", inflater.finished());
+            assertEquals(raw.length, inflater.getTotalOut());
+            for (int row = 0; row < raw.length; row += 1 + width * bytesPerPixel) {
+                assertEquals("Paeth filter", 4, raw[row]);
+            }
+        }
+        inflater.end();
+        assertEquals("chunks after the last frame", chunks.size() - 1, i);
+        return chunks;
+    }
+
+    private static int[] readPLTE(ArrayList<Chunk> chunks) {
+        for (Chunk chunk : chunks) {
+            if (chunk.type.equals("PLTE")) {
+                final int[] palette = new int[chunk.data.length / 3];
+                for (int i = 0, b = 0; i < palette.length; i++) {
+                    palette[i] = (chunk.data[b++] & 0xFF) << 24 | (chunk.data[b++] & 0xFF) << 16
+                            | (chunk.data[b++] & 0xFF) << 8 | 0xFF;
+                }
+                return palette;
+            }
+        }
+        fail("no PLTE chunk");
+        return null;
+    }
+
+    private static int[] firstSixteen(int[] palette) {
+        final int[] start = new int[SIXTEEN.length];
+        System.arraycopy(palette, 0, start, 0, start.length);
+        return start;
+    }
+
+    @Test
+    public void gifWithGivenPalette() {
+        final AnimatedGif gif = new AnimatedGif();
+        gif.palette = new PaletteReducer(SIXTEEN);
+        assertArrayEquals(SIXTEEN, firstSixteen(checkGif(writeGif(gif, 12), 12, SIXTEEN.length)));
+    }
+
+    @Test
+    public void gifWithSampledPalette() {
+        final AnimatedGif gif = new AnimatedGif();
+        gif.paletteSampleFrames = 4;
+        checkGif(writeGif(gif, 11), 11, 256);
+        assertNotNull(gif.palette);
+    }
+
+    @Test
+    public void gifWithFewerFramesThanSampled() {
+        final AnimatedGif gif = new AnimatedGif();
+        checkGif(writeGif(gif, 3), 3, 256);
+        assertNotNull(gif.palette);
+    }
+
+    @Test
+    public void png8WithGivenPalette() throws IOException, DataFormatException {
+        final AnimatedPNG8 png = new AnimatedPNG8();
+        png.palette = new PaletteReducer(SIXTEEN);
+        final ArrayList<Chunk> chunks = checkApng(writePNG8(png, 12, WIDTH, HEIGHT), 12, WIDTH, HEIGHT, 1);
+        assertArrayEquals(SIXTEEN, firstSixteen(readPLTE(chunks)));
+        png.dispose();
+    }
+
+    @Test
+    public void png8WithSampledPalette() throws IOException, DataFormatException {
+        final AnimatedPNG8 png = new AnimatedPNG8();
+        png.paletteSampleFrames = 4;
+        checkApng(writePNG8(png, 11, WIDTH, HEIGHT), 11, WIDTH, HEIGHT, 1);
+        assertNotNull(png.palette);
+        png.dispose();
+    }
+
+    @Test
+    public void png8WithFewerFramesThanSampled() throws IOException, DataFormatException {
+        final AnimatedPNG8 png = new AnimatedPNG8();
+        checkApng(writePNG8(png, 3, WIDTH, HEIGHT), 3, WIDTH, HEIGHT, 1);
+        assertNotNull(png.palette);
+        png.dispose();
+    }
+
+    /**
+     * Frames big and noisy enough that their compressed data passes 64 KB, so each is split over several data chunks,
+     * each of which takes its own sequence number.
+     */
+    @Test
+    public void png8SplitsLargeFrames() throws IOException, DataFormatException {
+        final AnimatedPNG8 png = new AnimatedPNG8();
+        final int width = 400, height = 300;
+        final ArrayList<Chunk> chunks = checkApng(writePNG8(png, 3, width, height), 3, width, height, 1);
+        int data = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.type.equals("IDAT") || chunk.type.equals("fdAT"))
+                data++;
+        }
+        assertTrue("only " + data + " data chunks for 3 frames", data > 3);
+        png.dispose();
+    }
+
+    @Test
+    public void png8RejectsWrongFrameCount() throws IOException {
+        final AnimatedPNG8 png = new AnimatedPNG8();
+        png.palette = new PaletteReducer(SIXTEEN);
+        final Pixmap pixmap = frame(0, WIDTH, HEIGHT);
+        png.begin(new ByteArrayOutputStream(), WIDTH, HEIGHT, 20, 2);
+        png.addFrame(pixmap);
+        try {
+            png.finish();
+            fail("finish() accepted 1 frame after begin() was told 2.");
+        } catch (IOException expected) {
+        }
+        png.begin(new ByteArrayOutputStream(), WIDTH, HEIGHT, 20, 1);
+        png.addFrame(pixmap);
+        try {
+            png.addFrame(pixmap);
+            fail("addFrame() accepted 2 frames after begin() was told 1.");
+        } catch (IOException expected) {
+        }
+        pixmap.dispose();
+        png.dispose();
+    }
+
+    @Test
+    public void fullColorPng() throws IOException, DataFormatException {
+        final AnimatedPNG png = new AnimatedPNG();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        png.begin(output, WIDTH, HEIGHT, 20, 7);
+        for (int i = 0; i < 7; i++) {
+            final Pixmap pixmap = frame(i, WIDTH, HEIGHT);
+            png.addFrame(pixmap);
+            pixmap.dispose();
+        }
+        png.finish();
+        checkApng(output.toByteArray(), 7, WIDTH, HEIGHT, 4);
+        png.dispose();
+    }
+}
@@ -25,6 +25,16 @@ public class AnimatedGlider extends TextureRegion {
         super();
         this.color = Color.WHITE_FLOAT_BITS;
     }
+    /**
+     * Makes a glider with no animation or texture; it can move, but can't be drawn. Used by headless benchmarks.
+     * @param coord the starting and ending position
+     */
+    public AnimatedGlider(Coord coord) {
+        this();
+        this.start = coord;
+        this.end = coord;
+    }
+
     public AnimatedGlider(Animation<TextureRegion> animation) {
         super();
         this.animation = animation;
@@ -0,0 +1,28 @@
+package com.github.tommyettinger.demos;
+
+import com.badlogic.gdx.utils.Disposable;
+import squidpony.squidmath.Coord;
+
+/**
+ * Plans one step for every monster in a turn without moving any of them; the caller commits the planned steps
+ * afterwards. Implementations must produce the same plan for the same arguments no matter how the work is divided up,
+ * which {@link PathPlanner} takes care of as long as each monster is planned by exactly one PathPlanner.
+ */
+public interface MonsterPlanner extends Disposable {
+    /**
+     * Called once the dungeon has been generated, and again if it changes.
+     * @param map the dungeon monsters will path through, as used to construct a DijkstraMap
+     */
+    void reset(char[][] map);
+
+    /**
+     * Fills moves with the cell each monster would like to step into this turn, or its current cell if it shouldn't
+     * move. The plan for monster i depends only on {@code starts[i]}, {@code goals[i]}, the other starts, seed, and i.
+     * @param starts where each monster is at the start of the turn; every one of these cells is treated as occupied
+     * @param goals goals[i] is the cell the monster at starts[i] is trying to reach
+     * @param count how many monsters to plan for, starting at index 0
+     * @param seed a different value each turn, used to break ties between equally good steps
+     * @param moves will be filled with the planned step for each monster
+     */
+    void plan(Coord[] starts, Coord[] goals, int count, long seed, Coord[] moves);
+}
@@ -0,0 +1,205 @@
+package com.github.tommyettinger.demos;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import squidpony.squidai.DijkstraMap;
+import squidpony.squidgrid.Direction;
+import squidpony.squidgrid.Measurement;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GWTRNG;
+import squidpony.squidmath.GreasedRegion;
+
+import java.util.ArrayList;
+
+/**
+ * The monster movement logic from {@link PathfindingStressTest}, kept apart from anything that needs a GL context so
+ * it can also be run headless (for benchmarks). Each call to {@link #move()} gives every monster a random goal from
+ * the floor cells and moves it at most one step toward that goal, using whichever {@link TurnMode} is current.
+ */
+public class MonsterTurns {
+    /**
+     * How monsters pick their next step. PER_MONSTER runs one DijkstraMap scan for each monster; FLOW_FIELD groups
+     * monsters whose goals are near each other and runs one scan per group; PLANNED has the MonsterPlanner find every
+     * monster's step from the positions at the start of the turn, then commits them in order.
+     */
+    public enum TurnMode {PER_MONSTER, FLOW_FIELD, PLANNED}
+
+    /** How far, in steps, a goal's distance field spreads; monsters farther than this from their goal stay put. */
+    public static final int scanLimit = 7;
+    /** In FLOW_FIELD mode, goals in the same flowGroupSpan by flowGroupSpan block of cells share one distance field. */
+    public static final int flowGroupSpan = 6;
+
+    public TurnMode turnMode = TurnMode.PER_MONSTER;
+    /** Monsters by position; add monsters here before calling {@link #move()}, at most capacity of them. */
+    public final OccupancyIndex monsters;
+
+    private final GWTRNG rng;
+    private final int width, height;
+    private final Coord[] floorArray;
+    private final DijkstraMap getToPlayer, flowMap;
+    private final ArrayList<Coord> awaitedMoves = new ArrayList<>(200);
+    private final Coord[] GOAL = new Coord[1];
+    // keys are group numbers (which block of the map a goal is in), values are indices into monsters and floorArray
+    private final IntMap<IntArray> flowGroups = new IntMap<>(64);
+    // used by PLANNED mode; the planner may be multi-threaded, depending on the platform
+    private final MonsterPlanner planner;
+    private final Coord[] plannedStarts, plannedMoves;
+
+    /**
+     * @param map the dungeon, as used to construct a DijkstraMap
+     * @param floors every cell a goal can be placed in; must have at least capacity cells
+     * @param rng used to shuffle goals each turn, and to seed the planner in PLANNED mode
+     * @param planner used in PLANNED mode; desktop passes a multi-threaded one, which must give the same results as
+     *                {@link SerialMonsterPlanner} for the same seed
+     * @param capacity the most monsters this will need to move
+     */
+    public MonsterTurns(char[][] map, GreasedRegion floors, GWTRNG rng, MonsterPlanner planner, int capacity) {
+        this.rng = rng;
+        this.planner = planner;
+        width = map.length;
+        height = map[0].length;
+        floorArray = floors.asCoords();
+        monsters = new OccupancyIndex(width, height, capacity);
+        getToPlayer = new DijkstraMap(map, Measurement.EUCLIDEAN);
+        flowMap = new DijkstraMap(map, Measurement.EUCLIDEAN);
+        planner.reset(map);
+        plannedStarts = new Coord[capacity];
+        plannedMoves = new Coord[capacity];
+    }
+
+    /**
+     * Moves each monster at most one step, changing its key in {@link #monsters} and its glider's start and end.
+     */
+    public void move() {
+        // the monster at index ci in monsters will try to reach floorArray[ci], in every mode
+        rng.shuffleInPlace(floorArray);
+        switch (turnMode) {
+            case FLOW_FIELD:
+                flowFieldMove();
+                break;
+            case PLANNED:
+                plannedMove();
+                break;
+            default:
+                perMonsterMove();
+        }
+    }
+
+    private void perMonsterMove() {
+        // monsters is itself a Set of the occupied cells, and it stays up to date as monsters move, so it can be
+        // passed as the impassable cells without copying (so monsters don't move into each others' spaces)
+        int monCount = monsters.size();
+
+        for (int ci = 0; ci < monCount; ci++) {
+            Coord pos = monsters.firstKey();
+            AnimatedGlider mon = monsters.removeFirst();
+            getToPlayer.clearGoals();
+            GOAL[0] = floorArray[ci];
+            awaitedMoves.clear();
+            getToPlayer.findPath(awaitedMoves, 1, scanLimit, monsters, null, pos, GOAL);
+            if (!awaitedMoves.isEmpty()) {
+                Coord tmp = awaitedMoves.get(0);
+                // if we would move into the player, instead damage the player and give newMons the current
+                // position of this monster.
+                if (tmp.x == GOAL[0].x && tmp.y == GOAL[0].y) {
+                    monsters.put(pos, mon);
+                }
+                // otherwise store the new position in newMons.
+                else {
+                    mon.start = pos;
+                    mon.end = tmp;
+                    mon.change = 0f;
+                    monsters.put(tmp, mon);
+                }
+            } else {
+                monsters.put(pos, mon);
+            }
+        }
+    }
+
+    /**
+     * Moves every monster using one distance field per group of nearby goals, instead of one per monster. The field is
+     * scanned without any monsters blocking it, so it can be shared; monsters avoid each other when they read their
+     * next step from it, by skipping any neighbor that is occupied in monsters (the same cells perMonsterMove() treats
+     * as impassable). Because {@link OccupancyIndex#alter(Coord, Coord)} keeps a monster at the same index, the goal at
+     * floorArray[ci] stays matched to the monster at index ci while the turn is processed.
+     */
+    private void flowFieldMove() {
+        final int monCount = monsters.size(), groupsWide = (width + flowGroupSpan - 1) / flowGroupSpan;
+        for (IntArray group : flowGroups.values())
+            group.clear();
+        for (int ci = 0; ci < monCount; ci++) {
+            final Coord goal = floorArray[ci];
+            final int key = goal.x / flowGroupSpan + goal.y / flowGroupSpan * groupsWide;
+            IntArray group = flowGroups.get(key);
+            if(group == null)
+                flowGroups.put(key, group = new IntArray(8));
+            group.add(ci);
+        }
+        for (IntArray group : flowGroups.values()) {
+            if(group.size == 0)
+                continue;
+            flowMap.clearGoals();
+            flowMap.resetMap();
+            for (int i = 0; i < group.size; i++) {
+                flowMap.setGoal(floorArray[group.get(i)]);
+            }
+            flowMap.partialScan(null, scanLimit, null);
+            for (int i = 0; i < group.size; i++) {
+                final int ci = group.get(i);
+                final Coord pos = monsters.keyAt(ci), tmp = flowStep(pos);
+                // like perMonsterMove(), a monster that would step onto a goal stays where it is
+                if (tmp != null && flowMap.gradientMap[tmp.x][tmp.y] != DijkstraMap.GOAL) {
+                    monsters.alter(pos, tmp);
+                    AnimatedGlider mon = monsters.getAt(ci);
+                    mon.start = pos;
+                    mon.end = tmp;
+                    mon.change = 0f;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves every monster in two phases. First, the planner finds a step for each monster, treating every cell that
+     * has a monster at the start of the turn as blocked; it can do this in parallel because nothing moves yet. Then
+     * the planned steps are committed in index order, and a monster whose cell was already taken by an earlier monster
+     * this turn stays where it is. The results depend only on rng's state, not on how many threads the planner uses.
+     */
+    private void plannedMove() {
+        final int monCount = monsters.size();
+        for (int ci = 0; ci < monCount; ci++) {
+            plannedStarts[ci] = monsters.keyAt(ci);
+        }
+        planner.plan(plannedStarts, floorArray, monCount, rng.nextLong(), plannedMoves);
+        for (int ci = 0; ci < monCount; ci++) {
+            final Coord pos = plannedStarts[ci], tmp = plannedMoves[ci];
+            if (tmp.equals(pos) || monsters.isOccupied(tmp.x, tmp.y))
+                continue;
+            monsters.alter(pos, tmp);
+            AnimatedGlider mon = monsters.getAt(ci);
+            mon.start = pos;
+            mon.end = tmp;
+            mon.change = 0f;
+        }
+    }
+
+    /**
+     * Finds the lowest neighbor of pos in flowMap's current distance field that isn't occupied by a monster.
+     * @param pos where a monster is now
+     * @return the cell that monster should move into, or null if no neighbor is closer to a goal
+     */
+    private Coord flowStep(final Coord pos) {
+        final double[][] gradient = flowMap.gradientMap;
+        double best = gradient[pos.x][pos.y];
+        Coord choice = null;
+        for (Direction dir : Direction.OUTWARDS) {
+            final int x = pos.x + dir.deltaX, y = pos.y + dir.deltaY;
+            if (x < 0 || y < 0 || x >= width || y >= height || gradient[x][y] >= best || monsters.isOccupied(x, y))
+                continue;
+            best = gradient[x][y];
+            choice = Coord.get(x, y);
+        }
+        return choice;
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.tommyettinger.demos;
+
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.squidmath.OrderedMap;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * Keeps track of which cells hold a monster in two ways at once: a GreasedRegion with one bit per cell, so checking
+ * whether a cell is occupied is a single bit test, and an OrderedMap from position to monster, so visiting every
+ * monster only touches occupied cells instead of every cell on the map. The two are kept in sync by
+ * {@link #put(Coord, AnimatedGlider)}, {@link #alter(Coord, Coord)}, and {@link #removeFirst()}.
+ * <br>
+ * This is also a Set of the occupied positions, so it can be passed directly as the impassable cells to
+ * {@link squidpony.squidai.DijkstraMap#findPath}; that iterates over it once per path, which goes through the
+ * OrderedMap's keys in order, and any contains() check is a bit test.
+ */
+public class OccupancyIndex extends AbstractSet<Coord> {
+    /** One bit per cell; a cell is "on" if and only if a monster is in it. Don't modify this directly. */
+    public final GreasedRegion occupied;
+    private final OrderedMap<Coord, AnimatedGlider> monsters;
+
+    /**
+     * @param width the width of the map, in cells
+     * @param height the height of the map, in cells
+     * @param capacity how many monsters this should be able to hold without resizing
+     */
+    public OccupancyIndex(int width, int height, int capacity) {
+        occupied = new GreasedRegion(width, height);
+        monsters = new OrderedMap<>(capacity);
+    }
+
+    /**
+     * @return true if a monster is at (x, y); false if the cell is empty or out of bounds
+     */
+    public boolean isOccupied(int x, int y) {
+        return occupied.contains(x, y);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o instanceof Coord) {
+            final Coord c = (Coord) o;
+            return occupied.contains(c.x, c.y);
+        }
+        return false;
+    }
+
+    /**
+     * @return the monster at pos, or null if there isn't one; empty cells don't need a hash lookup
+     */
+    public AnimatedGlider get(Coord pos) {
+        return occupied.contains(pos.x, pos.y) ? monsters.get(pos) : null;
+    }
+
+    public AnimatedGlider getAt(int index) {
+        return monsters.getAt(index);
+    }
+
+    public Coord keyAt(int index) {
+        return monsters.keyAt(index);
+    }
+
+    public Coord firstKey() {
+        return monsters.firstKey();
+    }
+
+    /**
+     * Adds monster at pos, after any monsters already here, or replaces the monster at pos if there is one.
+     * @return the monster previously at pos, or null
+     */
+    public AnimatedGlider put(Coord pos, AnimatedGlider monster) {
+        occupied.insert(pos);
+        return monsters.put(pos, monster);
+    }
+
+    /**
+     * Moves the monster at from to the empty cell to, without changing its position in the iteration order.
+     * @return the monster that was moved, or null if there was no monster at from
+     */
+    public AnimatedGlider alter(Coord from, Coord to) {
+        final AnimatedGlider monster = monsters.alter(from, to);
+        if (monster != null) {
+            occupied.remove(from);
+            occupied.insert(to);
+        }
+        return monster;
+    }
+
+    /**
+     * Removes the first monster in iteration order and marks its cell as empty.
+     * @return the monster that was removed
+     */
+    public AnimatedGlider removeFirst() {
+        occupied.remove(monsters.firstKey());
+        return monsters.removeFirst();
+    }
+
+    @Override
+    public Iterator<Coord> iterator() {
+        return monsters.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return monsters.size();
+    }
+
+    @Override
+    public void clear() {
+        occupied.clear();
+        monsters.clear();
+    }
+}
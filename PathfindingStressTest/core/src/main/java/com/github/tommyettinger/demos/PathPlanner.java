@@ -0,0 +1,64 @@
+package com.github.tommyettinger.demos;
+
+import squidpony.squidai.DijkstraMap;
+import squidpony.squidgrid.Measurement;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GWTRNG;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Plans steps for a range of monsters using its own DijkstraMap, GWTRNG, and copy of the occupied cells, so separate
+ * PathPlanner objects can be used by separate threads at the same time. The RNG is reseeded from the turn's seed and
+ * the monster's index before each path is found, so a monster's step doesn't depend on which PathPlanner found it or
+ * what that PathPlanner did before.
+ */
+public class PathPlanner {
+    private final GWTRNG random;
+    private final DijkstraMap dijkstra;
+    private final HashSet<Coord> blocked;
+    private final ArrayList<Coord> path = new ArrayList<>(4);
+    private final Coord[] goal = new Coord[1];
+
+    public PathPlanner(char[][] map)
+    {
+        random = new GWTRNG(1);
+        dijkstra = new DijkstraMap(map, Measurement.EUCLIDEAN, random);
+        blocked = new HashSet<>(64);
+    }
+
+    /**
+     * Plans steps for the monsters from index {@code from} (inclusive) to {@code to} (exclusive); the other parameters
+     * are the same as in {@link MonsterPlanner#plan(Coord[], Coord[], int, long, Coord[])}.
+     */
+    public void plan(Coord[] starts, Coord[] goals, int count, int from, int to, long seed, Coord[] moves)
+    {
+        // DijkstraMap copies the impassable cells into its own set for every path, which needs fast iteration; a
+        // GreasedRegion would be smaller, but iterating over one as a Collection gets slower the more cells it holds
+        blocked.clear();
+        for (int i = 0; i < count; i++) {
+            blocked.add(starts[i]);
+        }
+        for (int i = from; i < to; i++) {
+            moves[i] = plan(starts[i], goals[i], seed + i * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    private Coord plan(Coord start, Coord target, long stepSeed)
+    {
+        random.setState(stepSeed);
+        // a monster never blocks its own path
+        blocked.remove(start);
+        goal[0] = target;
+        path.clear();
+        dijkstra.clearGoals();
+        dijkstra.findPath(path, 1, MonsterTurns.scanLimit, blocked, null, start, goal);
+        blocked.add(start);
+        if(path.isEmpty())
+            return start;
+        Coord next = path.get(0);
+        // if we would move into the goal, stay put instead, like the per-monster mode does
+        return next.equals(target) ? start : next;
+    }
+}
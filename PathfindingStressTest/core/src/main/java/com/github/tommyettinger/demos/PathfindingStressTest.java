@@ -16,18 +16,14 @@ import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.Scaling;
 import com.badlogic.gdx.utils.TimeUtils;
 import squidpony.ArrayTools;
-import squidpony.squidai.DijkstraMap;
-import squidpony.squidgrid.Measurement;
 import squidpony.squidgrid.mapping.DungeonGenerator;
 import squidpony.squidgrid.mapping.DungeonUtility;
 import squidpony.squidmath.Coord;
 import squidpony.squidmath.GWTRNG;
 import squidpony.squidmath.GreasedRegion;
-import squidpony.squidmath.OrderedMap;
-
-import java.util.ArrayList;
 
 import static com.badlogic.gdx.Input.Keys.ESCAPE;
+import static com.badlogic.gdx.Input.Keys.F;
 
 /**
  */
@@ -91,10 +87,11 @@ public class PathfindingStressTest extends ApplicationAdapter {
     private PixelPerfectViewport mainViewport;
     private Camera camera;
     
-    private OrderedMap<Coord, AnimatedGlider> monsters;
-    private DijkstraMap getToPlayer;
+    private OccupancyIndex monsters;
+    // moves the monsters each turn; press F to change its TurnMode
+    private MonsterTurns turns;
+    private final MonsterPlanner planner;
     private Coord cursor;
-    private ArrayList<Coord> awaitedMoves;
     private String lang;
     private TextureAtlas.AtlasRegion solid;
 
@@ -109,7 +106,6 @@ public class PathfindingStressTest extends ApplicationAdapter {
     // the player's vision that blocks pathfinding to areas we can't see a path to, and we also store all cells that we
     // have seen in the past in a GreasedRegion (in most roguelikes, there would be one of these per dungeon floor).
     private GreasedRegion floors;
-    private Coord[] floorArray;
     private AnimatedGlider playerSprite;
     // libGDX can use a kind of packed float (yes, the number type) to efficiently store colors, but it also uses a
     // heavier-weight Color object sometimes; SquidLib has a large list of SColor objects that are often used as easy
@@ -135,6 +131,18 @@ public class PathfindingStressTest extends ApplicationAdapter {
                     //-0x1.7e7e7ep125F; // same result as SColor.CW_GRAY_BLACK.toFloatBits()
     // the player's color as a float
 //    private float playerColor;
+
+    public PathfindingStressTest() {
+        this(new SerialMonsterPlanner());
+    }
+
+    /**
+     * @param planner used by {@link MonsterTurns} in PLANNED mode; desktop passes a multi-threaded one
+     */
+    public PathfindingStressTest(MonsterPlanner planner) {
+        this.planner = planner;
+    }
+
     @Override
     public void create () {
         // Starting time for the game; other times are measured relative to this so they aren't huge numbers.
@@ -862,9 +870,8 @@ public class PathfindingStressTest extends ApplicationAdapter {
 
         // Here we fill a GreasedRegion so it stores the cells that contain a floor, the '.' char, as "on."
         floors = new GreasedRegion(bareDungeon, '.');
-        floorArray = floors.asCoords();
-
-        monsters = new OrderedMap<>(numMonsters);
+        turns = new MonsterTurns(decoDungeon, floors, rng, planner, numMonsters);
+        monsters = turns.monsters;
         for (int i = 0; i < numMonsters; i++) {
             Coord monPos = floors.singleRandom(rng);
             floors.remove(monPos);
@@ -876,11 +883,6 @@ public class PathfindingStressTest extends ApplicationAdapter {
             // new Color().fromHsv(rng.nextFloat(), 0.75f, 0.8f));
             monsters.put(monPos, monster);
         }
-        //When a path is confirmed by clicking, we draw from this List to find which cell is next to move into.
-        awaitedMoves = new ArrayList<>(200);
-
-        getToPlayer = new DijkstraMap(decoDungeon, Measurement.EUCLIDEAN);
-
 
         bgColor = Color.BLACK;
         
@@ -902,6 +904,10 @@ public class PathfindingStressTest extends ApplicationAdapter {
                 case ESCAPE:
                     Gdx.app.exit();
                     break;
+                case F:
+                    turns.turnMode = MonsterTurns.TurnMode.values()[
+                            (turns.turnMode.ordinal() + 1) % MonsterTurns.TurnMode.values().length];
+                    break;
                 default:
                     phase = Phase.PLAYER_ANIM;
                 }
@@ -911,43 +917,9 @@ public class PathfindingStressTest extends ApplicationAdapter {
         Gdx.input.setInputProcessor(input);
     }
 
-    private Coord[] GOAL = new Coord[1];
-
     private void postMove() {
         phase = Phase.MONSTER_ANIM;
-        // in some cases you can use keySet() to get a Set of keys, but that makes a read-only view, and we want
-        // a copy of the key set that we can edit (so monsters don't move into each others' spaces)
-//        OrderedSet<Coord> monplaces = monsters.keysAsOrderedSet();
-        int monCount = monsters.size();
-
-        rng.shuffleInPlace(floorArray);
-        for (int ci = 0; ci < monCount; ci++) {
-            Coord pos = monsters.firstKey();
-            AnimatedGlider mon = monsters.removeFirst();
-            getToPlayer.clearGoals();
-            GOAL[0] = floorArray[ci];
-            awaitedMoves.clear();
-            getToPlayer.findPath(awaitedMoves, 1, 7, monsters.keySet(), null, pos, GOAL);
-            if (!awaitedMoves.isEmpty()) {
-                Coord tmp = awaitedMoves.get(0);
-                // if we would move into the player, instead damage the player and give newMons the current
-                // position of this monster.
-                if (tmp.x == GOAL[0].x && tmp.y == GOAL[0].y) {
-                    monsters.put(pos, mon);
-                }
-                // otherwise store the new position in newMons.
-                else {
-                    // alter is a method on OrderedMap and OrderedSet that changes a key in-place
-                    monsters.alter(pos, tmp);
-                    mon.start = pos;
-                    mon.end = tmp;
-                    mon.change = 0f;
-                    monsters.put(tmp, mon);
-                }
-            } else {
-                monsters.put(pos, mon);
-            }
-        }
+        turns.move();
     }
 
     /**
@@ -971,14 +943,12 @@ public class PathfindingStressTest extends ApplicationAdapter {
         }
         batch.setPackedColor(FLOAT_WHITE);
         AnimatedGlider monster;
-        for (int i = 0; i < bigWidth; i++) {
-            for (int j = 0; j < bigHeight; j++) {
-                if ((monster = monsters.get(Coord.get(i, j))) != null) {
-                    batch.draw(monster.animate(time), monster.getX() * cellWidth, monster.getY() * cellHeight);
-                }
-            }
+        // only visits cells that have a monster in them, instead of checking every cell on the map
+        for (int i = 0, n = monsters.size(); i < n; i++) {
+            monster = monsters.getAt(i);
+            batch.draw(monster.animate(time), monster.getX() * cellWidth, monster.getY() * cellHeight);
         }
-        Gdx.graphics.setTitle(Gdx.graphics.getFramesPerSecond() + " FPS");
+        Gdx.graphics.setTitle(Gdx.graphics.getFramesPerSecond() + " FPS, " + turns.turnMode);
     }
     @Override
     public void render () {
@@ -1039,4 +1009,9 @@ public class PathfindingStressTest extends ApplicationAdapter {
 		super.resize(width, height);
         mainViewport.update(width, height, false);
 	}
+
+    @Override
+    public void dispose() {
+        planner.dispose();
+    }
 }
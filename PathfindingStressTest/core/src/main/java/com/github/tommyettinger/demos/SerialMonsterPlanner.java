@@ -0,0 +1,25 @@
+package com.github.tommyettinger.demos;
+
+import squidpony.squidmath.Coord;
+
+/**
+ * Plans every monster's step on the calling thread with one {@link PathPlanner}. This works on every platform,
+ * including GWT, and is the reference result that other MonsterPlanner implementations must match.
+ */
+public class SerialMonsterPlanner implements MonsterPlanner {
+    private PathPlanner planner;
+
+    @Override
+    public void reset(char[][] map) {
+        planner = new PathPlanner(map);
+    }
+
+    @Override
+    public void plan(Coord[] starts, Coord[] goals, int count, long seed, Coord[] moves) {
+        planner.plan(starts, goals, count, 0, count, seed, moves);
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
@@ -13,7 +13,7 @@ public class Lwjgl3Launcher {
     }
 
     private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new PathfindingStressTest(), getDefaultConfiguration());
+        return new Lwjgl3Application(new PathfindingStressTest(new ParallelMonsterPlanner()), getDefaultConfiguration());
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
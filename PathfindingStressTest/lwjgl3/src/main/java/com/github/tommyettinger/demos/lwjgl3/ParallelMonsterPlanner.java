@@ -0,0 +1,81 @@
+package com.github.tommyettinger.demos.lwjgl3;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.github.tommyettinger.demos.MonsterPlanner;
+import com.github.tommyettinger.demos.PathPlanner;
+import squidpony.squidmath.Coord;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the monsters into one contiguous slice per thread and plans each slice with that thread's own
+ * {@link PathPlanner}. Because a PathPlanner's result for a monster only depends on the turn's inputs and the
+ * monster's index, this gives exactly the same moves as {@link com.github.tommyettinger.demos.SerialMonsterPlanner}.
+ * This uses java.util.concurrent, so it lives here and not in core, which must also compile with GWT.
+ */
+public class ParallelMonsterPlanner implements MonsterPlanner {
+    private final int threads;
+    private final ExecutorService executor;
+    private final ArrayList<Callable<Void>> tasks;
+    private PathPlanner[] planners;
+
+    public ParallelMonsterPlanner()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelMonsterPlanner(int threads)
+    {
+        this.threads = Math.max(1, threads);
+        executor = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "MonsterPlanner");
+            t.setDaemon(true);
+            return t;
+        });
+        tasks = new ArrayList<>(this.threads);
+    }
+
+    @Override
+    public void reset(char[][] map) {
+        planners = new PathPlanner[threads];
+        for (int i = 0; i < threads; i++) {
+            planners[i] = new PathPlanner(map);
+        }
+    }
+
+    @Override
+    public void plan(final Coord[] starts, final Coord[] goals, final int count, final long seed,
+                     final Coord[] moves) {
+        final int slice = (count + threads - 1) / threads;
+        tasks.clear();
+        for (int t = 0; t < threads; t++) {
+            final int from = t * slice, to = Math.min(count, from + slice);
+            if(from >= to)
+                break;
+            final PathPlanner planner = planners[t];
+            tasks.add(() -> {
+                planner.plan(starts, goals, count, from, to, seed, moves);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> f : executor.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,193 @@
+package com.squidpony.samples;
+
+import squidpony.squidgrid.FOV;
+import squidpony.squidgrid.Radius;
+import squidpony.squidgrid.gui.gdx.Radiance;
+import squidpony.squidgrid.gui.gdx.SColor;
+import squidpony.squidgrid.gui.gdx.SparseLayers;
+import squidpony.squidmath.Coord;
+
+import java.util.ArrayList;
+
+/**
+ * Does the same job as SquidLib's LightingHandler for lights that don't move, but remembers which cells each light
+ * reaches instead of finding that again every frame. LightingHandler runs a full field-of-view calculation for every
+ * light near the viewer on every frame and every move, so its cost goes up with the number of lights; here, a light
+ * only gets a field-of-view calculation the first time it is near the viewer, and again only if a cell it could reach
+ * has its resistance changed through {@link #setResistance(int, int, double)}. What is remembered for each light is how
+ * far each cell it reaches is from it, so a light that flickers or strobes (which changes its current range) just gets
+ * brighter or dimmer over the same cells each frame, without redoing the field of view.
+ * <br>
+ * Only lights that can reach the area given to {@link #calculateFOV(int, int, int, int, int, int)} are mixed, and only
+ * into that area, so as long as that area is about the size of the screen, each frame costs about the same whether the
+ * whole map has a dozen lights or hundreds.
+ */
+public class CachedLighting {
+    public final int width, height;
+    public final double[][] resistances;
+    public final Radius radiusStrategy;
+    public double viewerRange;
+    /**
+     * How visible each cell is to the viewer, counting light from the viewer and from lights it can see; 0.0 is not
+     * visible. This is only changed by calculateFOV().
+     */
+    public final double[][] fovResult;
+    /**
+     * How bright the light from lights is in each cell, from 0 to 1, and what color it is, as a packed float. These are
+     * only kept up to date inside the area given to the last calculateFOV(), and only where strength isn't 0.
+     */
+    public final float[][] strength, color;
+    private final double[][] losResult, temp;
+    private final ArrayList<Light> lights = new ArrayList<>(64);
+    private int minX, minY, maxX, maxY;
+
+    private static final class Light {
+        private final int x, y, reach;
+        private final Radiance radiance;
+        // the distance from the light to each cell in the square around it that it reaches, indexed by
+        // (dx + reach) + (dy + reach) * (reach * 2 + 1), or -1 for cells it can't reach; null until it is needed
+        private float[] distances;
+
+        private Light(Coord position, Radiance radiance) {
+            x = position.x;
+            y = position.y;
+            reach = (int) Math.ceil(radiance.range);
+            this.radiance = radiance;
+        }
+    }
+
+    /**
+     * @param resistances the resistance map, as made by DungeonUtility.generateResistances(); this is used directly,
+     *                    not copied, so change it only through {@link #setResistance(int, int, double)}
+     * @param radiusStrategy how distance is measured, for the viewer and for every light
+     * @param viewerRange how far the viewer can see without any lights
+     */
+    public CachedLighting(double[][] resistances, Radius radiusStrategy, double viewerRange) {
+        this.resistances = resistances;
+        this.radiusStrategy = radiusStrategy;
+        this.viewerRange = viewerRange;
+        width = resistances.length;
+        height = resistances[0].length;
+        fovResult = new double[width][height];
+        losResult = new double[width][height];
+        temp = new double[width][height];
+        strength = new float[width][height];
+        color = new float[width][height];
+    }
+
+    /**
+     * Adds a light that stays at position. Its range shouldn't be changed after this, but its color, flicker and strobe
+     * can be.
+     */
+    public CachedLighting addLight(Coord position, Radiance radiance) {
+        lights.add(new Light(position, radiance));
+        return this;
+    }
+
+    /**
+     * Changes the resistance of one cell, such as when a door opens or closes, and forgets what every light that could
+     * reach that cell reaches, so it is found again the next time that light is used. The viewer's field of view isn't
+     * changed until the next call to calculateFOV().
+     */
+    public void setResistance(int x, int y, double resistance) {
+        if (resistances[x][y] == resistance)
+            return;
+        resistances[x][y] = resistance;
+        for (int i = 0, n = lights.size(); i < n; i++) {
+            Light light = lights.get(i);
+            if (Math.abs(light.x - x) <= light.reach && Math.abs(light.y - y) <= light.reach)
+                light.distances = null;
+        }
+    }
+
+    /**
+     * Finds what the viewer can see, counting lights, within the area from minX, minY (inclusive) to maxX, maxY
+     * (exclusive). Outside that area, only what the viewer can see by its own light is counted. The area is also the
+     * one {@link #update()} and {@link #draw(SparseLayers, float[][])} work in until the next call to this.
+     * @return {@link #fovResult}
+     */
+    public double[][] calculateFOV(int viewerX, int viewerY, int minX, int minY, int maxX, int maxY) {
+        this.minX = Math.max(0, minX);
+        this.minY = Math.max(0, minY);
+        this.maxX = Math.min(width, maxX);
+        this.maxY = Math.min(height, maxY);
+        FOV.reuseFOV(resistances, fovResult, viewerX, viewerY, viewerRange, radiusStrategy);
+        // lit cells can be seen from farther away than viewerRange, as long as nothing is in the way
+        FOV.reuseFOV(resistances, losResult, viewerX, viewerY, width + height, radiusStrategy);
+        update();
+        for (int x = this.minX; x < this.maxX; x++) {
+            for (int y = this.minY; y < this.maxY; y++) {
+                if (losResult[x][y] > 0.0)
+                    fovResult[x][y] = Math.min(1.0, fovResult[x][y] + strength[x][y]);
+            }
+        }
+        return fovResult;
+    }
+
+    /**
+     * Mixes the light from every light that reaches the current area, at its current range, into {@link #strength} and
+     * {@link #color}. This should be called every frame if any lights flicker or strobe.
+     */
+    public void update() {
+        for (int x = minX; x < maxX; x++) {
+            for (int y = minY; y < maxY; y++) {
+                strength[x][y] = 0f;
+            }
+        }
+        for (int i = 0, n = lights.size(); i < n; i++) {
+            Light light = lights.get(i);
+            final int reach = light.reach;
+            if (light.x + reach < minX || light.x - reach >= maxX || light.y + reach < minY || light.y - reach >= maxY)
+                continue;
+            if (light.distances == null)
+                light.distances = cover(light);
+            final float[] distances = light.distances;
+            final float range = Math.min(light.radiance.range, light.radiance.currentRange()), lightColor = light.radiance.color;
+            if (range <= 0f)
+                continue;
+            final int side = reach * 2 + 1;
+            for (int x = Math.max(minX, light.x - reach), xe = Math.min(maxX, light.x + reach + 1); x < xe; x++) {
+                for (int y = Math.max(minY, light.y - reach), ye = Math.min(maxY, light.y + reach + 1); y < ye; y++) {
+                    final float d = distances[x - light.x + reach + (y - light.y + reach) * side];
+                    if (d < 0f || d >= range)
+                        continue;
+                    final float s = 1f - d / range, total = strength[x][y];
+                    // the first light to reach a cell sets its color, and later ones blend in by how bright they are
+                    color[x][y] = total == 0f ? lightColor : SColor.lerpFloatColors(color[x][y], lightColor, s / (total + s));
+                    strength[x][y] = Math.min(1f, total + s);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the field of view for one light at its full range, and keeps the distance to each cell it reaches.
+     */
+    private float[] cover(Light light) {
+        final int reach = light.reach, side = reach * 2 + 1;
+        final float[] distances = new float[side * side];
+        FOV.reuseFOV(resistances, temp, light.x, light.y, light.radiance.range, radiusStrategy);
+        for (int dy = -reach, i = 0; dy <= reach; dy++) {
+            for (int dx = -reach; dx <= reach; dx++, i++) {
+                final int x = light.x + dx, y = light.y + dy;
+                distances[i] = x >= 0 && y >= 0 && x < width && y < height && temp[x][y] > 0.0
+                        ? (float) radiusStrategy.radius(dx, dy) : -1f;
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Draws the light in the current area onto the background colors of layers, in cells the viewer can see.
+     * @param layers the SparseLayers to draw onto
+     * @param backgrounds the background colors without any light, as packed floats
+     */
+    public void draw(SparseLayers layers, float[][] backgrounds) {
+        for (int x = minX; x < maxX; x++) {
+            for (int y = minY; y < maxY; y++) {
+                if (fovResult[x][y] > 0.0 && strength[x][y] > 0f)
+                    layers.put(x, y, SColor.lerpFloatColors(backgrounds[x][y], color[x][y], strength[x][y]));
+            }
+        }
+    }
+}
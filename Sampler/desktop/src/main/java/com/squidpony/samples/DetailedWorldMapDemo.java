@@ -7,6 +7,7 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.NumberUtils;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.squidpony.samples.desktop.CustomConfig;
@@ -21,6 +22,9 @@ import squidpony.squidmath.LinnormRNG;
 import squidpony.squidmath.NumberTools;
 import squidpony.squidmath.StatefulRNG;
 
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
 /**
  * Port of Zachary Carter's world generation technique, https://github.com/zacharycarter/mapgen
  * It seems to mostly work now, though it only generates one view of the map that it renders (but biome, moisture, heat,
@@ -68,12 +72,17 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
 
     private Pixmap pm;
     private Texture pt;
+    // pm's pixels as one RGBA8888 int per pixel, row by row; written directly instead of calling drawPixel()
+    private IntBuffer pixels;
+    // true when the world has changed since pt was last uploaded; drawnMode is the mode pt was drawn with
+    private boolean dirty = true;
+    private int drawnMode = -1;
     //private int counter = 0;
-    private Color tempColor = Color.WHITE.cpy();
     
     private float nation = 0f;
     private long ttg = 0; // time to generate
     private WorldMapGenerator.DetailedBiomeMapper dbm;
+    private WorldMapColorizer colorizer;
     private FantasyPoliticalMapper fpm;
     private char[][] political;
     
@@ -189,8 +198,10 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
 //        display = new SquidPanel(width, height, cellWidth, cellHeight);
         //display.getTextCellFactory().font().getRegion().getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
         view = new StretchViewport(width*cellWidth, height*cellHeight);
-        pm = new Pixmap(width * cellWidth, height * cellHeight, Pixmap.Format.RGB888);
+        pm = new Pixmap(width * cellWidth, height * cellHeight, Pixmap.Format.RGBA8888);
         pm.setBlending(Pixmap.Blending.None);
+        // big-endian order means each int is written as the bytes R, G, B, A, which is what RGBA8888 expects
+        pixels = pm.getPixels().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
         pt = new Texture(pm);
         pt.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
         
@@ -211,6 +222,8 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
         //cloudNoise2 = new Noise.Ridged4D(SeededNoise.instance, 3, 6.5);
         //world = new WorldMapGenerator.TilingMap(seed, width, height, WhirlingNoise.instance, 0.9);
         dbm = new WorldMapGenerator.DetailedBiomeMapper();
+        colorizer = new WorldMapColorizer(BIOME_COLOR_TABLE, BIOME_DARK_COLOR_TABLE, shallowColor, coastalColor, ice,
+                lightIce, emptyColor);
         fpm = new FantasyPoliticalMapper();
         input = new SquidInput(new SquidInput.KeyHandler() {
             @Override
@@ -264,8 +277,9 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
         Gdx.input.setInputProcessor(input);
 //        display.setPosition(0, 0);
 //        stage.addActor(display);
-//        Gdx.graphics.setContinuousRendering(true);
-//        Gdx.graphics.requestRendering();
+        // nothing moves on its own here, so only render when input or a change to the world asks for it
+        Gdx.graphics.setContinuousRendering(false);
+        Gdx.graphics.requestRendering();
     }
 
     public void zoomIn() {
@@ -276,6 +290,7 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
         long startTime = System.currentTimeMillis();
         world.zoomIn(1, zoomX, zoomY);
         dbm.makeBiomes(world);
+        changed();
         //political = fpm.adjustZoom();//.generate(seed + 1000L, world, dbm, null, 50, 1.0);
 //        System.out.println(StringKit.hex(CrossHash.hash64(world.heightCodeData)) + " " + StringKit.hex(CrossHash.hash64(dbm.biomeCodeData)));
         ttg = System.currentTimeMillis() - startTime;
@@ -289,6 +304,7 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
         long startTime = System.currentTimeMillis();
         world.zoomOut(1, zoomX, zoomY);
         dbm.makeBiomes(world);
+        changed();
         //political = fpm.adjustZoom();//.generate(seed + 1000L, world, dbm, null, 50, 1.0);
 //        System.out.println(StringKit.hex(CrossHash.hash64(world.heightCodeData)) + " " + StringKit.hex(CrossHash.hash64(dbm.biomeCodeData)));
         ttg = System.currentTimeMillis() - startTime;
@@ -301,6 +317,7 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
         world.generate(1.0 + NumberTools.formCurvedDouble((seed ^ 0x123456789ABCDL) * 0x12345689ABL) * 0.3,
                 LinnormRNG.determineDouble(seed * 0x12345L + 0x54321L) * 0.2 + 0.9, seed);
         dbm.makeBiomes(world);
+        changed();
         //randomizeColors(seed);
         //political = fpm.generate(seed + 1000L, world, dbm, null, 50, 1.0);
 //        System.out.println(StringKit.hex(CrossHash.hash64(world.heightCodeData)) + " " + StringKit.hex(CrossHash.hash64(dbm.biomeCodeData)));
@@ -313,103 +330,41 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
         world.setCenterLongitude((System.currentTimeMillis() & 0xFFFFFFF) * 0.0002);
         world.generate(world.landModifier, world.heatModifier, seed);
         dbm.makeBiomes(world);
+        changed();
         //political = fpm.generate(seed + 1000L, world, dbm, null, 50, 1.0);
 //        System.out.println(StringKit.hex(CrossHash.hash64(world.heightCodeData)) + " " + StringKit.hex(CrossHash.hash64(dbm.biomeCodeData)));
         ttg = System.currentTimeMillis() - startTime;
     }
 
-    public void putMap() {
-        int hc, tc, bc;
-        int[][] heightCodeData = world.heightCodeData;
-        double[][] heightData = world.heightData;
-        int[][] heatCodeData = dbm.heatCodeData;
-        int[][] biomeCodeData = dbm.biomeCodeData;
-        pm.setColor(quantize(SColor.DB_INK));
-        pm.fill();
-        for (int y = 0; y < height; y++) {
-            PER_CELL:
-            for (int x = 0; x < width; x++) {
-                hc = heightCodeData[x][y];
-                if (hc == 1000)
-                    continue;
-                tc = heatCodeData[x][y];
-                bc = biomeCodeData[x][y];
-                if (tc == 0) {
-                    switch (hc) {
-                        case 0:
-                        case 1:
-                        case 2:
-                        case 3:
-                            Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(shallowColor, ice,
-                                    (float) ((heightData[x][y] - -1.0) / (WorldMapGenerator.sandLower - -1.0))));
-//                        pm.setColor(tempColor);
-//                        pm.drawRectangle(x * cellWidth, y * cellHeight, cellWidth, cellHeight);
-                            pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                            //display.put(x, y, SColor.lerpFloatColors(shallowColor, ice,
-                            //        (float) ((heightData[x][y] - -1.0) / (0.1 - -1.0))));
-                            continue PER_CELL;
-                        case 4:
-                            Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(lightIce, ice,
-                                    (float) ((heightData[x][y] - WorldMapGenerator.sandLower) / (WorldMapGenerator.sandUpper - WorldMapGenerator.sandLower))));
-//                        pm.setColor(tempColor);
-//                        pm.drawRectangle(x * cellWidth, y * cellHeight, cellWidth, cellHeight);
-                            pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                            //display.put(x, y, SColor.lerpFloatColors(lightIce, ice,
-                            //        (float) ((heightData[x][y] - 0.1) / (0.18 - 0.1))));
-                            continue PER_CELL;
-                    }
-                }
-                switch (hc) {
-                    case 0:
-                    case 1:
-                    case 2:
-                    case 3:
-                        Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(
-                                BIOME_COLOR_TABLE[56], coastalColor,
-                                (MathUtils.clamp((float) (((heightData[x][y] + 0.06) * 8.0) / (WorldMapGenerator.sandLower + 1.0)), 0f, 1f))));
-//                        Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(deepColor, coastalColor,
-//                                (float) ((heightData[x][y] - -1.0) / (WorldMapGenerator.sandLower - -1.0))));
-//                    pm.setColor(tempColor);
-//                    pm.drawRectangle(x * cellWidth, y * cellHeight, cellWidth, cellHeight);
-                        pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                        //display.put(x, y, SColor.lerpFloatColors(deepColor, coastalColor,
-                        //        (float) ((heightData[x][y] - -1.0) / (0.1 - -1.0))));
-                        break;
-                    default:
-                        /*
-                        if(partialLakeData.contains(x, y))
-                            System.out.println("LAKE  x=" + x + ",y=" + y + ':' + (((heightData[x][y] - lowers[hc]) / (differences[hc])) * 19
-                                    + shadingData[x][y] * 13) * 0.03125f);
-                        else if(partialRiverData.contains(x, y))
-                            System.out.println("RIVER x=" + x + ",y=" + y + ':' + (((heightData[x][y] - lowers[hc]) / (differences[hc])) * 19
-                                    + shadingData[x][y] * 13) * 0.03125f);
-                        */
+    /**
+     * Marks the cached map texture as out of date, so the next frame rebuilds it, and makes sure that frame happens.
+     */
+    private void changed()
+    {
+        dirty = true;
+        Gdx.graphics.requestRendering();
+    }
 
-                        Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(BIOME_COLOR_TABLE[dbm.extractPartB(bc)],
-                                BIOME_DARK_COLOR_TABLE[dbm.extractPartA(bc)], dbm.extractMixAmount(bc)));
-//                    pm.setColor(tempColor);
-//                    pm.drawRectangle(x * cellWidth, y * cellHeight, cellWidth, cellHeight);
-                        pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                        //display.put(x, y, SColor.lerpFloatColors(BIOME_COLOR_TABLE[biomeLowerCodeData[x][y]],
-                        //        BIOME_DARK_COLOR_TABLE[biomeUpperCodeData[x][y]],
-                        //        (float) //(((heightData[x][y] - lowers[hc]) / (differences[hc])) * 11 +
-                        //                shadingData[x][y]// * 21) * 0.03125f
-                        //        ));
+    /**
+     * Writes a packed float color straight into pm's pixel buffer; much faster than unpacking it into a Color and
+     * calling {@link Pixmap#drawPixel(int, int, int)}.
+     */
+    private void putPixel(final int x, final int y, final float color)
+    {
+        // floatToIntColor gives ABGR8888, and reversing the bytes makes that RGBA8888
+        pixels.put(y * width + x, Integer.reverseBytes(NumberUtils.floatToIntColor(color)));
+    }
 
-                        //display.put(x, y, SColor.lerpFloatColors(darkTropicalRainforest, desert, (float) (heightData[x][y])));
-                }
-            }
-        }
-        batch.begin();
-        pt.draw(pm, 0, 0);
-        batch.draw(pt, 0, 0, width, height);
-        batch.end();
+    public void putMap() {
+        // every pixel gets a color here, including the space around the map, so pm doesn't need to be cleared first
+        colorizer.colorize(world, dbm, pm.getPixels());
     }
     public void putHeatMap() {
         int hc;
         int[][] heightCodeData = world.heightCodeData;
         double[][] heatData = world.heatData;
         double heat;
+        float color;
         pm.setColor(quantize(SColor.DB_INK));
         pm.fill();
         for (int y = 0; y < height; y++) {
@@ -419,25 +374,22 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
                     continue;
                 heat = heatData[x][y];
                 if(hc < 4)
-                    Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(ice, deepColor,
-                            (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat + 0.001))));
+                    color = SColor.lerpFloatColors(ice, deepColor,
+                            (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat + 0.001)));
                 else
-                    Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(-0x1.5bbf5ap126F, // SColor.MOSS_GREEN
+                    color = SColor.lerpFloatColors(-0x1.5bbf5ap126F, // SColor.MOSS_GREEN
                              -0x1.8081fep125F, // SColor.CORAL_RED
-                        (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat + 0.001))));
-                pm.drawPixel(x, y, quantize(tempColor));
+                        (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat + 0.001)));
+                putPixel(x, y, color);
             }
         }
-        batch.begin();
-        pt.draw(pm, 0, 0);
-        batch.draw(pt, 0, 0, width >> 1, height >> 1);
-        batch.end();
     }
     public void putMoistureMap() {
         int hc;
         int[][] heightCodeData = world.heightCodeData;
         double[][] moistureData = world.moistureData;
         double moisture;
+        float color;
         pm.setColor(quantize(SColor.DB_INK));
         pm.fill();
         for (int y = 0; y < height; y++) {
@@ -447,18 +399,14 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
                     continue;
                 moisture = moistureData[x][y];
                 if(hc < 4)
-                    Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(shallowColor, deepColor,
-                            (float) ((moisture - world.minWet) / (world.maxWet - world.minWet + 0.001))));
+                    color = SColor.lerpFloatColors(shallowColor, deepColor,
+                            (float) ((moisture - world.minWet) / (world.maxWet - world.minWet + 0.001)));
                 else
-                    Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(desert, tropicalRainforest,
-                            (float) ((moisture - world.minWet) / (world.maxWet - world.minWet + 0.001))));
-                pm.drawPixel(x, y, quantize(tempColor));
+                    color = SColor.lerpFloatColors(desert, tropicalRainforest,
+                            (float) ((moisture - world.minWet) / (world.maxWet - world.minWet + 0.001)));
+                putPixel(x, y, color);
             }
         }
-        batch.begin();
-        pt.draw(pm, 0, 0);
-        batch.draw(pt, 0, 0, width >> 1, height >> 1);
-        batch.end();
     }
     private final float emphasize(final float a)
     {
@@ -474,6 +422,7 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
         final double[][] moistureData = world.moistureData, heatData = world.heatData, heightData = world.heightData;
         double elevation, heat, moisture;
         boolean icy;
+        float color;
         pm.setColor(quantize(SColor.DB_INK));
         pm.fill();
         for (int y = 0; y < height; y++) {
@@ -487,35 +436,30 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
                 icy = heat - elevation * 0.25 < 0.16;
                 if(hc < 4) {
                     float a = (MathUtils.clamp((float) (((elevation + 0.06) * 16.0) / (WorldMapGenerator.sandLower + 1.0)), 0f, 1f));
-                    Color.abgr8888ToColor(tempColor,
-                            heat < 0.26 ? SColor.lerpFloatColors(shallowColor, ice,
+                    color = heat < 0.26 ? SColor.lerpFloatColors(shallowColor, ice,
                                     (float)((elevation + 1.0) / (WorldMapGenerator.sandLower+1.0)))
                                     : SColor.lerpFloatColors(
                             BIOME_COLOR_TABLE[56], coastalColor,
-                            a));
+                            a);
                 }
                 else if(hc == 4)
-                    Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(icy ? BIOME_COLOR_TABLE[0] : SColor.lerpFloatColors(BIOME_DARK_COLOR_TABLE[34], BIOME_COLOR_TABLE[41],
+                    color = SColor.lerpFloatColors(icy ? BIOME_COLOR_TABLE[0] : SColor.lerpFloatColors(BIOME_DARK_COLOR_TABLE[34], BIOME_COLOR_TABLE[41],
                             (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat))),
                             SColor.lerpFloatColors(icy ? ice : SColor.lerpFloatColors(rocky, desertAlt,
                                     (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat))),
                                     icy ? lightIce : SColor.lerpFloatColors(woodland, BIOME_COLOR_TABLE[28],
                                             (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat))),
                                     (extreme((float) (moisture)))),
-                            (float) ((elevation - WorldMapGenerator.sandLower) / (WorldMapGenerator.sandUpper - WorldMapGenerator.sandLower))));
+                            (float) ((elevation - WorldMapGenerator.sandLower) / (WorldMapGenerator.sandUpper - WorldMapGenerator.sandLower)));
                 else
-                    Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(icy ? ice : SColor.lerpFloatColors(rocky, desertAlt,
+                    color = SColor.lerpFloatColors(icy ? ice : SColor.lerpFloatColors(rocky, desertAlt,
                             (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat))),
                             icy ? lightIce : SColor.lerpFloatColors(woodland, BIOME_COLOR_TABLE[28],
                                     (float) ((heat - world.minHeat) / (world.maxHeat - world.minHeat))),
-                            (extreme((float) (moisture)))));
-                pm.drawPixel(x, y, quantize(tempColor));
+                            (extreme((float) (moisture))));
+                putPixel(x, y, color);
             }
         }
-        batch.begin();
-        pt.draw(pm, 0, 0);
-        batch.draw(pt, 0, 0, width, height);
-        batch.end();
     }
     
     public int quantize(Color color)
@@ -538,32 +482,43 @@ public class DetailedWorldMapDemo extends ApplicationAdapter {
     
     @Override
     public void render() {
+        // if we are waiting for the player's input and get input, process it.
+        // this happens first so any change it makes is shown this frame.
+        if (input.hasNext()) {
+            input.next();
+        }
         // standard clear the background routine for libGDX
         Gdx.gl.glClearColor(SColor.DB_INK.r, SColor.DB_INK.g, SColor.DB_INK.b, 1f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         Gdx.gl.glDisable(GL20.GL_BLEND);
-        // need to display the map every frame, since we clear the screen to avoid artifacts.
-        switch (mode)
-        {
+        // the pixmap only needs to be refilled and uploaded when the world or the mode changed; otherwise the texture
+        // from last time is still correct and just gets drawn again.
+        if(dirty || mode != drawnMode) {
+            switch (mode) {
             /*
             case 3: putHeatMap();
             break;
             case 2: putMoistureMap();
             break;
             */
-            case 2:
-            case 3: putExperimentMap();
-            break;
-            default: putMap();
-            break;
+                case 2:
+                case 3:
+                    putExperimentMap();
+                    break;
+                default:
+                    putMap();
+                    break;
+            }
+            pt.draw(pm, 0, 0);
+            dirty = false;
+            drawnMode = mode;
         }
+        batch.begin();
+        batch.draw(pt, 0, 0, width, height);
+        batch.end();
         //++counter;//nation = NumberTools.swayTight(++counter * 0.0125f);
         Gdx.graphics.setTitle("Took " + ttg + " ms to generate");
 
-        // if we are waiting for the player's input and get input, process it.
-        if (input.hasNext()) {
-            input.next();
-        }
         // stage has its own batch and must be explicitly told to draw().
 //        stage.draw();
     }
@@ -6,7 +6,6 @@ import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.squidpony.samples.desktop.CustomConfig;
@@ -77,11 +76,11 @@ public class LocalMapDemo extends ApplicationAdapter {
     private Pixmap pm;
     private Texture pt;
     //private int counter = 0;
-    private Color tempColor = Color.WHITE.cpy();
     
     private float nation = 0f;
     private long ttg = 0; // time to generate
     private WorldMapGenerator.DetailedBiomeMapper dbm;
+    private WorldMapColorizer colorizer;
 //    private FantasyPoliticalMapper fpm;
 //    private char[][] political;
     
@@ -195,7 +194,7 @@ public class LocalMapDemo extends ApplicationAdapter {
     public void create() {
         batch = new SpriteBatch();
         view = new StretchViewport(width, height);
-        pm = new Pixmap(width, height, Pixmap.Format.RGB888);
+        pm = new Pixmap(width, height, Pixmap.Format.RGBA8888);
         pm.setBlending(Pixmap.Blending.None);
         pt = new Texture(pm);
         pt.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
@@ -216,6 +215,8 @@ public class LocalMapDemo extends ApplicationAdapter {
         //cloudNoise2 = new Noise.Ridged4D(SeededNoise.instance, 3, 6.5);
         //world = new WorldMapGenerator.TilingMap(seed, width, height, WhirlingNoise.instance, 0.9);
         dbm = new WorldMapGenerator.DetailedBiomeMapper();
+        colorizer = new WorldMapColorizer(BIOME_COLOR_TABLE, BIOME_DARK_COLOR_TABLE, shallowColor, coastalColor, ice,
+                lightIce, emptyColor);
 //        fpm = new FantasyPoliticalMapper();
         input = new SquidInput(new SquidInput.KeyHandler() {
             @Override
@@ -303,56 +304,8 @@ public class LocalMapDemo extends ApplicationAdapter {
         System.out.println(ttg + "ms to generate.");
     }
     public void putMap() {
-        int hc, tc, bc;
-        int[][] heightCodeData = world.heightCodeData;
-        double[][] heightData = world.heightData;
-        int[][] heatCodeData = dbm.heatCodeData;
-        int[][] biomeCodeData = dbm.biomeCodeData;
-        pm.setColor(quantize(SColor.DB_INK));
-        pm.fill();
-//        final int inc = 8 >> zoom;
-        for (int y = 0; y < height; y++) {
-            PER_CELL:
-            for (int x = 0; x < width; x++) {
-                hc = heightCodeData[x][y];
-                if (hc == 1000)
-                    continue;
-                tc = heatCodeData[x][y];
-                bc = biomeCodeData[x][y];
-                if (tc == 0) {
-                    switch (hc) {
-                        case 0:
-                        case 1:
-                        case 2:
-                        case 3:
-                            Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(shallowColor, ice,
-                                    (float) ((heightData[x][y] - -1.0) / (WorldMapGenerator.sandLower - -1.0))));
-                            pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                            continue PER_CELL;
-                        case 4:
-                            Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(lightIce, ice,
-                                    (float) ((heightData[x][y] - WorldMapGenerator.sandLower) / (WorldMapGenerator.sandUpper - WorldMapGenerator.sandLower))));
-                            pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                            continue PER_CELL;
-                    }
-                }
-                switch (hc) {
-                    case 0:
-                    case 1:
-                    case 2:
-                    case 3:
-                        Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(
-                                BIOME_COLOR_TABLE[56], coastalColor,
-                                (MathUtils.clamp((float) (((heightData[x][y] + 0.06) * 8.0) / (WorldMapGenerator.sandLower + 1.0)), 0f, 1f))));
-                        pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                        break;
-                    default:
-                        Color.abgr8888ToColor(tempColor, SColor.lerpFloatColors(BIOME_COLOR_TABLE[dbm.extractPartB(bc)],
-                                BIOME_DARK_COLOR_TABLE[dbm.extractPartA(bc)], dbm.extractMixAmount(bc)));
-                        pm.drawPixel(x, y, quantize(tempColor));//Color.rgba8888(tempColor));
-                }
-            }
-        }
+        // the colorizer writes every pixel straight into pm's buffer, so there's no need to fill pm first
+        colorizer.colorize(world, dbm, pm.getPixels());
         batch.begin();
         pt.draw(pm, 0, 0);
         batch.draw(pt, 0, 0, width * cellWidth, height * cellHeight);
@@ -114,7 +114,8 @@ public class SparseLightingDemo extends ApplicationAdapter {
     private ArrayList<IColoredString<Color>> lang;
 //    private double[][] resistance;
 //    private double[][] visible;
-    private LightingHandler lighting;
+    // works like LightingHandler, but only finds where each light reaches once, since none of them move
+    private CachedLighting lighting;
     // GreasedRegion is a hard-to-explain class, but it's an incredibly useful one for map generation and many other
     // tasks; it stores a region of "on" cells where everything not in that region is considered "off," and can be used
     // as a Collection of Coord points. However, it's more than that! Because of how it is implemented, it can perform
@@ -261,7 +262,7 @@ public class SparseLightingDemo extends ApplicationAdapter {
         //no parameters are given to generate().
         lineDungeon = DungeonUtility.hashesToLines(decoDungeon);
 
-        lighting = new LightingHandler(DungeonUtility.generateResistances(decoDungeon), SColor.FLOAT_WHITE, Radius.CIRCLE, 9.0);
+        lighting = new CachedLighting(DungeonUtility.generateResistances(decoDungeon), Radius.CIRCLE, 9.0);
 
         //Coord is the type we use as a general 2D point, usually in a dungeon.
         //Because we know dungeons won't be incredibly huge, Coord performs best for x and y values less than 256, but
@@ -307,7 +308,7 @@ public class SparseLightingDemo extends ApplicationAdapter {
 //                gridHeight * cellHeight * 0.5f - display.worldY(player.y));
         display.setPosition(0f, 0f);
         
-        lighting.calculateFOV(player);
+        calculateFOV();
         
         // 0.01 is the upper bound (inclusive), so any Coord in visible that is more well-lit than 0.01 will _not_ be in
         // the blockage Collection, but anything 0.01 or less will be in it. This lets us use blockage to prevent access
@@ -563,7 +564,7 @@ public class SparseLightingDemo extends ApplicationAdapter {
         {
             display.slide(pg, player.x, player.y, newX, newY, 0.12f, null);
             player = player.translate(xmod, ymod);
-            lighting.calculateFOV(player);
+            calculateFOV();
             //FOV.reuseFOV(resistance, visible, player.x, player.y, 9.0, Radius.CIRCLE);//, (System.currentTimeMillis() & 0xFFFF) * 0x1p-4, 60.0);
             // This is just like the constructor used earlier, but affects an existing GreasedRegion without making
             // a new one just for this movement.
@@ -612,6 +613,16 @@ public class SparseLightingDemo extends ApplicationAdapter {
         }
     }
 
+    /**
+     * Finds what the player can see, counting lights that reach the area putMap() draws. Lights farther away than that
+     * are skipped, so this (and lighting.update()) cost about the same no matter how many lights the whole map has.
+     */
+    private void calculateFOV()
+    {
+        int minX = player.x - (gridWidth >> 1) - 1, minY = player.y - (gridHeight >> 1) - 1;
+        lighting.calculateFOV(player.x, player.y, minX, minY, minX + gridWidth + 2, minY + gridHeight + 2);
+    }
+
     /**
      * Draws the map, applies any highlighting for the path to the cursor, and then draws the player.
      */
@@ -636,7 +647,7 @@ public class SparseLightingDemo extends ApplicationAdapter {
                     display.put(x, y, prunedDungeon[x][y], colors[x][y], SColor.lerpFloatColors(bgColors[x][y], SColor.FLOAT_BLACK, 0.45f));
             }
         }
-        lighting.draw(display);
+        lighting.draw(display, bgColors);
         Coord pt;
         for (int i = 0; i < toCursor.size(); i++) {
             pt = toCursor.get(i);
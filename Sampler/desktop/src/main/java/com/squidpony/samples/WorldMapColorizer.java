@@ -0,0 +1,193 @@
+package com.squidpony.samples;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.NumberUtils;
+import squidpony.squidgrid.gui.gdx.SColor;
+import squidpony.squidgrid.mapping.WorldMapGenerator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Colors the biomes of a {@link WorldMapGenerator} the same way {@link DetailedWorldMapDemo} always has, but splits the
+ * map into bands of rows and colors those bands in parallel on a {@link ForkJoinPool}. Each cell's color only depends
+ * on that cell's height code, heat code and biome code, plus some color tables that are only read here, so bands never
+ * need to wait on each other. Results can go straight into an RGBA8888 {@link ByteBuffer}, such as the one from
+ * {@link com.badlogic.gdx.graphics.Pixmap#getPixels()}, or into a {@code float[][]} of packed colors, such as the
+ * backgrounds of a {@link squidpony.squidgrid.gui.gdx.SparseLayers}.
+ * <br>
+ * The color tables are shared with whatever created this, not copied, so changing a table (or one of the public color
+ * fields here) changes the next map this colors.
+ */
+public class WorldMapColorizer {
+    public final float[] biomeColors, biomeDarkColors;
+    public float shallowColor, coastalColor, ice, lightIce, emptyColor;
+    private final ForkJoinPool pool;
+
+    /**
+     * Makes a WorldMapColorizer that uses the common ForkJoinPool.
+     * @param biomeColors a table of 61 packed float colors, indexed by the biome codes a DetailedBiomeMapper produces
+     * @param biomeDarkColors a table of 61 packed float colors, usually darker versions of biomeColors
+     * @param shallowColor the packed float color of the shallowest water in frozen areas
+     * @param coastalColor the packed float color that water near the coast blends toward
+     * @param ice the packed float color of ice
+     * @param lightIce the packed float color of the lightest, highest ice
+     * @param emptyColor the packed float color of cells outside the map, such as space around a globe
+     */
+    public WorldMapColorizer(float[] biomeColors, float[] biomeDarkColors, float shallowColor, float coastalColor,
+                             float ice, float lightIce, float emptyColor) {
+        this(ForkJoinPool.commonPool(), biomeColors, biomeDarkColors, shallowColor, coastalColor, ice, lightIce,
+                emptyColor);
+    }
+
+    /**
+     * Makes a WorldMapColorizer that runs its work on the given pool.
+     * @param pool the ForkJoinPool that bands of rows will be colored on
+     * @param biomeColors a table of 61 packed float colors, indexed by the biome codes a DetailedBiomeMapper produces
+     * @param biomeDarkColors a table of 61 packed float colors, usually darker versions of biomeColors
+     * @param shallowColor the packed float color of the shallowest water in frozen areas
+     * @param coastalColor the packed float color that water near the coast blends toward
+     * @param ice the packed float color of ice
+     * @param lightIce the packed float color of the lightest, highest ice
+     * @param emptyColor the packed float color of cells outside the map, such as space around a globe
+     */
+    public WorldMapColorizer(ForkJoinPool pool, float[] biomeColors, float[] biomeDarkColors, float shallowColor,
+                             float coastalColor, float ice, float lightIce, float emptyColor) {
+        this.pool = pool;
+        this.biomeColors = biomeColors;
+        this.biomeDarkColors = biomeDarkColors;
+        this.shallowColor = shallowColor;
+        this.coastalColor = coastalColor;
+        this.ice = ice;
+        this.lightIce = lightIce;
+        this.emptyColor = emptyColor;
+    }
+
+    /**
+     * Gets the packed float color of one cell. This is what the parallel methods call for each cell, and it can also be
+     * used to recolor a handful of cells without going through the pool.
+     * @param world a WorldMapGenerator that has already generated a map
+     * @param dbm a DetailedBiomeMapper that has already had {@code makeBiomes(world)} called on it
+     * @param x the x-position of the cell
+     * @param y the y-position of the cell
+     * @return the packed float color of that cell
+     */
+    public float colorAt(final WorldMapGenerator world, final WorldMapGenerator.DetailedBiomeMapper dbm,
+                         final int x, final int y) {
+        final int hc = world.heightCodeData[x][y];
+        if (hc == 1000)
+            return emptyColor;
+        final double height = world.heightData[x][y];
+        if (dbm.heatCodeData[x][y] == 0) {
+            switch (hc) {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                    return SColor.lerpFloatColors(shallowColor, ice,
+                            (float) ((height - -1.0) / (WorldMapGenerator.sandLower - -1.0)));
+                case 4:
+                    return SColor.lerpFloatColors(lightIce, ice,
+                            (float) ((height - WorldMapGenerator.sandLower) / (WorldMapGenerator.sandUpper - WorldMapGenerator.sandLower)));
+            }
+        }
+        switch (hc) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+                return SColor.lerpFloatColors(biomeColors[56], coastalColor,
+                        (MathUtils.clamp((float) (((height + 0.06) * 8.0) / (WorldMapGenerator.sandLower + 1.0)), 0f, 1f)));
+            default:
+                final int bc = dbm.biomeCodeData[x][y];
+                return SColor.lerpFloatColors(biomeColors[dbm.extractPartB(bc)],
+                        biomeDarkColors[dbm.extractPartA(bc)], dbm.extractMixAmount(bc));
+        }
+    }
+
+    /**
+     * Colors every cell of world into pixels, which must hold at least {@code world.width * world.height} RGBA8888
+     * pixels in row-major order, with no padding between rows. This is the layout of an RGBA8888 Pixmap's buffer.
+     * The position, limit and byte order of pixels are not changed. Blocks until every band has been colored.
+     * @param world a WorldMapGenerator that has already generated a map
+     * @param dbm a DetailedBiomeMapper that has already had {@code makeBiomes(world)} called on it
+     * @param pixels a ByteBuffer that will receive the colors as RGBA8888
+     */
+    public void colorize(final WorldMapGenerator world, final WorldMapGenerator.DetailedBiomeMapper dbm,
+                         final ByteBuffer pixels) {
+        // duplicate() so the caller's buffer keeps its own position and byte order; the view shares the same memory.
+        // big-endian ints are written as the bytes R, G, B, A, which is what RGBA8888 expects.
+        final IntBuffer ints = pixels.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        pool.invoke(new Band(world, dbm, ints, null, 0, world.height, bandHeight(world.height)));
+    }
+
+    /**
+     * Colors every cell of world into colors, as packed floats indexed by {@code colors[x][y]}; colors must be at least
+     * as big as the world in both dimensions. Blocks until every band has been colored.
+     * @param world a WorldMapGenerator that has already generated a map
+     * @param dbm a DetailedBiomeMapper that has already had {@code makeBiomes(world)} called on it
+     * @param colors a 2D float array that will receive the colors as packed floats
+     */
+    public void colorize(final WorldMapGenerator world, final WorldMapGenerator.DetailedBiomeMapper dbm,
+                         final float[][] colors) {
+        pool.invoke(new Band(world, dbm, null, colors, 0, world.height, bandHeight(world.height)));
+    }
+
+    /**
+     * Aims for about four bands per thread, so a thread that finishes early can steal work from a slower one, but
+     * never goes below 8 rows per band, where the overhead of a task starts to matter.
+     */
+    private int bandHeight(final int height) {
+        return Math.max(8, height / (pool.getParallelism() << 2));
+    }
+
+    private final class Band extends RecursiveAction {
+        private final WorldMapGenerator world;
+        private final WorldMapGenerator.DetailedBiomeMapper dbm;
+        private final IntBuffer ints;
+        private final float[][] colors;
+        private final int startY, endY, bandHeight;
+
+        Band(WorldMapGenerator world, WorldMapGenerator.DetailedBiomeMapper dbm, IntBuffer ints, float[][] colors,
+             int startY, int endY, int bandHeight) {
+            this.world = world;
+            this.dbm = dbm;
+            this.ints = ints;
+            this.colors = colors;
+            this.startY = startY;
+            this.endY = endY;
+            this.bandHeight = bandHeight;
+        }
+
+        @Override
+        protected void compute() {
+            if (endY - startY > bandHeight) {
+                final int mid = startY + endY >>> 1;
+                invokeAll(new Band(world, dbm, ints, colors, startY, mid, bandHeight),
+                        new Band(world, dbm, ints, colors, mid, endY, bandHeight));
+                return;
+            }
+            // the world's arrays are indexed [x][y], so going down each column of the band reads them in order,
+            // while the writes only jump between a few rows of the output.
+            final int width = world.width;
+            if (ints != null) {
+                for (int x = 0; x < width; x++) {
+                    for (int y = startY; y < endY; y++) {
+                        // floatToIntColor gives ABGR8888, and reversing the bytes makes that RGBA8888
+                        ints.put(y * width + x, Integer.reverseBytes(NumberUtils.floatToIntColor(colorAt(world, dbm, x, y))));
+                    }
+                }
+            } else {
+                for (int x = 0; x < width; x++) {
+                    final float[] column = colors[x];
+                    for (int y = startY; y < endY; y++) {
+                        column[y] = colorAt(world, dbm, x, y);
+                    }
+                }
+            }
+        }
+    }
+}
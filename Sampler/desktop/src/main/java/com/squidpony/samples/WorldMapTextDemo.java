@@ -93,6 +93,7 @@ public class WorldMapTextDemo extends ApplicationAdapter {
     private Vector3 position, previousPosition, nextPosition;
     private WorldMapGenerator world;
     private WorldMapView wmv;
+    private WorldMapColorizer colorizer;
     private PoliticalMapper pm;
     private OrderedMap<Character, FakeLanguageGen> atlas;
     private OrderedMap<Coord, String> cities;
@@ -179,6 +180,11 @@ public class WorldMapTextDemo extends ApplicationAdapter {
 //        world = new WorldMapGenerator.HyperellipticalMap(seed, bigWidth, bigHeight, WorldMapGenerator.DEFAULT_NOISE, 0.8);
         //world = new WorldMapGenerator.TilingMap(seed, bigWidth, bigHeight, WhirlingNoise.instance, 0.9);
         wmv = new WorldMapView(world);
+        // the same colors wmv.show() used, not the ones above: frozen water blends from the lake color toward ice,
+        // frozen sand from the lightest ice toward ice, the sea toward the river color at the coast, and space is
+        // WorldMapView.emptyColor.
+        colorizer = new WorldMapColorizer(wmv.BIOME_COLOR_TABLE, wmv.BIOME_DARK_COLOR_TABLE, wmv.BIOME_COLOR_TABLE[50],
+                wmv.BIOME_COLOR_TABLE[43], wmv.BIOME_COLOR_TABLE[12], wmv.BIOME_COLOR_TABLE[0], WorldMapView.emptyColor);
         pm = new PoliticalMapper(FakeLanguageGen.SIMPLISH.word(rng, true));
         cities = new OrderedMap<>(96);
         atlas = new OrderedMap<>(80);
@@ -263,7 +269,8 @@ public class WorldMapTextDemo extends ApplicationAdapter {
         world.seedA = (int)(seed & 0xFFFFFFFFL);
         world.seedB = (int) (seed >>> 32);
         wmv.generate();
-        wmv.show();
+        // fills the same color map that wmv.show() would, but colors bands of rows in parallel
+        colorizer.colorize(world, wmv.getBiomeMapper(), wmv.getColorMap());
         atlas.clear();
         for (int i = 0; i < 64; i++) {
             atlas.put(ArrayTools.letterAt(i),
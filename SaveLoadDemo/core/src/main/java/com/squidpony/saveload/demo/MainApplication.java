@@ -41,6 +41,17 @@ import java.util.ArrayList;
 // perfectly fine for these uses.
 public class MainApplication extends ApplicationAdapter {
     public GWTRNG rng;
+
+    // Where saves go, if the launcher gave us somewhere; if this is null, saves go to Preferences on this thread.
+    private final SaveStore saveStore;
+
+    public MainApplication() {
+        this(null);
+    }
+
+    public MainApplication(SaveStore saveStore) {
+        this.saveStore = saveStore;
+    }
     
     public static class Data
     {
@@ -192,13 +203,21 @@ public class MainApplication extends ApplicationAdapter {
     // This filters colors in a way we adjust over time, producing a sort of hue shift effect.
     // It can also be used to over- or under-saturate colors, change their brightness, or any combination of these. 
 
+    // Saves are written by SnapshotCodec now; this is only used to read saves from before that, which are JSON.
     private static final JsonConverter json = new JsonConverter(JsonWriter.OutputType.minimal);
     private Data data;
+    // When saves go to a SaveStore, they're cheap enough to also make one every time the player walks; most of those
+    // only write what changed since the last one.
     
     public void load() throws IllegalStateException {
-        String s = Gdx.app.getPreferences("SaveLoadDemo").getString("SavedState");
-        if (s == null || s.isEmpty()) throw new IllegalStateException("Saved state is empty.");
-        data.set(json.fromJson(Data.class, s));
+        Data loaded = saveStore == null ? null : saveStore.load();
+        if (loaded == null) {
+            String s = Gdx.app.getPreferences("SaveLoadDemo").getString("SavedState");
+            if (s == null || s.isEmpty()) throw new IllegalStateException("Saved state is empty.");
+            // a JSON object always starts with '{', which can't appear in the Base64 text of a snapshot
+            loaded = s.charAt(0) == '{' ? json.fromJson(Data.class, s) : SnapshotCodec.decode(s);
+        }
+        data.set(loaded);
         rng.setStateA(data.stateA);
         rng.setStateB(data.stateB);
         filter.targetCb = data.cb;
@@ -215,7 +234,10 @@ public class MainApplication extends ApplicationAdapter {
     {
         d.stateA = rng.getStateA();
         d.stateB = rng.getStateB();
-        Gdx.app.getPreferences("SaveLoadDemo").putString("SavedState", json.toJson(d, Data.class)).flush();
+        if (saveStore != null)
+            saveStore.save(d);
+        else
+            Gdx.app.getPreferences("SaveLoadDemo").putString("SavedState", SnapshotCodec.encode(d)).flush();
     }
     @Override
     public void create () {
@@ -472,6 +494,8 @@ public class MainApplication extends ApplicationAdapter {
                     }
                     case 'P': // PURGE
                     {
+                        if (saveStore != null)
+                            saveStore.clear();
                         Gdx.app.getPreferences("SaveLoadDemo").clear();
                         Gdx.app.getPreferences("SaveLoadDemo").flush();
                         break;
@@ -593,6 +617,8 @@ public class MainApplication extends ApplicationAdapter {
             // By calling LineKit.pruneLines(), we adjust prunedDungeon to hold a variant on lineDungeon that removes any
             // line segments that haven't ever been visible. This is called again whenever seen changes.
             LineKit.pruneLines(data.lineDungeon, data.seen, LineKit.lightAlt, data.prunedDungeon);
+            if (saveStore != null)
+                keep(data);
         }
         else
         {
@@ -759,4 +785,17 @@ public class MainApplication extends ApplicationAdapter {
         stage.getViewport().update(width, height, false);
 //        stage.getViewport().setScreenBounds(0, (int)languageDisplay.getHeight(), width, height - (int)languageDisplay.getHeight());
     }
+
+    @Override
+    public void pause() {
+        // this is the last chance to save on mobile, and it also happens just before closing on desktop
+        if (saveStore != null)
+            keep(data);
+    }
+
+    @Override
+    public void dispose() {
+        if (saveStore != null)
+            saveStore.dispose();
+    }
 }
\ No newline at end of file
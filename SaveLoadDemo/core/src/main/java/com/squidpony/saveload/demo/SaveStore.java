@@ -0,0 +1,32 @@
+package com.squidpony.saveload.demo;
+
+/**
+ * Somewhere other than Preferences for {@link MainApplication} to keep its saves, given to it by a platform's launcher.
+ * The desktop launcher uses one that writes saves on a background thread, so saving never stalls a frame; other
+ * platforms can pass null, and MainApplication will write to Preferences on the render thread like it always has.
+ */
+public interface SaveStore {
+    /**
+     * Called on the render thread when the game should be saved. This must return quickly, and must not hold on to
+     * data after it returns, since the game keeps changing data; {@link SnapshotCodec#capture(MainApplication.Data, MainApplication.Data)}
+     * is a cheap way to copy what needs saving.
+     * @param data the current state of the game, with its RNG state already stored in it
+     */
+    void save(MainApplication.Data data);
+
+    /**
+     * Gets the most recent save that can be read, waiting for any saves that are still being written first.
+     * @return a fully-initialized Data, or null if there is no save
+     */
+    MainApplication.Data load();
+
+    /**
+     * Deletes every save this has written, waiting for any saves that are still being written first.
+     */
+    void clear();
+
+    /**
+     * Finishes writing any saves that are still pending, then releases any threads or other resources.
+     */
+    void dispose();
+}
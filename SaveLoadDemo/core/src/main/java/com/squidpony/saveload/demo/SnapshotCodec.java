@@ -0,0 +1,474 @@
+package com.squidpony.saveload.demo;
+
+import com.badlogic.gdx.utils.Base64Coder;
+import com.badlogic.gdx.utils.NumberUtils;
+import squidpony.ArrayTools;
+import squidpony.squidgrid.FOV;
+import squidpony.squidgrid.Radius;
+import squidpony.squidgrid.gui.gdx.MapUtility;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidgrid.mapping.LineKit;
+import squidpony.squidmath.Coord;
+import squidpony.squidmath.GreasedRegion;
+
+import java.util.Collections;
+
+/**
+ * Saves a {@link MainApplication.Data} as a compact, versioned binary snapshot, and loads it back. Only the parts of
+ * Data that can't be worked out from other parts are written: the two dungeons that came from the generator, the
+ * cells the player has seen, the player's position, the color filter, the RNG state, and any foreground colors that
+ * differ from the defaults (such as walls the player has bloodied). Everything else, like lineDungeon, resistance,
+ * visible and the other GreasedRegions, is rebuilt from those when loading, the same way MainApplication builds it.
+ * <br>
+ * Numbers are written little-endian, dungeons are written as one byte per cell when every char fits in a byte (two
+ * otherwise), and GreasedRegions are written as their raw long words. Since Preferences can only store Strings, and
+ * this needs to work on GWT too, {@link #encode(MainApplication.Data)} and {@link #decode(String)} wrap the bytes in
+ * Base64; a snapshot of this demo's map is about a tenth of the size of the same Data as minimal JSON.
+ * <br>
+ * Between snapshots, {@link #writeDelta(MainApplication.Data, MainApplication.Data)} can record just what changed in a
+ * turn, which is usually a few dozen bytes, and {@link #read(byte[], Iterable)} replays those deltas onto a snapshot.
+ */
+public final class SnapshotCodec {
+    /**
+     * The first four bytes of every snapshot, "SLDS" when read as little-endian ASCII.
+     */
+    private static final int MAGIC = 0x53444C53;
+    /**
+     * Bumped whenever the layout changes, so a snapshot from an older layout is refused instead of misread.
+     */
+    public static final int VERSION = 1;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Writes the snapshot of data as Base64 text, which can be stored in Preferences.
+     * @param data a fully-initialized Data
+     * @return a Base64 String holding the snapshot
+     */
+    public static String encode(MainApplication.Data data) {
+        return new String(Base64Coder.encode(write(data)));
+    }
+
+    /**
+     * Reads a snapshot from Base64 text produced by {@link #encode(MainApplication.Data)}.
+     * @param text a Base64 String holding a snapshot
+     * @return a new Data with every field filled in
+     * @throws IllegalStateException if text isn't a snapshot of a version this can read
+     */
+    public static MainApplication.Data decode(String text) throws IllegalStateException {
+        final byte[] bytes;
+        try {
+            bytes = Base64Coder.decode(text);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Saved state is not a snapshot.");
+        }
+        return read(bytes);
+    }
+
+    /**
+     * Copies just the fields of {@code from} that a snapshot stores into {@code into}, so into can be written later
+     * while from keeps changing. Once into has been given data of the same size, this doesn't allocate anything, which
+     * makes it cheap enough to call on the render thread.
+     * @param from a fully-initialized Data to copy from
+     * @param into a Data that will be overwritten; its other fields are left alone
+     * @return into, after changes
+     */
+    public static MainApplication.Data capture(MainApplication.Data from, MainApplication.Data into) {
+        into.decoDungeon = copyInto(from.decoDungeon, into.decoDungeon);
+        into.bareDungeon = copyInto(from.bareDungeon, into.bareDungeon);
+        final int width = from.colors.length, height = from.colors[0].length;
+        if (into.colors == null || into.colors.length != width || into.colors[0].length != height)
+            into.colors = new float[width][height];
+        for (int x = 0; x < width; x++) {
+            System.arraycopy(from.colors[x], 0, into.colors[x], 0, height);
+        }
+        if (into.seen == null)
+            into.seen = new GreasedRegion(from.seen);
+        else
+            into.seen.remake(from.seen);
+        into.player = from.player;
+        into.cb = from.cb;
+        into.cr = from.cr;
+        into.stateA = from.stateA;
+        into.stateB = from.stateB;
+        return into;
+    }
+
+    private static char[][] copyInto(char[][] from, char[][] into) {
+        final int width = from.length, height = from[0].length;
+        if (into == null || into.length != width || into[0].length != height)
+            into = new char[width][height];
+        for (int x = 0; x < width; x++) {
+            System.arraycopy(from[x], 0, into[x], 0, height);
+        }
+        return into;
+    }
+
+    /**
+     * Writes the snapshot of data as raw bytes.
+     * @param data a fully-initialized Data
+     * @return a new byte array holding the snapshot
+     */
+    public static byte[] write(MainApplication.Data data) {
+        final int width = data.decoDungeon.length, height = data.decoDungeon[0].length;
+        // foreground colors usually only differ from the defaults in a handful of cells, so only those get written
+        final float[][] defaultColors = MapUtility.generateDefaultColorsFloat(data.decoDungeon);
+        int changed = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (differ(data.colors[x][y], defaultColors[x][y]))
+                    changed++;
+            }
+        }
+        final Writer out = new Writer(48 + (width * height << 1) + data.seen.data.length * 8 + changed * 8);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(data.stateA);
+        out.writeInt(data.stateB);
+        out.writeInt(data.player.x);
+        out.writeInt(data.player.y);
+        out.writeFloat(data.cb);
+        out.writeFloat(data.cr);
+        out.writeChars(data.decoDungeon);
+        out.writeChars(data.bareDungeon);
+        out.writeRegion(data.seen);
+        out.writeInt(changed);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (differ(data.colors[x][y], defaultColors[x][y])) {
+                    out.writeInt(x * height + y);
+                    out.writeFloat(data.colors[x][y]);
+                }
+            }
+        }
+        return out.toArray();
+    }
+
+    /**
+     * Packed float colors are compared by their bits, since 0f and -0f are different colors but compare as equal.
+     */
+    private static boolean differ(float a, float b) {
+        return NumberUtils.floatToRawIntBits(a) != NumberUtils.floatToRawIntBits(b);
+    }
+
+    /**
+     * Writes what changed between two states of the same map as a delta, which {@link #read(byte[], Iterable)} can
+     * replay onto a snapshot of {@code from}. Only the cells of seen and colors that changed are written, plus the few
+     * small fields that change every turn, so a delta is tiny next to a snapshot. If the dungeons themselves changed,
+     * as they do when a new map is generated, a delta can't describe that, and this returns null; a new snapshot
+     * should be written with {@link #write(MainApplication.Data)} instead.
+     * @param from the state the delta starts from, usually the last state that was saved
+     * @param to the state the delta ends at
+     * @return a new byte array holding the delta, or null if only a snapshot can describe the change
+     */
+    public static byte[] writeDelta(MainApplication.Data from, MainApplication.Data to) {
+        final int width = to.decoDungeon.length, height = to.decoDungeon[0].length;
+        if (!sameChars(from.decoDungeon, to.decoDungeon) || !sameChars(from.bareDungeon, to.bareDungeon)
+                || from.seen.data.length != to.seen.data.length)
+            return null;
+        final long[] fromWords = from.seen.data, toWords = to.seen.data;
+        int words = 0, colors = 0;
+        for (int i = 0; i < toWords.length; i++) {
+            if (fromWords[i] != toWords[i])
+                words++;
+        }
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (differ(from.colors[x][y], to.colors[x][y]))
+                    colors++;
+            }
+        }
+        final Writer out = new Writer(32 + words * 12 + colors * 8);
+        out.writeInt(to.stateA);
+        out.writeInt(to.stateB);
+        out.writeInt(to.player.x);
+        out.writeInt(to.player.y);
+        out.writeFloat(to.cb);
+        out.writeFloat(to.cr);
+        // XOR-ing the old words with these gives the new ones
+        out.writeInt(words);
+        for (int i = 0; i < toWords.length; i++) {
+            if (fromWords[i] != toWords[i]) {
+                out.writeInt(i);
+                out.writeLong(fromWords[i] ^ toWords[i]);
+            }
+        }
+        out.writeInt(colors);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (differ(from.colors[x][y], to.colors[x][y])) {
+                    out.writeInt(x * height + y);
+                    out.writeFloat(to.colors[x][y]);
+                }
+            }
+        }
+        return out.toArray();
+    }
+
+    private static boolean sameChars(char[][] a, char[][] b) {
+        if (a.length != b.length || a[0].length != b[0].length)
+            return false;
+        for (int x = 0; x < a.length; x++) {
+            final char[] ac = a[x], bc = b[x];
+            for (int y = 0; y < ac.length; y++) {
+                if (ac[y] != bc[y])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a snapshot from raw bytes produced by {@link #write(MainApplication.Data)}, and rebuilds everything that
+     * wasn't written.
+     * @param bytes a byte array holding a snapshot
+     * @return a new Data with every field filled in
+     * @throws IllegalStateException if bytes isn't a snapshot of a version this can read
+     */
+    public static MainApplication.Data read(byte[] bytes) throws IllegalStateException {
+        return read(bytes, Collections.<byte[]>emptyList());
+    }
+
+    /**
+     * Reads a snapshot from raw bytes produced by {@link #write(MainApplication.Data)}, replays each delta produced by
+     * {@link #writeDelta(MainApplication.Data, MainApplication.Data)} onto it in order, and then rebuilds everything
+     * that wasn't written. The first delta must start from the state the snapshot holds, and each later one from the
+     * state the one before it ended at.
+     * @param bytes a byte array holding a snapshot
+     * @param deltas the deltas to replay, in the order they were written; may be empty
+     * @return a new Data with every field filled in
+     * @throws IllegalStateException if bytes isn't a snapshot of a version this can read, or a delta is damaged
+     */
+    public static MainApplication.Data read(byte[] bytes, Iterable<byte[]> deltas) throws IllegalStateException {
+        final Reader in = new Reader(bytes);
+        if (bytes.length < 8 || in.readInt() != MAGIC)
+            throw new IllegalStateException("Saved state is not a snapshot.");
+        final int version = in.readInt();
+        if (version != VERSION)
+            throw new IllegalStateException("Saved state is snapshot version " + version + ", but only version "
+                    + VERSION + " can be loaded.");
+        final MainApplication.Data data = new MainApplication.Data();
+        data.stateA = in.readInt();
+        data.stateB = in.readInt();
+        final int px = in.readInt();
+        data.player = Coord.get(px, in.readInt());
+        data.cb = in.readFloat();
+        data.cr = in.readFloat();
+        data.decoDungeon = in.readChars();
+        data.bareDungeon = in.readChars();
+        data.seen = in.readRegion();
+        final int width = data.decoDungeon.length, height = data.decoDungeon[0].length;
+        data.colors = MapUtility.generateDefaultColorsFloat(data.decoDungeon);
+        for (int i = in.readInt(); i > 0; i--) {
+            final int cell = in.readInt();
+            if (cell < 0 || cell >= width * height)
+                throw new IllegalStateException("Saved state is a damaged snapshot.");
+            data.colors[cell / height][cell % height] = in.readFloat();
+        }
+        boolean replayed = false;
+        for (byte[] delta : deltas) {
+            applyDelta(data, new Reader(delta));
+            replayed = true;
+        }
+        // the words of seen were changed behind its back, so this makes sure nothing it cached is stale
+        if (replayed)
+            data.seen = new GreasedRegion(data.seen.data, data.seen.width, data.seen.height);
+        rebuild(data);
+        return data;
+    }
+
+    private static void applyDelta(MainApplication.Data data, Reader in) {
+        final int width = data.decoDungeon.length, height = data.decoDungeon[0].length;
+        data.stateA = in.readInt();
+        data.stateB = in.readInt();
+        final int px = in.readInt(), py = in.readInt();
+        if (px < 0 || py < 0 || px >= width || py >= height)
+            throw new IllegalStateException("Saved state has a damaged delta.");
+        data.player = Coord.get(px, py);
+        data.cb = in.readFloat();
+        data.cr = in.readFloat();
+        final long[] words = data.seen.data;
+        for (int i = in.readInt(); i > 0; i--) {
+            final int index = in.readInt();
+            if (index < 0 || index >= words.length)
+                throw new IllegalStateException("Saved state has a damaged delta.");
+            words[index] ^= in.readLong();
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            final int cell = in.readInt();
+            if (cell < 0 || cell >= width * height)
+                throw new IllegalStateException("Saved state has a damaged delta.");
+            data.colors[cell / height][cell % height] = in.readFloat();
+        }
+    }
+
+    /**
+     * Fills in everything a snapshot doesn't store, using the same steps MainApplication uses when it generates a map
+     * and when the player moves.
+     */
+    private static void rebuild(MainApplication.Data data) {
+        data.lineDungeon = DungeonUtility.hashesToLines(data.decoDungeon);
+        data.resistance = DungeonUtility.generateResistances(data.decoDungeon);
+        data.bgColors = MapUtility.generateDefaultBGColorsFloat(data.decoDungeon);
+        data.floors = new GreasedRegion(data.bareDungeon, '.');
+        data.visible = new double[data.decoDungeon.length][data.decoDungeon[0].length];
+        FOV.reuseFOV(data.resistance, data.visible, data.player.x, data.player.y, 9.0, Radius.CIRCLE);
+        // cells with visible at or below 0.0 are unseen, so not() leaves the cells that are seen right now
+        data.blockage = new GreasedRegion(data.visible, 0.0).not();
+        data.currentlySeen = new GreasedRegion(data.blockage);
+        data.blockage.fringe8way();
+        // pruneLines() only changes cells in seen, and seen only ever grows, so pruning once with the whole of seen
+        // gives the same chars as all the pruning done while the player walked around
+        data.prunedDungeon = ArrayTools.copy(data.lineDungeon);
+        LineKit.pruneLines(data.lineDungeon, data.seen, LineKit.lightAlt, data.prunedDungeon);
+    }
+
+    /**
+     * A growable byte array that writes numbers little-endian. Nothing here uses java.nio, so it works on GWT.
+     */
+    private static final class Writer {
+        private byte[] items;
+        private int size;
+
+        Writer(int capacity) {
+            items = new byte[Math.max(16, capacity)];
+        }
+
+        private void ensure(int more) {
+            if (size + more > items.length) {
+                final byte[] next = new byte[Math.max(size + more, items.length + (items.length >>> 1))];
+                System.arraycopy(items, 0, next, 0, size);
+                items = next;
+            }
+        }
+
+        void writeInt(int n) {
+            ensure(4);
+            items[size++] = (byte) n;
+            items[size++] = (byte) (n >>> 8);
+            items[size++] = (byte) (n >>> 16);
+            items[size++] = (byte) (n >>> 24);
+        }
+
+        void writeLong(long n) {
+            writeInt((int) n);
+            writeInt((int) (n >>> 32));
+        }
+
+        void writeFloat(float n) {
+            writeInt(NumberUtils.floatToRawIntBits(n));
+        }
+
+        /**
+         * Writes the size of chars, then a flag for whether each char takes one byte or two, then every char in
+         * {@code [x][y]} order.
+         */
+        void writeChars(char[][] chars) {
+            final int width = chars.length, height = chars[0].length;
+            boolean narrow = true;
+            for (int x = 0; x < width && narrow; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (chars[x][y] > 0xFF) {
+                        narrow = false;
+                        break;
+                    }
+                }
+            }
+            writeInt(width);
+            writeInt(height);
+            ensure(1 + (narrow ? width * height : width * height << 1));
+            items[size++] = (byte) (narrow ? 1 : 2);
+            for (int x = 0; x < width; x++) {
+                final char[] column = chars[x];
+                for (int y = 0; y < height; y++) {
+                    items[size++] = (byte) column[y];
+                    if (!narrow)
+                        items[size++] = (byte) (column[y] >>> 8);
+                }
+            }
+        }
+
+        void writeRegion(GreasedRegion region) {
+            writeInt(region.width);
+            writeInt(region.height);
+            final long[] words = region.data;
+            writeInt(words.length);
+            ensure(words.length << 3);
+            for (int i = 0; i < words.length; i++) {
+                writeLong(words[i]);
+            }
+        }
+
+        byte[] toArray() {
+            final byte[] result = new byte[size];
+            System.arraycopy(items, 0, result, 0, size);
+            return result;
+        }
+    }
+
+    /**
+     * Reads what {@link Writer} wrote. Every read checks that enough bytes are left first, since GWT doesn't throw
+     * for reads past the end of an array, and throws an IllegalStateException if they aren't.
+     */
+    private static final class Reader {
+        private final byte[] items;
+        private int index;
+
+        Reader(byte[] items) {
+            this.items = items;
+        }
+
+        private void need(long count) {
+            if (count < 0 || index + count > items.length)
+                throw new IllegalStateException("Saved state is a damaged snapshot.");
+        }
+
+        int readInt() {
+            need(4);
+            final int n = (items[index] & 0xFF) | (items[index + 1] & 0xFF) << 8
+                    | (items[index + 2] & 0xFF) << 16 | items[index + 3] << 24;
+            index += 4;
+            return n;
+        }
+
+        long readLong() {
+            final long low = readInt() & 0xFFFFFFFFL;
+            return low | (long) readInt() << 32;
+        }
+
+        float readFloat() {
+            return NumberUtils.intBitsToFloat(readInt());
+        }
+
+        char[][] readChars() {
+            final int width = readInt(), height = readInt();
+            need(1);
+            final boolean narrow = items[index++] == 1;
+            if (width <= 0 || height <= 0)
+                throw new IllegalStateException("Saved state is a damaged snapshot.");
+            need((long) width * height * (narrow ? 1 : 2));
+            final char[][] chars = new char[width][height];
+            for (int x = 0; x < width; x++) {
+                final char[] column = chars[x];
+                for (int y = 0; y < height; y++) {
+                    column[y] = narrow ? (char) (items[index++] & 0xFF)
+                            : (char) ((items[index++] & 0xFF) | (items[index++] & 0xFF) << 8);
+                }
+            }
+            return chars;
+        }
+
+        GreasedRegion readRegion() {
+            final int width = readInt(), height = readInt(), count = readInt();
+            if (width < 0 || height < 0 || count != width * ((height + 63) >> 6))
+                throw new IllegalStateException("Saved state is a damaged snapshot.");
+            need(count * 8L);
+            final long[] words = new long[count];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = readLong();
+            }
+            return new GreasedRegion(words, width, height);
+        }
+    }
+}
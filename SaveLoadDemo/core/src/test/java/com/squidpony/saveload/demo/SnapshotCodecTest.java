@@ -0,0 +1,320 @@
+package com.squidpony.saveload.demo;
+
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.NumberUtils;
+import org.junit.Test;
+import squidpony.ArrayTools;
+import squidpony.squidgrid.FOV;
+import squidpony.squidgrid.Radius;
+import squidpony.squidgrid.gui.gdx.MapUtility;
+import squidpony.squidgrid.gui.gdx.SColor;
+import squidpony.squidgrid.mapping.DungeonGenerator;
+import squidpony.squidgrid.mapping.DungeonUtility;
+import squidpony.squidgrid.mapping.LineKit;
+import squidpony.squidmath.GWTRNG;
+import squidpony.squidmath.GreasedRegion;
+import squidpony.store.json.JsonConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a Data written by SnapshotCodec reads back the same as it does through the JSON that saves used before,
+ * so the binary format can't drift away from what the JSON kept, and that deltas replayed onto a snapshot end up at the
+ * same Data as a snapshot of the last turn.
+ */
+public class SnapshotCodecTest {
+    private static final JsonConverter json = new JsonConverter(JsonWriter.OutputType.minimal);
+    private static final float BLOOD = SColor.CRIMSON.toFloatBits();
+
+    /**
+     * Makes a Data the same way MainApplication does when it starts without a save, then walks the player around for
+     * a while so seen, prunedDungeon and the rest aren't just their starting values.
+     */
+    private static MainApplication.Data generate(int width, int height, int steps) {
+        final GWTRNG rng = new GWTRNG(12345, 67890);
+        final MainApplication.Data data = new MainApplication.Data();
+        final DungeonGenerator dungeonGen = new DungeonGenerator(width, height, rng);
+        data.cb = 0.125f;
+        data.cr = -0.0625f;
+        data.decoDungeon = dungeonGen.generate();
+        data.bareDungeon = dungeonGen.getBareDungeon();
+        data.lineDungeon = DungeonUtility.hashesToLines(data.decoDungeon);
+        data.resistance = DungeonUtility.generateResistances(data.decoDungeon);
+        data.visible = new double[width][height];
+        data.floors = new GreasedRegion(data.bareDungeon, '.');
+        data.player = data.floors.singleRandom(rng);
+        FOV.reuseFOV(data.resistance, data.visible, data.player.x, data.player.y, 9.0, Radius.CIRCLE);
+        data.blockage = new GreasedRegion(data.visible, 0.0);
+        data.seen = data.blockage.not().copy();
+        data.currentlySeen = data.seen.copy();
+        data.blockage.fringe8way();
+        data.prunedDungeon = ArrayTools.copy(data.lineDungeon);
+        LineKit.pruneLines(data.lineDungeon, data.seen, LineKit.lightAlt, data.prunedDungeon);
+        data.colors = MapUtility.generateDefaultColorsFloat(data.decoDungeon);
+        data.bgColors = MapUtility.generateDefaultBGColorsFloat(data.decoDungeon);
+        walk(data, rng, steps);
+        return data;
+    }
+
+    /**
+     * Moves the player up to the given number of steps, updating everything MainApplication updates on a move.
+     */
+    private static void walk(MainApplication.Data data, GWTRNG rng, int steps) {
+        final int width = data.decoDungeon.length, height = data.decoDungeon[0].length;
+        for (int i = 0; i < steps; i++) {
+            final int newX = data.player.x + rng.between(-1, 2), newY = data.player.y + rng.between(-1, 2);
+            if (newX < 0 || newY < 0 || newX >= width || newY >= height || data.bareDungeon[newX][newY] == '#')
+                continue;
+            data.player = data.player.translate(newX - data.player.x, newY - data.player.y);
+            FOV.reuseFOV(data.resistance, data.visible, data.player.x, data.player.y, 9.0, Radius.CIRCLE);
+            data.blockage.refill(data.visible, 0.0);
+            data.seen.or(data.currentlySeen.remake(data.blockage.not()));
+            data.blockage.fringe8way();
+            LineKit.pruneLines(data.lineDungeon, data.seen, LineKit.lightAlt, data.prunedDungeon);
+            // spill some blood where the player steps now and then, like a fight would
+            if (rng.nextInt(8) == 0)
+                data.colors[newX][newY] = BLOOD;
+        }
+        data.stateA = rng.getStateA();
+        data.stateB = rng.getStateB();
+    }
+
+    private static MainApplication.Data throughJson(MainApplication.Data data) {
+        return json.fromJson(MainApplication.Data.class, json.toJson(data, MainApplication.Data.class));
+    }
+
+    private static MainApplication.Data throughSnapshot(MainApplication.Data data) {
+        return SnapshotCodec.read(SnapshotCodec.write(data));
+    }
+
+    /**
+     * Checks the fields a snapshot writes; the rest are rebuilt from these.
+     */
+    private static void assertSameStored(MainApplication.Data expected, MainApplication.Data actual) {
+        assertEquals(expected.stateA, actual.stateA);
+        assertEquals(expected.stateB, actual.stateB);
+        assertEquals(expected.player, actual.player);
+        assertEquals(Float.floatToRawIntBits(expected.cb), Float.floatToRawIntBits(actual.cb));
+        assertEquals(Float.floatToRawIntBits(expected.cr), Float.floatToRawIntBits(actual.cr));
+        assertArrayEquals(expected.decoDungeon, actual.decoDungeon);
+        assertArrayEquals(expected.bareDungeon, actual.bareDungeon);
+        assertEquals(expected.seen, actual.seen);
+        assertSameFloats(expected.colors, actual.colors);
+    }
+
+    private static void assertSameData(MainApplication.Data expected, MainApplication.Data actual) {
+        assertSameStored(expected, actual);
+        assertArrayEquals(expected.lineDungeon, actual.lineDungeon);
+        assertArrayEquals(expected.prunedDungeon, actual.prunedDungeon);
+        assertSameFloats(expected.bgColors, actual.bgColors);
+        assertTrue(Arrays.deepEquals(expected.resistance, actual.resistance));
+        assertTrue(Arrays.deepEquals(expected.visible, actual.visible));
+        assertEquals(expected.floors, actual.floors);
+        assertEquals(expected.blockage, actual.blockage);
+        assertEquals(expected.currentlySeen, actual.currentlySeen);
+    }
+
+    /**
+     * Packed float colors are compared by their bits, since 0f and -0f are different colors.
+     */
+    private static void assertSameFloats(float[][] expected, float[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int x = 0; x < expected.length; x++) {
+            assertEquals(expected[x].length, actual[x].length);
+            for (int y = 0; y < expected[x].length; y++) {
+                assertEquals(Float.floatToRawIntBits(expected[x][y]), Float.floatToRawIntBits(actual[x][y]));
+            }
+        }
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            SnapshotCodec.read(bytes);
+            fail("A damaged snapshot of " + bytes.length + " bytes was read.");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static void assertDeltaRejected(byte[] checkpoint, byte[] delta) {
+        try {
+            SnapshotCodec.read(checkpoint, Collections.singletonList(delta));
+            fail("A damaged delta of " + delta.length + " bytes was replayed.");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void walkedMapMatchesJson() {
+        final MainApplication.Data data = generate(MainApplication.bigWidth, MainApplication.bigHeight, 200);
+        assertSameData(throughJson(data), throughSnapshot(data));
+    }
+
+    @Test
+    public void encodedTextMatchesJson() {
+        final MainApplication.Data data = generate(60, 40, 50);
+        assertSameData(throughJson(data), SnapshotCodec.decode(SnapshotCodec.encode(data)));
+    }
+
+    @Test
+    public void emptyRegionAndNoChangedColorsMatchJson() {
+        final MainApplication.Data data = generate(60, 40, 0);
+        data.seen.empty();
+        data.colors = MapUtility.generateDefaultColorsFloat(data.decoDungeon);
+        final MainApplication.Data snapshot = throughSnapshot(data);
+        assertSameStored(throughJson(data), snapshot);
+        assertTrue(snapshot.seen.isEmpty());
+    }
+
+    /**
+     * The biggest map this demo makes, with every cell seen, every foreground color changed, and a char that needs two
+     * bytes, so every count in the snapshot is as large as it can get here.
+     */
+    @Test
+    public void largestMapWithEverythingChangedMatchesJson() {
+        final int width = MainApplication.bigWidth, height = MainApplication.bigHeight;
+        final MainApplication.Data data = generate(width, height, 0);
+        data.seen.fill(true);
+        final GWTRNG rng = new GWTRNG(1, 2);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                // any bits can be stored, but packed colors never use the lowest bit of alpha
+                data.colors[x][y] = NumberUtils.intBitsToFloat(rng.nextInt() & 0xFEFFFFFF);
+            }
+        }
+        data.decoDungeon[data.player.x][data.player.y] = '≈';
+        assertSameStored(throughJson(data), throughSnapshot(data));
+    }
+
+    @Test
+    public void truncatedSnapshotIsRejected() {
+        final byte[] bytes = SnapshotCodec.write(generate(30, 20, 10));
+        for (int length = 0; length < bytes.length; length++) {
+            assertRejected(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    @Test
+    public void corruptedSnapshotIsRejected() {
+        final MainApplication.Data data = generate(30, 20, 0);
+        data.colors = MapUtility.generateDefaultColorsFloat(data.decoDungeon);
+        data.colors[0][0] = BLOOD;
+        final byte[] bytes = SnapshotCodec.write(data);
+
+        byte[] damaged = bytes.clone();
+        damaged[0] ^= 1;
+        assertRejected(damaged);
+
+        // the version, right after the magic number
+        damaged = bytes.clone();
+        damaged[4]++;
+        assertRejected(damaged);
+
+        // the word count of seen: 8 ints of header, then two dungeons of 8 + 1 + 30 * 20 bytes, then width and height
+        damaged = bytes.clone();
+        damaged[32 + 2 * (9 + 30 * 20) + 8]++;
+        assertRejected(damaged);
+
+        // the cell index of the only changed color, which is the last int before that color
+        damaged = bytes.clone();
+        damaged[bytes.length - 5] = 0x7F;
+        assertRejected(damaged);
+
+        try {
+            SnapshotCodec.decode("not Base64!");
+            fail("Text that isn't Base64 was decoded.");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    /**
+     * Replays several turns of deltas onto a checkpoint, the way AsyncSaveStore's journal does, and checks the result
+     * against a full snapshot of the last turn.
+     */
+    @Test
+    public void replayedDeltasMatchSnapshot() {
+        final MainApplication.Data data = generate(MainApplication.bigWidth, MainApplication.bigHeight, 20);
+        final byte[] checkpoint = SnapshotCodec.write(data);
+        final GWTRNG rng = new GWTRNG(data.stateA, data.stateB);
+        final ArrayList<byte[]> deltas = new ArrayList<>();
+        MainApplication.Data previous = SnapshotCodec.capture(data, new MainApplication.Data());
+        for (int turn = 0; turn < 12; turn++) {
+            walk(data, rng, 5);
+            data.cb += 0.03125f;
+            data.cr -= 0.015625f;
+            final byte[] delta = SnapshotCodec.writeDelta(previous, data);
+            assertNotNull(delta);
+            deltas.add(delta);
+            previous = SnapshotCodec.capture(data, new MainApplication.Data());
+        }
+        assertSameData(throughSnapshot(data), SnapshotCodec.read(checkpoint, deltas));
+    }
+
+    @Test
+    public void changedDungeonHasNoDelta() {
+        final MainApplication.Data data = generate(30, 20, 10);
+        final MainApplication.Data changed = SnapshotCodec.capture(data, new MainApplication.Data());
+        changed.decoDungeon[data.player.x][data.player.y] = '~';
+        assertNull(SnapshotCodec.writeDelta(data, changed));
+
+        SnapshotCodec.capture(data, changed);
+        changed.bareDungeon[data.player.x][data.player.y] = '#';
+        assertNull(SnapshotCodec.writeDelta(data, changed));
+
+        assertNull(SnapshotCodec.writeDelta(data, generate(40, 20, 10)));
+        assertNotNull(SnapshotCodec.writeDelta(data, data));
+    }
+
+    @Test
+    public void truncatedDeltaIsRejected() {
+        final MainApplication.Data data = generate(30, 20, 10);
+        final byte[] checkpoint = SnapshotCodec.write(data);
+        final MainApplication.Data from = SnapshotCodec.capture(data, new MainApplication.Data());
+        walk(data, new GWTRNG(data.stateA, data.stateB), 10);
+        data.colors[data.player.x][data.player.y] = BLOOD;
+        final byte[] delta = SnapshotCodec.writeDelta(from, data);
+        for (int length = 0; length < delta.length; length++) {
+            assertDeltaRejected(checkpoint, Arrays.copyOf(delta, length));
+        }
+    }
+
+    @Test
+    public void corruptedDeltaIsRejected() {
+        final MainApplication.Data data = generate(30, 20, 0);
+        final byte[] checkpoint = SnapshotCodec.write(data);
+        final MainApplication.Data to = SnapshotCodec.capture(data, new MainApplication.Data());
+        to.seen.data[0] ^= 1L;
+        to.colors[0][0] = BLOOD;
+        final byte[] delta = SnapshotCodec.writeDelta(data, to);
+        // two RNG states, the player, cb and cr, then one changed word of seen and one changed color
+        assertEquals(24 + 4 + 12 + 4 + 8, delta.length);
+
+        // the player's x, after the two RNG states
+        byte[] damaged = delta.clone();
+        damaged[8] = 0x7F;
+        assertDeltaRejected(checkpoint, damaged);
+
+        // the index of the changed word of seen, right after its count
+        damaged = delta.clone();
+        damaged[28] = 0x7F;
+        assertDeltaRejected(checkpoint, damaged);
+
+        // the count of changed words, which now claims more than the delta holds
+        damaged = delta.clone();
+        damaged[24] = 2;
+        assertDeltaRejected(checkpoint, damaged);
+
+        // the cell index of the changed color, which is the last int before that color
+        damaged = delta.clone();
+        damaged[delta.length - 5] = 0x7F;
+        assertDeltaRejected(checkpoint, damaged);
+    }
+}
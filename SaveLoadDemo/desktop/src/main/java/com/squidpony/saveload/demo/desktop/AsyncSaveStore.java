@@ -0,0 +1,273 @@
+package com.squidpony.saveload.demo.desktop;
+
+import com.badlogic.gdx.Gdx;
+import com.squidpony.saveload.demo.MainApplication;
+import com.squidpony.saveload.demo.SaveStore;
+import com.squidpony.saveload.demo.SnapshotCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link SaveStore} that writes saves to a file on a background thread. On the render thread, {@link #save(MainApplication.Data)}
+ * only copies the saved fields into one of two buffers it reuses, which doesn't allocate once the buffers are sized.
+ * Encoding with {@link SnapshotCodec} and writing happen on the background thread. While one buffer is being written,
+ * any number of saves just overwrite the other buffer, so only the newest of them is written once the first finishes.
+ * <br>
+ * Each save is written to a temporary file, which is forced to disk and then renamed over the save file. The save it
+ * replaces is kept as a backup first, so if the save file is missing or can't be read (say, because the computer lost
+ * power partway through), {@link #load()} falls back to the last save that was written completely.
+ * <br>
+ * Most saves don't rewrite the whole map, though. The save file is a checkpoint, and each save after it only appends
+ * what changed since the save before, as made by {@link SnapshotCodec#writeDelta(MainApplication.Data, MainApplication.Data)},
+ * to a journal file next to it; loading replays the journal onto the checkpoint. A new checkpoint is written (and the
+ * journal started over) when the dungeon itself changes, on the first save after this is created, and once the
+ * journal grows past half the size of the checkpoint, when replaying it would start to cost more than it saves.
+ * The journal begins with the CRC-32 of the checkpoint it belongs to, so a journal left over from an older checkpoint
+ * is never replayed onto a newer one, and every entry carries its own CRC-32, so an entry that was only partly
+ * written ends the replay instead of being misread.
+ */
+public class AsyncSaveStore implements SaveStore {
+    private final Path file, temp, backup, journal, journalTemp;
+    private final MainApplication.Data[] buffers = {new MainApplication.Data(), new MainApplication.Data()};
+    // both are guarded by buffers; pending is waiting to be written, and writing is being written right now
+    private MainApplication.Data pending, writing;
+    private final ThreadPoolExecutor executor;
+    // only touched by the save thread, or while it is idle: the last state written, and the sizes that decide when to
+    // write a new checkpoint. base is null when the next save has to be a checkpoint.
+    private MainApplication.Data base;
+    private long journalSize, journalLimit;
+    private final CRC32 crc = new CRC32();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param file where saves will be written; a temporary file, a backup and a journal are kept next to it, with
+     *             ".tmp", ".bak" and ".journal" added to the name
+     */
+    public AsyncSaveStore(Path file) {
+        this.file = file;
+        temp = file.resolveSibling(file.getFileName() + ".tmp");
+        backup = file.resolveSibling(file.getFileName() + ".bak");
+        journal = file.resolveSibling(file.getFileName() + ".journal");
+        journalTemp = file.resolveSibling(file.getFileName() + ".journal.tmp");
+        // one thread, and room for one waiting task; a task always writes whatever is pending when it starts, so if
+        // one is already waiting, another would have nothing left to write and can be dropped
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "SaveLoadDemo autosave");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void save(MainApplication.Data data) {
+        synchronized (buffers) {
+            // reuse the save that hasn't started being written yet, if there is one, so only the newest is written
+            MainApplication.Data target = pending != null ? pending : buffers[buffers[0] == writing ? 1 : 0];
+            pending = SnapshotCodec.capture(data, target);
+        }
+        executor.execute(drain);
+    }
+
+    private void drain() {
+        MainApplication.Data target;
+        synchronized (buffers) {
+            target = pending;
+            pending = null;
+            writing = target;
+        }
+        if (target == null)
+            return;
+        try {
+            byte[] delta = base == null || journalSize > journalLimit ? null : SnapshotCodec.writeDelta(base, target);
+            if (delta != null)
+                append(delta);
+            else
+                write(SnapshotCodec.write(target));
+            base = SnapshotCodec.capture(target, base == null ? new MainApplication.Data() : base);
+        } catch (IOException e) {
+            // it isn't known what made it to disk, so the next save starts over from a checkpoint
+            base = null;
+            Gdx.app.error("SaveLoadDemo", "Could not write save to " + file, e);
+        } finally {
+            synchronized (buffers) {
+                writing = null;
+                buffers.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes a new checkpoint, then starts a new journal for it.
+     */
+    private void write(byte[] bytes) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        writeFully(temp, ByteBuffer.wrap(bytes));
+        if (Files.exists(file))
+            move(file, backup);
+        move(temp, file);
+        // if this stops before the new journal is in place, the old one stays; its CRC matches the backup, not the
+        // new checkpoint, so it is only replayed if the backup has to be loaded
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(0, checksum(bytes, 0, bytes.length));
+        writeFully(journalTemp, header);
+        move(journalTemp, journal);
+        journalSize = 8;
+        journalLimit = bytes.length >>> 1;
+    }
+
+    private static void writeFully(Path path, ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            // the rename after this must not reach the disk before the contents do
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Appends one entry to the journal: the length of the delta, the delta, and the CRC-32 of the delta.
+     */
+    private void append(byte[] delta) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(delta.length + 8).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putInt(delta.length).put(delta).putInt((int) checksum(delta, 0, delta.length));
+        entry.flip();
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (entry.hasRemaining())
+                channel.write(entry);
+            channel.force(false);
+        }
+        journalSize += delta.length + 8;
+    }
+
+    private long checksum(byte[] bytes, int offset, int length) {
+        synchronized (crc) {
+            crc.reset();
+            crc.update(bytes, offset, length);
+            return crc.getValue();
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Blocks until no save is pending or being written.
+     */
+    private void await() {
+        synchronized (buffers) {
+            while (pending != null || writing != null) {
+                try {
+                    buffers.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public MainApplication.Data load() {
+        await();
+        MainApplication.Data data = read(file, true);
+        if (data == null)
+            data = read(file, false);
+        // a checkpoint that stopped between its two moves leaves the backup with its journal still in place; if the
+        // journal was already started over for the current file, its CRC won't match and nothing is replayed
+        if (data == null)
+            data = read(backup, true);
+        return data != null ? data : read(backup, false);
+    }
+
+    private MainApplication.Data read(Path path, boolean replay) {
+        if (!Files.exists(path))
+            return null;
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            return SnapshotCodec.read(bytes, replay ? readJournal(checksum(bytes, 0, bytes.length))
+                    : new ArrayList<byte[]>(0));
+        } catch (IOException | IllegalStateException e) {
+            Gdx.app.error("SaveLoadDemo", "Could not read save from " + path + (replay ? " and its journal" : ""), e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads every complete, intact entry of the journal, if it belongs to the checkpoint with the given CRC-32.
+     */
+    private ArrayList<byte[]> readJournal(long checkpointCrc) throws IOException {
+        ArrayList<byte[]> deltas = new ArrayList<>();
+        if (!Files.exists(journal))
+            return deltas;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journal)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 8 || buffer.getLong() != checkpointCrc)
+            return deltas;
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + 4)
+                break;
+            byte[] delta = new byte[length];
+            buffer.get(delta);
+            if ((int) checksum(delta, 0, length) != buffer.getInt())
+                break;
+            deltas.add(delta);
+        }
+        return deltas;
+    }
+
+    @Override
+    public void clear() {
+        await();
+        synchronized (buffers) {
+            base = null;
+        }
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(backup);
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(journalTemp);
+        } catch (IOException e) {
+            Gdx.app.error("SaveLoadDemo", "Could not delete saves at " + file, e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.squidpony.saveload.demo.MainApplication;
 
+import java.nio.file.Paths;
+
 /** Launches the desktop (LWJGL) application. */
 public class DesktopLauncher {
     public static void main(String[] args) {
@@ -12,7 +14,9 @@ public class DesktopLauncher {
     }
 
     private static LwjglApplication createApplication() {
-        return new LwjglApplication(new MainApplication(), getDefaultConfiguration());
+        // saves go next to the Preferences file libGDX writes on desktop, but are written off the render thread
+        return new LwjglApplication(new MainApplication(new AsyncSaveStore(
+                Paths.get(System.getProperty("user.home"), ".prefs", "SaveLoadDemo.save"))), getDefaultConfiguration());
     }
 
     private static LwjglApplicationConfiguration getDefaultConfiguration() {
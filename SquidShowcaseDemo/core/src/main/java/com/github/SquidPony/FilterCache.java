@@ -0,0 +1,94 @@
+package com.github.SquidPony;
+
+import com.badlogic.gdx.graphics.Color;
+import squidpony.squidgrid.gui.gdx.SquidColorCenter;
+
+import java.util.Arrays;
+
+/**
+ * Remembers what a SquidColorCenter's filter turned each color into, so putMap() can filter the same few dozen dungeon
+ * colors for every cell on every frame without going through SquidColorCenter each time. Colors are looked up by their
+ * RGBA8888 bits in an open-addressing table of ints, so a lookup doesn't allocate or box anything.
+ * <br>
+ * Filters that change over time, like HallucinateFilter, need {@link #invalidate()} called once per frame. That forgets
+ * every color at once by starting a new generation, without clearing the table.
+ */
+public class FilterCache {
+    public final SquidColorCenter center;
+    private int[] keys, stamps;
+    private Color[] values;
+    private int mask, size, generation = 1;
+
+    public FilterCache(SquidColorCenter center) {
+        this.center = center;
+        allocate(64);
+    }
+
+    /**
+     * The same as center.filter(color), but only asks center the first time a color is seen in this generation.
+     */
+    public Color filter(Color color) {
+        if (color == null)
+            return null;
+        final int bits = Color.rgba8888(color);
+        int i = place(bits);
+        while (stamps[i] == generation) {
+            if (keys[i] == bits)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        final Color filtered = center.filter(color);
+        keys[i] = bits;
+        values[i] = filtered;
+        stamps[i] = generation;
+        // keep the table at most half full, so a miss stops at an empty slot quickly
+        if (++size > mask >>> 1)
+            grow();
+        return filtered;
+    }
+
+    /**
+     * Forgets every filtered color, here and in center's own cache, so the next call to filter() with any color asks
+     * the filter again.
+     */
+    public void invalidate() {
+        center.clearCache();
+        size = 0;
+        if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    private int place(int bits) {
+        // only shifts and xors, since multiplying ints that overflow isn't exact on GWT
+        bits ^= bits >>> 16;
+        bits ^= bits >>> 7 ^ bits >>> 3;
+        return bits & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        stamps = new int[capacity];
+        values = new Color[capacity];
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        final int[] oldKeys = keys, oldStamps = stamps;
+        final Color[] oldValues = values;
+        final int oldGeneration = generation;
+        allocate(keys.length << 1);
+        generation = 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldStamps[j] != oldGeneration)
+                continue;
+            int i = place(oldKeys[j]);
+            while (stamps[i] == generation)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+            stamps[i] = generation;
+        }
+    }
+}
@@ -88,6 +88,9 @@ public class SquidShowcaseDemo extends ApplicationAdapter {
     private ArrayList<Coord> awaitedMoves;
     private String lang;
     private SquidColorCenter[] colorCenters;
+    // one FilterCache per different SquidColorCenter in colorCenters, at the same indices.
+    private FilterCache[] filterCaches;
+    private FilterCache fgCache, bgCache;
     private int currentCenter;
     private boolean changingColors = false;
     private TextCellFactory textFactory;
@@ -163,8 +166,17 @@ public class SquidShowcaseDemo extends ApplicationAdapter {
         colorCenters[16] = DefaultResources.getSCC();
         colorCenters[17] = colorCenters[16];
 
+        // putMap() filters the same few colors for every cell, so it goes through these to skip asking the filter again.
+        filterCaches = new FilterCache[colorCenters.length];
+        for (int i = 0; i < colorCenters.length; i++) {
+            filterCaches[i] = (i > 0 && colorCenters[i] == colorCenters[i - 1])
+                    ? filterCaches[i - 1] : new FilterCache(colorCenters[i]);
+        }
+
         fgCenter = colorCenters[16];
         bgCenter = colorCenters[17];
+        fgCache = filterCaches[16];
+        bgCache = filterCaches[17];
         currentCenter = 8;
         batch = new SpriteBatch();
         width = 60;
@@ -391,6 +403,8 @@ public class SquidShowcaseDemo extends ApplicationAdapter {
                         changingColors = currentCenter == 3;
                         fgCenter = colorCenters[currentCenter * 2];
                         bgCenter = colorCenters[currentCenter * 2 + 1];
+                        fgCache = filterCaches[currentCenter * 2];
+                        bgCache = filterCaches[currentCenter * 2 + 1];
                         display.setFGColorCenter(fgCenter);
                         display.setBGColorCenter(bgCenter);
                         break;
@@ -673,6 +687,7 @@ public class SquidShowcaseDemo extends ApplicationAdapter {
     {
         display.erase();
         boolean overlapping;
+        Color fore, back;
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < height; j++) {
                 overlapping = (!monsters.isEmpty() && monsters.containsPosition(Coord.get(i,j))) || (!monsters.isEmpty() && player.gridX == i && player.gridY == j);
@@ -680,14 +695,18 @@ public class SquidShowcaseDemo extends ApplicationAdapter {
                 // and 1.0), with 1.0 being almost pure white at +215 lightness and 0.0 being rather dark at -105.
                 if (fovmap[i][j] > 0.0) {
                     seen[i][j] = true;
-                    display.put(i*2, j, (overlapping) ? ' ' : lineDungeon[i*2][j], fgCenter.filter(colors[i*2][j]), bgCenter.filter(bgColors[i*2][j]),
+                    fore = fgCache.filter(colors[i*2][j]);
+                    back = bgCache.filter(bgColors[i*2][j]);
+                    display.put(i*2, j, (overlapping) ? ' ' : lineDungeon[i*2][j], fore, back,
                             lights[i][j] + (int) (-105 + 320 * fovmap[i][j]));
-                    display.put(i*2+1, j, (overlapping) ? ' ' : lineDungeon[i*2+1][j], fgCenter.filter(colors[i*2][j]), bgCenter.filter(bgColors[i*2][j]),
+                    display.put(i*2+1, j, (overlapping) ? ' ' : lineDungeon[i*2+1][j], fore, back,
                             lights[i][j] + (int) (-105 + 320 * fovmap[i][j]));
                     // if we don't see it now, but did earlier, use a very dark background, but lighter than black.
                 } else if (seen[i][j]) {
-                    display.put(i*2, j, lineDungeon[i*2][j], fgCenter.filter(colors[i*2][j]), bgCenter.filter(bgColors[i*2][j]), -140);
-                    display.put(i*2+1, j, lineDungeon[i*2+1][j], fgCenter.filter(colors[i*2][j]), bgCenter.filter(bgColors[i*2][j]), -140);
+                    fore = fgCache.filter(colors[i*2][j]);
+                    back = bgCache.filter(bgColors[i*2][j]);
+                    display.put(i*2, j, lineDungeon[i*2][j], fore, back, -140);
+                    display.put(i*2+1, j, lineDungeon[i*2+1][j], fore, back, -140);
                 }
             }
         }
@@ -817,8 +836,9 @@ public class SquidShowcaseDemo extends ApplicationAdapter {
         }
         // if using a filter that changes each frame, clear the known relationship between requested and actual colors
         if(changingColors) {
-            fgCenter.clearCache();
-            bgCenter.clearCache();
+            fgCache.invalidate();
+            if(bgCache != fgCache)
+                bgCache.invalidate();
         }
     }
 
@@ -12,6 +12,7 @@ import com.badlogic.gdx.utils.viewport.StretchViewport;
 import squidpony.FakeLanguageGen;
 import squidpony.NaturalLanguageCipher;
 import squidpony.squidai.DijkstraMap;
+import squidpony.squidgrid.Direction;
 import squidpony.squidgrid.FOV;
 import squidpony.squidgrid.Radius;
 import squidpony.squidgrid.gui.gdx.*;
@@ -538,10 +539,40 @@ public class TsarDemo extends ApplicationAdapter {
         }
     }
 
+    /**
+     * Finds the cell a guard at pos should step into to chase the player, using the distances getToPlayer found this
+     * turn. If the closest cell next to it has another guard in it, this tries the next closest, and so on, as long as
+     * the cell is still closer to the player than pos is.
+     * Like DijkstraMap's own paths, a diagonal step can't squeeze between two walls.
+     * @param pos where the guard is now
+     * @param monplaces where the other guards are
+     * @return the cell to step into, which may be the player's cell, or null if the guard should stay where it is
+     */
+    private Coord chaseStep(Coord pos, OrderedSet<Coord> monplaces) {
+        final double[][] distances = getToPlayer.gradientMap;
+        double best = distances[pos.x][pos.y];
+        Coord next = null;
+        // OUTWARDS has the orthogonal directions first, so they win ties with diagonals.
+        for (Direction dir : Direction.OUTWARDS) {
+            final int x = pos.x + dir.deltaX, y = pos.y + dir.deltaY;
+            if (x < 0 || y < 0 || x >= bigWidth || y >= bigHeight || distances[x][y] >= best)
+                continue;
+            // both cells this diagonal passes between are walls, so it would cut the corner
+            if (dir.deltaX != 0 && dir.deltaY != 0
+                    && distances[x][pos.y] >= DijkstraMap.WALL && distances[pos.x][y] >= DijkstraMap.WALL)
+                continue;
+            final Coord c = Coord.get(x, y);
+            if (!monplaces.contains(c)) {
+                best = distances[x][y];
+                next = c;
+            }
+        }
+        return next;
+    }
+
     private void postMove()
     {
         phase = Phase.MONSTER_ANIM;
-        Coord[] playerArray = {player};
         // in some cases you can use keySet() to get a Set of keys, but that makes a read-only view, and we want
         // a copy of the key set that we can edit (so monsters don't move into each others' spaces)
         OrderedSet<Coord> monplaces = monsters.keysAsOrderedSet();
@@ -552,24 +583,46 @@ public class TsarDemo extends ApplicationAdapter {
         blockage.refill(visible, 0.0);
         seen.or(blockage.not());
         blockage.fringe8way();
+        // Every guard chasing the player is trying to get to the same place, so instead of each one finding its own
+        // path, the distance to the player from every cell near enough is found once per turn, and each guard steps to
+        // whichever cell next to it is closest. Guards that see the player start chasing here, and keep chasing even
+        // out of sight, so the scan needs to reach the farthest chasing guard, with fovRange more for going around walls.
+        int reach = -1;
+        for (Coord pos : monplaces) {
+            TextCellFactory.Glyph mon = monsters.get(pos);
+            // monster values are used to store their aggression, 1 for actively stalking the player, 0 for not.
+            if (mon.getUserObject() == null && visible[pos.x][pos.y] > 0.1) {
+                messageDisplay.appendMessage("The AЯMED GUAЯD shouts at you, \"" +
+                        FakeLanguageGen.RUSSIAN_AUTHENTIC.sentence(rng, 1, 3,
+                                new String[]{",", ",", ",", " -"}, new String[]{"!"}, 0.2) + "\"");
+                mon.setUserObject(true);
+            }
+            if (mon.getUserObject() != null)
+                reach = Math.max(reach, Math.max(Math.abs(pos.x - player.x), Math.abs(pos.y - player.y)));
+        }
+        boolean scannedAll = false;
+        if (reach >= 0) {
+            getToPlayer.clearGoals();
+            getToPlayer.resetMap();
+            getToPlayer.setGoal(player);
+            getToPlayer.partialScan(reach + fovRange, null);
+        }
         // handle monster turns
-        ArrayList<Coord> nextMovePositions;
         for(int ci = 0; ci < monCount; ci++)
         {
             Coord pos = monplaces.removeFirst();
             TextCellFactory.Glyph mon = monsters.get(pos);
-            // monster values are used to store their aggression, 1 for actively stalking the player, 0 for not.
-            if (mon.getUserObject() != null || visible[pos.x][pos.y] > 0.1) {
-                if (mon.getUserObject() == null) {
-                    messageDisplay.appendMessage("The AЯMED GUAЯD shouts at you, \"" +
-                            FakeLanguageGen.RUSSIAN_AUTHENTIC.sentence(rng, 1, 3,
-                                    new String[]{",", ",", ",", " -"}, new String[]{"!"}, 0.2) + "\"");
-                    mon.setUserObject(true);
+            if (mon.getUserObject() != null) {
+                // a guard with a path longer than the scan went gets the rest of the map scanned, at most once a turn.
+                if (!scannedAll && getToPlayer.gradientMap[pos.x][pos.y] >= DijkstraMap.FLOOR) {
+                    getToPlayer.clearGoals();
+                    getToPlayer.resetMap();
+                    getToPlayer.setGoal(player);
+                    getToPlayer.scan(null);
+                    scannedAll = true;
                 }
-                getToPlayer.clearGoals();
-                nextMovePositions = getToPlayer.findPath(1, monplaces, null, pos, playerArray);
-                if (nextMovePositions != null && !nextMovePositions.isEmpty()) {
-                    Coord tmp = nextMovePositions.get(0);
+                Coord tmp = chaseStep(pos, monplaces);
+                if (tmp != null) {
                     // if we would move into the player, instead damage the player and give newMons the current
                     // position of this monster.
                     if (tmp.x == player.x && tmp.y == player.y) {
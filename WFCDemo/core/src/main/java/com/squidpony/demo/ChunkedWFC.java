@@ -0,0 +1,183 @@
+package com.squidpony.demo;
+
+import jagd.RNG;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates a map with no fixed size, one square chunk at a time, from a {@link MimicModel}. Solving a whole map at
+ * once takes memory for every pattern in every cell, so a big enough map won't fit; this only ever solves one chunk,
+ * plus a margin around it, with one {@link MimicSolver} it reuses.
+ * <br>
+ * The margin reaches into the chunks around this one. Where those are already generated, the tiles on the outer edge
+ * of the margin are kept as they are, and the tiles between there and the new chunk are solved again along with it, so
+ * it has some room to fit what's next to it instead of having to continue whatever happened to be at the edge. The
+ * tiles solved again are written back into those neighbors, and {@link #changed(int, int, int[][])} is called for
+ * each. If a chunk still can't be fit after a few attempts (one boxed in on every side can run into this), it is made
+ * without its neighbors, which can leave a seam; {@link #seams} counts how many times that happened.
+ * <br>
+ * Generated chunks are kept until more than {@code capacity} of them are, then the one used longest ago is dropped, and
+ * {@link #evicted(int, int, int[][])} is called so anything made from it can be dropped too. Asking for it again
+ * generates it again, fit to whatever neighbors are loaded then, so it usually won't look the same as before. Which
+ * neighbors a chunk is fit to depends on the order chunks are asked for in, so this is only repeatable if that order
+ * is.
+ */
+public class ChunkedWFC {
+    public final MimicModel model;
+    /** How many cells to a side each chunk has. */
+    public final int chunkSize;
+    /** How many chunks can be kept before the one used longest ago is dropped. */
+    public final int capacity;
+    /** How many cells into each neighbor are solved again with a new chunk. */
+    public final int margin;
+    /** How many attempts to make at fitting a chunk to its neighbors before giving up on that. */
+    public int fittedAttempts = 8;
+    /** How many chunks couldn't be fit to their neighbors and were made without them, so they may have seams. */
+    public int seams;
+    private final long seed;
+    private final int limit;
+    private final MimicSolver solver;
+    private final int[][] known;
+    private final LinkedHashMap<Long, int[][]> chunks;
+
+    /**
+     * Makes a ChunkedWFC that solves 4 cells into each neighbor, which fits nearly every chunk in testing.
+     * @see #ChunkedWFC(MimicModel, int, int, long, int, int) the other constructor, for what the parameters mean
+     */
+    public ChunkedWFC(MimicModel model, int chunkSize, int capacity, long seed, int limit) {
+        this(model, chunkSize, capacity, seed, limit, Math.max(4, model.order - 1));
+    }
+
+    /**
+     * @param model what was learned from the sample map
+     * @param chunkSize how many cells to a side each chunk has
+     * @param capacity how many chunks to keep at most
+     * @param seed the seed for the whole map; each chunk gets its own seed from this and its position
+     * @param limit how many cells one attempt can decide on before it stops, or 0 for no limit
+     * @param margin how many cells into each neighbor to solve again; at least {@code model.order - 1}, which only
+     *               keeps the tiles at the edge, and at most chunkSize
+     */
+    public ChunkedWFC(MimicModel model, int chunkSize, int capacity, long seed, int limit, int margin) {
+        if (margin < model.order - 1 || margin > chunkSize)
+            throw new IllegalArgumentException("margin must be from " + (model.order - 1) + " to " + chunkSize);
+        this.model = model;
+        this.chunkSize = chunkSize;
+        this.capacity = capacity;
+        this.seed = seed;
+        this.limit = limit;
+        this.margin = margin;
+        final int solved = chunkSize + margin * 2;
+        solver = new MimicSolver(model, solved, solved, false, 0);
+        known = new int[solved][solved];
+        // access order, so the first entry is always the one used longest ago
+        chunks = new LinkedHashMap<Long, int[][]>(capacity * 4 / 3 + 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[][]> eldest) {
+                if (size() <= ChunkedWFC.this.capacity)
+                    return false;
+                final long key = eldest.getKey();
+                evicted((int) (key >> 32), (int) key, eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    private static long key(int chunkX, int chunkY) {
+        return (long) chunkX << 32 | (chunkY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return true if the chunk at the given chunk position is generated and still kept
+     */
+    public boolean has(int chunkX, int chunkY) {
+        return chunks.containsKey(key(chunkX, chunkY));
+    }
+
+    /**
+     * Gets the tile ids of the chunk at the given chunk position, indexed [x][y], generating it first if needed. The
+     * cell at [x][y] is at {@code (chunkX * chunkSize + x, chunkY * chunkSize + y)} on the whole map. The array can
+     * change later, when a chunk next to it is generated; {@link #changed(int, int, int[][])} is called when it does.
+     */
+    public int[][] get(int chunkX, int chunkY) {
+        final Long key = key(chunkX, chunkY);
+        int[][] chunk = chunks.get(key);
+        if (chunk == null)
+            chunks.put(key, chunk = generate(chunkX, chunkY));
+        return chunk;
+    }
+
+    /**
+     * Called when the tiles of the chunk at the given chunk position change to fit a new chunk next to it. Does nothing
+     * unless overridden.
+     */
+    protected void changed(int chunkX, int chunkY, int[][] tiles) {
+    }
+
+    /**
+     * Called when the chunk at the given chunk position is dropped to stay within capacity. Does nothing unless
+     * overridden.
+     */
+    protected void evicted(int chunkX, int chunkY, int[][] tiles) {
+    }
+
+    private int[][] generate(int chunkX, int chunkY) {
+        final int solved = known.length, edge = model.order - 1;
+        for (int x = 0; x < solved; x++) {
+            for (int y = 0; y < solved; y++) {
+                known[x][y] = MimicSolver.ANY;
+            }
+        }
+        // the margin can reach into all 8 neighbors, counting diagonals
+        for (int nx = -1; nx <= 1; nx++) {
+            for (int ny = -1; ny <= 1; ny++) {
+                final int[][] neighbor = (nx | ny) == 0 ? null : chunks.get(key(chunkX + nx, chunkY + ny));
+                if (neighbor == null)
+                    continue;
+                // where the neighbor's cell 0,0 is in known
+                final int ox = margin + nx * chunkSize, oy = margin + ny * chunkSize;
+                for (int x = Math.max(0, ox); x < Math.min(solved, ox + chunkSize); x++) {
+                    for (int y = Math.max(0, oy); y < Math.min(solved, oy + chunkSize); y++) {
+                        if (x < edge || y < edge || x >= solved - edge || y >= solved - edge)
+                            known[x][y] = neighbor[x - ox][y - oy];
+                    }
+                }
+            }
+        }
+        final long chunkSeed = WFCProblem.seedFor(seed + key(chunkX, chunkY) * 0xD1B54A32D192ED03L, 0);
+        int i = 0;
+        boolean fitted = false;
+        for (; i < fittedAttempts; i++) {
+            if (solver.run(new RNG(WFCProblem.seedFor(chunkSeed, i)), limit, known)) {
+                fitted = true;
+                break;
+            }
+        }
+        if (!fitted) {
+            seams++;
+            while (!solver.run(new RNG(WFCProblem.seedFor(chunkSeed, i++)), limit)) {
+            }
+        }
+        final int[][] result = solver.result(), chunk = new int[chunkSize][chunkSize];
+        for (int x = 0; x < chunkSize; x++) {
+            System.arraycopy(result[x + margin], margin, chunk[x], 0, chunkSize);
+        }
+        if (fitted && margin > edge) {
+            for (int nx = -1; nx <= 1; nx++) {
+                for (int ny = -1; ny <= 1; ny++) {
+                    final int[][] neighbor = (nx | ny) == 0 ? null : chunks.get(key(chunkX + nx, chunkY + ny));
+                    if (neighbor == null)
+                        continue;
+                    final int ox = margin + nx * chunkSize, oy = margin + ny * chunkSize;
+                    for (int x = Math.max(0, ox); x < Math.min(solved, ox + chunkSize); x++) {
+                        for (int y = Math.max(0, oy); y < Math.min(solved, oy + chunkSize); y++) {
+                            neighbor[x - ox][y - oy] = result[x][y];
+                        }
+                    }
+                    changed(chunkX + nx, chunkY + ny, neighbor);
+                }
+            }
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,370 @@
+package com.squidpony.demo;
+
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What {@link MimicSolver} learns from a sample map: every distinct square pattern of tiles in it, how often each
+ * appears, and which patterns can be next to each other in each direction. This is the part of jagd's MimicWFC that
+ * only depends on the sample, split off so it can be made once and used for any number of maps; MimicWFC redoes it all
+ * every time one is constructed. Nothing here changes after construction, so one MimicModel can be shared by solvers
+ * on any number of threads.
+ * <br>
+ * {@link #of(int[][], int, boolean, int)} keeps the models it makes, keyed by a hash of the sample and settings, so the
+ * same sample is only analyzed once. {@link #toBytes()} and {@link #fromBytes(byte[])} can keep a model between runs.
+ */
+public final class MimicModel {
+    private static final int MAGIC = 0x4D494D43, VERSION = 1;
+    // same directions as MimicWFC: left, down, right, up, where down is +y
+    static final int[] DX = {-1, 0, 1, 0};
+    static final int[] DY = {0, 1, 0, -1};
+    static final int[] OPPOSITE = {2, 3, 0, 1};
+
+    private static final HashMap<Long, MimicModel> cache = new HashMap<>(8);
+
+    /** How many cells to a side each pattern is. */
+    public final int order;
+    /** The hash of the sample and settings this was made from; see {@link #hash(int[][], int, boolean, int)}. */
+    public final long hash;
+    // tile ids, in the order they were first seen in the sample; patterns hold indices into this
+    final int[] tiles;
+    // each pattern's cells by index, row by row
+    final int[][] patterns;
+    final double[] weights, weightLogWeights;
+    final double sumOfWeights, sumOfWeightLogWeights, startingEntropy;
+    // propagator[d][p] holds every pattern that can be in direction d from pattern p
+    final int[][][] propagator;
+
+    /**
+     * Analyzes sample the same way MimicWFC's constructor does, so a {@link MimicSolver} using this makes the same maps
+     * as MimicWFC would with the same settings and RNG.
+     * @param sample tile ids, indexed [x][y]
+     * @param order how many cells to a side each pattern is; usually 2 or 3
+     * @param periodicInput true if the sample wraps around at its edges
+     * @param symmetry how many rotations and reflections of each pattern to use, from 1 to 8
+     */
+    public MimicModel(int[][] sample, int order, boolean periodicInput, int symmetry) {
+        this.order = order;
+        hash = hash(sample, order, periodicInput, symmetry);
+        final int width = sample.length, height = sample[0].length;
+        IntIntMap choices = new IntIntMap(64);
+        IntArray tileList = new IntArray(64);
+        int[][] indexed = new int[width][height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int tile = sample[x][y], choice = choices.get(tile, -1);
+                if (choice == -1) {
+                    choices.put(tile, choice = tileList.size);
+                    tileList.add(tile);
+                }
+                indexed[x][y] = choice;
+            }
+        }
+        tiles = tileList.toArray();
+
+        // patterns are numbered in the order they are first found, which is also what MimicWFC does
+        LinkedHashMap<Pattern, int[]> counts = new LinkedHashMap<>(256);
+        int[][] variants = new int[8][];
+        for (int y = 0; y < (periodicInput ? height : height - order + 1); y++) {
+            for (int x = 0; x < (periodicInput ? width : width - order + 1); x++) {
+                variants[0] = patternFromSample(x, y, indexed, width, height);
+                variants[1] = reflect(variants[0]);
+                variants[2] = rotate(variants[0]);
+                variants[3] = reflect(variants[2]);
+                variants[4] = rotate(variants[2]);
+                variants[5] = reflect(variants[4]);
+                variants[6] = rotate(variants[4]);
+                variants[7] = reflect(variants[6]);
+                for (int k = 0; k < symmetry; k++) {
+                    Pattern p = new Pattern(variants[k]);
+                    int[] count = counts.get(p);
+                    if (count == null)
+                        counts.put(p, new int[]{1});
+                    else
+                        count[0]++;
+                }
+            }
+        }
+        final int total = counts.size();
+        patterns = new int[total][];
+        weights = new double[total];
+        weightLogWeights = new double[total];
+        double sw = 0.0, swlw = 0.0;
+        int i = 0;
+        for (Map.Entry<Pattern, int[]> e : counts.entrySet()) {
+            patterns[i] = e.getKey().cells;
+            weights[i] = e.getValue()[0];
+            weightLogWeights[i] = weights[i] * Math.log(weights[i]);
+            sw += weights[i];
+            swlw += weightLogWeights[i];
+            i++;
+        }
+        sumOfWeights = sw;
+        sumOfWeightLogWeights = swlw;
+        startingEntropy = Math.log(sw) - swlw / sw;
+
+        propagator = new int[4][total][];
+        IntArray list = new IntArray(total);
+        for (int d = 0; d < 4; d++) {
+            for (int a = 0; a < total; a++) {
+                list.clear();
+                for (int b = 0; b < total; b++) {
+                    if (agrees(patterns[a], patterns[b], DX[d], DY[d]))
+                        list.add(b);
+                }
+                propagator[d][a] = list.toArray();
+            }
+        }
+    }
+
+    private MimicModel(int order, long hash, int[] tiles, int[][] patterns, double[] weights, int[][][] propagator) {
+        this.order = order;
+        this.hash = hash;
+        this.tiles = tiles;
+        this.patterns = patterns;
+        this.weights = weights;
+        this.propagator = propagator;
+        weightLogWeights = new double[weights.length];
+        double sw = 0.0, swlw = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            weightLogWeights[i] = weights[i] * Math.log(weights[i]);
+            sw += weights[i];
+            swlw += weightLogWeights[i];
+        }
+        sumOfWeights = sw;
+        sumOfWeightLogWeights = swlw;
+        startingEntropy = Math.log(sw) - swlw / sw;
+    }
+
+    /**
+     * Gets the model for the given sample and settings, only making a new one if none has been made for a sample with
+     * the same contents and settings.
+     * @see #MimicModel(int[][], int, boolean, int) the constructor, for what the parameters mean
+     */
+    public static MimicModel of(int[][] sample, int order, boolean periodicInput, int symmetry) {
+        Long key = hash(sample, order, periodicInput, symmetry);
+        synchronized (cache) {
+            MimicModel model = cache.get(key);
+            if (model == null)
+                cache.put(key, model = new MimicModel(sample, order, periodicInput, symmetry));
+            return model;
+        }
+    }
+
+    /**
+     * Adds a model to the cache used by {@link #of(int[][], int, boolean, int)}, such as one read by
+     * {@link #fromBytes(byte[])}, so it won't need to be made again.
+     */
+    public static void cache(MimicModel model) {
+        synchronized (cache) {
+            cache.put(model.hash, model);
+        }
+    }
+
+    /**
+     * A 64-bit hash of every cell in sample, its size, and the settings that change what model it makes. Two samples
+     * that hash the same are treated as the same sample.
+     */
+    public static long hash(int[][] sample, int order, boolean periodicInput, int symmetry) {
+        long h = 0x9E3779B97F4A7C15L ^ (sample.length * 31L + sample[0].length) * 0xC6BC279692B5CC83L;
+        h = mix(h ^ (order << 8 | symmetry << 1 | (periodicInput ? 1 : 0)));
+        for (int x = 0; x < sample.length; x++) {
+            final int[] column = sample[x];
+            for (int y = 0; y < column.length; y++) {
+                h = mix(h + column[y]);
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+
+    /** How many distinct patterns were found. */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * Writes this model so {@link #fromBytes(byte[])} can read it back without analyzing the sample again.
+     */
+    public byte[] toBytes() {
+        int size = 28 + tiles.length * 4, total = patterns.length;
+        size += total * (order * order * 4 + 8);
+        for (int d = 0; d < 4; d++) {
+            for (int p = 0; p < total; p++) {
+                size += 4 + propagator[d][p].length * 4;
+            }
+        }
+        byte[] bytes = new byte[size];
+        int at = 0;
+        at = putInt(bytes, at, MAGIC);
+        at = putInt(bytes, at, VERSION);
+        at = putInt(bytes, at, order);
+        at = putLong(bytes, at, hash);
+        at = putInt(bytes, at, tiles.length);
+        for (int i = 0; i < tiles.length; i++) {
+            at = putInt(bytes, at, tiles[i]);
+        }
+        at = putInt(bytes, at, total);
+        for (int p = 0; p < total; p++) {
+            for (int i = 0; i < patterns[p].length; i++) {
+                at = putInt(bytes, at, patterns[p][i]);
+            }
+            at = putLong(bytes, at, Double.doubleToLongBits(weights[p]));
+        }
+        for (int d = 0; d < 4; d++) {
+            for (int p = 0; p < total; p++) {
+                final int[] list = propagator[d][p];
+                at = putInt(bytes, at, list.length);
+                for (int i = 0; i < list.length; i++) {
+                    at = putInt(bytes, at, list[i]);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a model written by {@link #toBytes()}.
+     * @throws IllegalStateException if bytes isn't a model this version can read, or was cut short
+     */
+    public static MimicModel fromBytes(byte[] bytes) throws IllegalStateException {
+        if (bytes.length < 24 || getInt(bytes, 0) != MAGIC || getInt(bytes, 4) != VERSION)
+            throw new IllegalStateException("Not a saved MimicModel.");
+        int order = getInt(bytes, 8), at = 12;
+        if (order < 1 || order > 8)
+            throw new IllegalStateException("Not a saved MimicModel.");
+        long hash = getLong(bytes, at);
+        at += 8;
+        int[] tiles = new int[need(bytes, at + 4, getInt(bytes, at), 4)];
+        at += 4;
+        for (int i = 0; i < tiles.length; i++, at += 4) {
+            tiles[i] = getInt(bytes, at);
+        }
+        need(bytes, at, 1, 4);
+        int total = need(bytes, at + 4, getInt(bytes, at), order * order * 4 + 8);
+        at += 4;
+        int[][] patterns = new int[total][order * order];
+        double[] weights = new double[total];
+        for (int p = 0; p < total; p++) {
+            for (int i = 0; i < patterns[p].length; i++, at += 4) {
+                patterns[p][i] = getInt(bytes, at);
+            }
+            weights[p] = Double.longBitsToDouble(getLong(bytes, at));
+            at += 8;
+        }
+        int[][][] propagator = new int[4][total][];
+        for (int d = 0; d < 4; d++) {
+            for (int p = 0; p < total; p++) {
+                need(bytes, at, 1, 4);
+                final int[] list = propagator[d][p] = new int[need(bytes, at + 4, getInt(bytes, at), 4)];
+                at += 4;
+                for (int i = 0; i < list.length; i++, at += 4) {
+                    list[i] = getInt(bytes, at);
+                }
+            }
+        }
+        return new MimicModel(order, hash, tiles, patterns, weights, propagator);
+    }
+
+    private static int need(byte[] bytes, int at, int count, int each) {
+        if (count < 0 || bytes.length - at < (long) count * each)
+            throw new IllegalStateException("Saved MimicModel is cut short.");
+        return count;
+    }
+
+    private static int putInt(byte[] bytes, int at, int value) {
+        bytes[at] = (byte) value;
+        bytes[at + 1] = (byte) (value >>> 8);
+        bytes[at + 2] = (byte) (value >>> 16);
+        bytes[at + 3] = (byte) (value >>> 24);
+        return at + 4;
+    }
+
+    private static int putLong(byte[] bytes, int at, long value) {
+        putInt(bytes, at, (int) value);
+        return putInt(bytes, at + 4, (int) (value >>> 32));
+    }
+
+    private static int getInt(byte[] bytes, int at) {
+        return (bytes[at] & 0xFF) | (bytes[at + 1] & 0xFF) << 8 | (bytes[at + 2] & 0xFF) << 16 | bytes[at + 3] << 24;
+    }
+
+    private static long getLong(byte[] bytes, int at) {
+        return (getInt(bytes, at) & 0xFFFFFFFFL) | (long) getInt(bytes, at + 4) << 32;
+    }
+
+    private int[] patternFromSample(int x, int y, int[][] sample, int width, int height) {
+        int[] result = new int[order * order];
+        for (int dy = 0; dy < order; dy++) {
+            for (int dx = 0; dx < order; dx++) {
+                result[dx + dy * order] = sample[(x + dx) % width][(y + dy) % height];
+            }
+        }
+        return result;
+    }
+
+    private int[] rotate(int[] p) {
+        int[] result = new int[order * order];
+        for (int y = 0; y < order; y++) {
+            for (int x = 0; x < order; x++) {
+                result[x + y * order] = p[order - 1 - y + x * order];
+            }
+        }
+        return result;
+    }
+
+    private int[] reflect(int[] p) {
+        int[] result = new int[order * order];
+        for (int y = 0; y < order; y++) {
+            for (int x = 0; x < order; x++) {
+                result[x + y * order] = p[order - 1 - x + y * order];
+            }
+        }
+        return result;
+    }
+
+    private boolean agrees(int[] p1, int[] p2, int dx, int dy) {
+        int xmin = Math.max(dx, 0), xmax = dx < 0 ? dx + order : order,
+                ymin = Math.max(dy, 0), ymax = dy < 0 ? dy + order : order;
+        for (int y = ymin; y < ymax; y++) {
+            for (int x = xmin; x < xmax; x++) {
+                if (p1[x + order * y] != p2[x - dx + order * (y - dy)])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An int[] that is equal to and hashes like any other with the same contents, so patterns can be counted in a map.
+     */
+    private static final class Pattern {
+        final int[] cells;
+        final int hash;
+
+        Pattern(int[] cells) {
+            this.cells = cells;
+            hash = Arrays.hashCode(cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pattern && Arrays.equals(cells, ((Pattern) o).cells);
+        }
+    }
+}
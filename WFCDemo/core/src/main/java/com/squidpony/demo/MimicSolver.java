@@ -0,0 +1,270 @@
+package com.squidpony.demo;
+
+import jagd.RNG;
+
+import java.util.Arrays;
+
+/**
+ * Generates maps from a {@link MimicModel}, one attempt per call to {@link #run(RNG, int)}. This holds everything in
+ * jagd's MimicWFC that changes while it runs, and nothing that is learned from the sample, so making one only costs
+ * allocating its arrays. It makes the same maps as MimicWFC given the same settings and RNG state, but keeps each
+ * cell's state in flat arrays instead of one small array per cell and pattern.
+ * <br>
+ * A MimicSolver can be run again after it finishes, and reuses its arrays when it is, but it can only be used by one
+ * thread at a time. Use one per thread; they can all share a model.
+ * <br>
+ * Unlike MimicWFC, this can also be told some of the tiles ahead of time with {@link #run(RNG, int, int[][])}, which
+ * rules out every pattern that would disagree with them before the first choice is made. {@link ChunkedWFC} uses this
+ * to make each chunk of a map fit the chunks already next to it.
+ */
+public class MimicSolver {
+    /**
+     * Used in the known tiles given to {@link #run(RNG, int, int[][])} for a cell that can be any tile.
+     */
+    public static final int ANY = Integer.MIN_VALUE;
+
+    public final MimicModel model;
+    public final int width, height;
+    private final boolean periodic;
+    private final int ground, total, order;
+    // wave[i * total + t] is true if cell i can still be pattern t
+    private final boolean[] wave;
+    // compatible[(i * total + t) * 4 + d] counts the patterns the neighbor in direction d could be that allow t here
+    private final int[] compatible;
+    private final int[] sumsOfOnes;
+    private final double[] sumsOfWeights, sumsOfWeightLogWeights, entropies;
+    private final double[] distribution;
+    private final int[] stack;
+    private int stacksize;
+    private int[] observed;
+    private int[][] known;
+    private RNG random;
+
+    /**
+     * @param model what was learned from the sample map
+     * @param width the width of maps to generate, in cells
+     * @param height the height of maps to generate, in cells
+     * @param periodicOutput true if generated maps should wrap around at their edges
+     * @param ground the same as MimicWFC's ground parameter: if not 0, this pattern number, counting back from the
+     *               last pattern if negative, must go along the bottom edge and nowhere else
+     */
+    public MimicSolver(MimicModel model, int width, int height, boolean periodicOutput, int ground) {
+        this.model = model;
+        this.width = width;
+        this.height = height;
+        periodic = periodicOutput;
+        order = model.order;
+        total = model.size();
+        this.ground = (ground + total) % total;
+        final int cells = width * height;
+        wave = new boolean[cells * total];
+        compatible = new int[cells * total * 4];
+        sumsOfOnes = new int[cells];
+        sumsOfWeights = new double[cells];
+        sumsOfWeightLogWeights = new double[cells];
+        entropies = new double[cells];
+        distribution = new double[total];
+        stack = new int[cells * total << 1];
+    }
+
+    /**
+     * Makes one attempt at generating a map, starting over from nothing.
+     * @param random the RNG to make choices with
+     * @param limit how many cells to decide on before stopping, or 0 for no limit
+     * @return false if this ran into a contradiction, true otherwise
+     */
+    public boolean run(RNG random, int limit) {
+        return run(random, limit, null);
+    }
+
+    /**
+     * Makes one attempt at generating a map that has the given tiles where they are known.
+     * @param random the RNG to make choices with
+     * @param limit how many cells to decide on before stopping, or 0 for no limit
+     * @param known tile ids indexed [x][y], at least as big as this, with {@link #ANY} where the tile isn't known; may
+     *              be null if no tiles are known
+     * @return false if this ran into a contradiction, including if the known tiles can't all fit, true otherwise
+     */
+    public boolean run(RNG random, int limit, int[][] known) {
+        this.random = random;
+        this.known = known;
+        observed = null;
+        clear();
+        for (int l = 0; l < limit || limit == 0; l++) {
+            Boolean result = observe();
+            if (result != null)
+                return result;
+            propagate();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the tile ids of the last map generated, indexed [x][y]. This is all 0 if the last run didn't finish.
+     */
+    public int[][] result() {
+        int[][] result = new int[width][height];
+        if (observed == null)
+            return result;
+        for (int y = 0; y < height; y++) {
+            int dy = y < height - order + 1 ? 0 : order - 1;
+            for (int x = 0; x < width; x++) {
+                int dx = x < width - order + 1 ? 0 : order - 1;
+                result[x][y] = model.tiles[model.patterns[observed[x - dx + (y - dy) * width]][dx + dy * order]];
+            }
+        }
+        return result;
+    }
+
+    private Boolean observe() {
+        double min = 1000.0;
+        int argmin = -1;
+        for (int i = 0; i < sumsOfOnes.length; i++) {
+            if (onBoundary(i % width, i / width))
+                continue;
+            int amount = sumsOfOnes[i];
+            if (amount == 0)
+                return false;
+            double entropy = entropies[i];
+            if (amount > 1 && entropy <= min) {
+                double noise = 1E-6 * random.nextDouble();
+                if (entropy + noise < min) {
+                    min = entropy + noise;
+                    argmin = i;
+                }
+            }
+        }
+        if (argmin == -1) {
+            observed = new int[sumsOfOnes.length];
+            for (int i = 0; i < observed.length; i++) {
+                for (int t = 0; t < total; t++) {
+                    if (wave[i * total + t]) {
+                        observed[i] = t;
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+        final int start = argmin * total;
+        double sum = 0.0;
+        for (int t = 0; t < total; t++) {
+            sum += distribution[t] = wave[start + t] ? model.weights[t] : 0.0;
+        }
+        double chosen = random.nextDouble(sum), x = 0.0;
+        int r = 0;
+        for (; r < total; r++) {
+            if ((x += distribution[r]) > chosen)
+                break;
+        }
+        for (int t = 0; t < total; t++) {
+            if (wave[start + t] != (t == r))
+                ban(argmin, t);
+        }
+        return null;
+    }
+
+    private void propagate() {
+        while (stacksize > 0) {
+            int i1 = stack[stacksize - 2], t1 = stack[stacksize - 1];
+            stacksize -= 2;
+            int x1 = i1 % width, y1 = i1 / width;
+            for (int d = 0; d < 4; d++) {
+                int x2 = x1 + MimicModel.DX[d], y2 = y1 + MimicModel.DY[d];
+                if (onBoundary(x2, y2))
+                    continue;
+                if (x2 < 0) x2 += width;
+                else if (x2 >= width) x2 -= width;
+                if (y2 < 0) y2 += height;
+                else if (y2 >= height) y2 -= height;
+                int i2 = x2 + y2 * width;
+                final int[] p = model.propagator[d][t1];
+                for (int l = 0; l < p.length; l++) {
+                    int t2 = p[l], c = (i2 * total + t2) * 4 + d;
+                    if (--compatible[c] == 0)
+                        ban(i2, t2);
+                }
+            }
+        }
+    }
+
+    private void ban(int i, int t) {
+        wave[i * total + t] = false;
+        Arrays.fill(compatible, (i * total + t) * 4, (i * total + t) * 4 + 4, 0);
+        stack[stacksize++] = i;
+        stack[stacksize++] = t;
+
+        double sum = sumsOfWeights[i];
+        entropies[i] += sumsOfWeightLogWeights[i] / sum - Math.log(sum);
+        sumsOfOnes[i]--;
+        sumsOfWeights[i] -= model.weights[t];
+        sumsOfWeightLogWeights[i] -= model.weightLogWeights[t];
+        sum = sumsOfWeights[i];
+        entropies[i] -= sumsOfWeightLogWeights[i] / sum - Math.log(sum);
+    }
+
+    private boolean onBoundary(int x, int y) {
+        return !periodic && (x + order > width || y + order > height || x < 0 || y < 0);
+    }
+
+    private void clear() {
+        Arrays.fill(wave, true);
+        for (int t = 0, c = 0; t < total; t++) {
+            for (int d = 0; d < 4; d++, c++) {
+                compatible[c] = model.propagator[MimicModel.OPPOSITE[d]][t].length;
+            }
+        }
+        // every cell starts the same, so the first cell's counts are copied to the rest
+        final int each = total * 4;
+        for (int start = each; start < compatible.length; start += each) {
+            System.arraycopy(compatible, 0, compatible, start, each);
+        }
+        Arrays.fill(sumsOfOnes, total);
+        Arrays.fill(sumsOfWeights, model.sumOfWeights);
+        Arrays.fill(sumsOfWeightLogWeights, model.sumOfWeightLogWeights);
+        Arrays.fill(entropies, model.startingEntropy);
+        stacksize = 0;
+
+        if (ground != 0) {
+            for (int x = 0; x < width; x++) {
+                for (int t = 0; t < total; t++) {
+                    if (t != ground)
+                        ban(x + (height - 1) * width, t);
+                }
+                for (int y = 0; y < height - 1; y++) {
+                    ban(x + y * width, ground);
+                }
+            }
+        }
+        if (known != null)
+            banUnknown();
+        propagate();
+    }
+
+    /**
+     * Bans every pattern that would put a different tile on a known cell.
+     */
+    private void banUnknown() {
+        final int[] tiles = model.tiles;
+        final int[][] patterns = model.patterns;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (onBoundary(x, y))
+                    continue;
+                final int i = x + y * width;
+                for (int dy = 0; dy < order; dy++) {
+                    for (int dx = 0; dx < order; dx++) {
+                        final int k = known[(x + dx) % width][(y + dy) % height];
+                        if (k == ANY)
+                            continue;
+                        final int o = dx + dy * order;
+                        for (int t = 0; t < total; t++) {
+                            if (wave[i * total + t] && tiles[patterns[t][o]] != k)
+                                ban(i, t);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.squidpony.demo;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * A {@link WFCRunner} that makes one attempt after another on the calling thread. Since it stops at the first success,
+ * the attempt it uses is always the lowest-numbered one that succeeds, the same as a deterministic parallel runner.
+ */
+public class SequentialWFCRunner implements WFCRunner {
+    @Override
+    public int[][] solve(WFCProblem problem, long seed, WFCStats stats) {
+        stats.reset(1);
+        long start = TimeUtils.nanoTime();
+        int[][] result;
+        for (int i = 0; ; i++) {
+            result = problem.attempt(seed, i);
+            stats.attempts++;
+            if (result != null) {
+                stats.winner = i;
+                break;
+            }
+            stats.contradictions++;
+        }
+        stats.nanos = TimeUtils.nanoTime() - start;
+        return result;
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
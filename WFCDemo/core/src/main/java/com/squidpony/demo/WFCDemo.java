@@ -1,6 +1,7 @@
 package com.squidpony.demo;
 
 import com.badlogic.gdx.*;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
@@ -8,7 +9,10 @@ import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
-import jagd.MimicWFC;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.LongMap;
 import jagd.RNG;
 
 /**
@@ -17,10 +21,16 @@ import jagd.RNG;
  * that one (so if there are 5 identical grass tiles, it will only use the first). There is an exception for the
  * roof of a house; different tiles are used for the roof above the door, to the left of the door, and to the
  * right of the door, and this seems to help increase the placement likelihood for a house.
+ * <br>
+ * Pressing E switches between one map of a fixed size and an endless map, made a chunk at a time by
+ * {@link ChunkedWFC} as the camera gets near, which the arrow keys scroll around. Any other key makes a new map of
+ * whichever kind is showing, and Q or Escape quits.
  */
 public class WFCDemo extends ApplicationAdapter {
 
     private RNG rng;
+    private final WFCRunner runner;
+    private final WFCStats stats = new WFCStats();
     /** In number of cells */
     private static final int gridWidth = 64;
     /** In number of cells */
@@ -30,10 +40,37 @@ public class WFCDemo extends ApplicationAdapter {
     private static final int cellWidth = 16;
     /** The pixel height of a cell */
     private static final int cellHeight = 16;
+    /** In number of cells, for the endless map */
+    private static final int chunkSize = 32;
+    /** How many chunks of the endless map to keep; only about 20 are ever near the camera at once */
+    private static final int chunkCapacity = 48;
+    /** How fast the arrow keys scroll the endless map, in pixels per second */
+    private static final float scrollSpeed = 480f;
     private TiledMap originalMap;
+    private WFCProblem problem;
     private TiledMap tiledMap;
+    private OrthographicCamera camera;
     private OrthogonalTiledMapRenderer renderer;
 
+    private boolean endlessMode;
+    private ChunkedWFC endless;
+    private TiledMap endlessMap;
+    private final LongMap<TiledMapTileLayer> chunkLayers = new LongMap<>(chunkCapacity);
+    // every cell with the same tile can share one Cell, since none are flipped or rotated
+    private final IntMap<TiledMapTileLayer.Cell> cells = new IntMap<>(64);
+
+    public WFCDemo() {
+        this(new SequentialWFCRunner());
+    }
+
+    /**
+     * @param runner makes the attempts at each map; a launcher can pass one that suits its platform better than the
+     *               default {@link SequentialWFCRunner}
+     */
+    public WFCDemo(WFCRunner runner) {
+        this.runner = runner;
+    }
+
     @Override
     public void create () {
         // gotta have a random number generator. We can seed an RNG with any long we want, or even a String.
@@ -42,11 +79,22 @@ public class WFCDemo extends ApplicationAdapter {
 
         //Some classes in SquidLib need access to a batch to render certain things, so it's a good idea to have one.
         SpriteBatch batch = new SpriteBatch();
-        OrthographicCamera camera = new OrthographicCamera(gridWidth * cellWidth, gridHeight * cellHeight);
+        camera = new OrthographicCamera(gridWidth * cellWidth, gridHeight * cellHeight);
         //viewport.setScreenBounds(gridWidth * cellWidth / -4, gridHeight * cellHeight / -4, gridWidth * cellWidth, gridHeight * cellHeight);
 
         TmxMapLoader loader = new TmxMapLoader();
         originalMap = loader.load("testingTerrainIsland.tmx");
+        TiledMapTileLayer originalLayer = (TiledMapTileLayer) originalMap.getLayers().get(0);
+
+        int[][] grid = new int[originalLayer.getWidth()][originalLayer.getHeight()];
+
+        for (int y = 0; y < originalLayer.getHeight(); y++) {
+            for (int x = 0; x < originalLayer.getWidth(); x++) {
+                grid[x][y] = originalLayer.getCell(x, y).getTile().getId();
+            }
+        }
+        // the sample never changes, so learning its patterns only happens once, not every time a map is made
+        problem = new WFCProblem(loadModel(grid, 2, false, 1), gridWidth, gridHeight, false, 0, 1000000); // 0 refers to tile id 0, water
         remake();
         renderer = new OrthogonalTiledMapRenderer(tiledMap, batch);
         //camera.translate(gridWidth * cellWidth * -0.5f, gridHeight * cellHeight * -0.5f);
@@ -60,32 +108,69 @@ public class WFCDemo extends ApplicationAdapter {
                     case Input.Keys.ESCAPE:
                         Gdx.app.exit();
                         break;
+                    case Input.Keys.E:
+                        endlessMode = !endlessMode;
+                        if (endlessMode) {
+                            if (endless == null)
+                                remakeEndless();
+                            renderer.setMap(endlessMap);
+                        } else {
+                            camera.position.set(0f, 0f, 0f);
+                            camera.update();
+                            renderer.setMap(tiledMap);
+                            renderer.setView(camera);
+                        }
+                        break;
+                    case Input.Keys.LEFT:
+                    case Input.Keys.RIGHT:
+                    case Input.Keys.UP:
+                    case Input.Keys.DOWN:
+                        // these scroll the endless map while held, so they only make a new map of a fixed size
+                        if (!endlessMode)
+                            remakeShown();
+                        break;
                     default:
-                        remake();
-                        renderer.setMap(tiledMap);
-                        resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+                        remakeShown();
                 }
                 return true;
             }
         };
         Gdx.input.setInputProcessor(input);
     }
-    public void remake()
-    {
-        TiledMapTileLayer originalLayer = (TiledMapTileLayer) originalMap.getLayers().get(0);
-
-        int[][] grid = new int[originalLayer.getWidth()][originalLayer.getHeight()];
-
-        for (int y = 0; y < originalLayer.getHeight(); y++) {
-            for (int x = 0; x < originalLayer.getWidth(); x++) {
-                grid[x][y] = originalLayer.getCell(x, y).getTile().getId();
+    /**
+     * Gets the model for a sample, reading it from a local file saved by an earlier run if there is one, or making it
+     * and saving it for next time if not. Platforms without local files, like GWT, just make it.
+     */
+    private static MimicModel loadModel(int[][] grid, int order, boolean periodicInput, int symmetry) {
+        if (!Gdx.files.isLocalStorageAvailable())
+            return MimicModel.of(grid, order, periodicInput, symmetry);
+        long hash = MimicModel.hash(grid, order, periodicInput, symmetry);
+        FileHandle file = Gdx.files.local("wfc-cache/" + Long.toHexString(hash) + ".model");
+        if (file.exists()) {
+            try {
+                MimicModel model = MimicModel.fromBytes(file.readBytes());
+                if (model.hash == hash) {
+                    MimicModel.cache(model);
+                    return model;
+                }
+            } catch (GdxRuntimeException | IllegalStateException e) {
+                Gdx.app.error("WFCDemo", "Could not read cached model " + file.path(), e);
             }
         }
+        MimicModel model = MimicModel.of(grid, order, periodicInput, symmetry);
+        try {
+            file.writeBytes(model.toBytes(), false);
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error("WFCDemo", "Could not cache model to " + file.path(), e);
+        }
+        return model;
+    }
 
-        MimicWFC wfc = new MimicWFC(grid, 2, gridWidth, gridHeight, false, false, 1, 0); // 0 refers to tile id 0, water
-        int i = 0;
-        while (!wfc.run(rng, 1000000)) { System.out.println((++i) + " attempts failed."); }
-        int[][] grid2 = wfc.result();
+    public void remake()
+    {
+        // each map gets its own master seed, so the same seed for rng always makes the same series of maps
+        int[][] grid2 = runner.solve(problem, rng.nextLong(), stats);
+        System.out.println(stats);
         tiledMap = new TiledMap();
         tiledMap.getTileSets().addTileSet(originalMap.getTileSets().getTileSet(0));
         TiledMapTileLayer layer = new TiledMapTileLayer(gridWidth, gridHeight, cellWidth, cellHeight);
@@ -153,8 +238,122 @@ public class WFCDemo extends ApplicationAdapter {
 //        }
 //
 //    }
+    /**
+     * Makes a new map of whichever kind is being shown, and shows it.
+     */
+    private void remakeShown() {
+        if (endlessMode) {
+            remakeEndless();
+            renderer.setMap(endlessMap);
+            return;
+        }
+        remake();
+        renderer.setMap(tiledMap);
+        resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+    }
+
+    /**
+     * Starts a new endless map, dropping every chunk of the old one.
+     */
+    public void remakeEndless()
+    {
+        endlessMap = new TiledMap();
+        endlessMap.getTileSets().addTileSet(originalMap.getTileSets().getTileSet(0));
+        chunkLayers.clear();
+        endless = new ChunkedWFC(problem.model, chunkSize, chunkCapacity, rng.nextLong(), problem.limit) {
+            @Override
+            protected void changed(int chunkX, int chunkY, int[][] tiles) {
+                TiledMapTileLayer layer = chunkLayers.get(chunkKey(chunkX, chunkY));
+                if (layer != null)
+                    fillLayer(layer, tiles);
+            }
+
+            @Override
+            protected void evicted(int chunkX, int chunkY, int[][] tiles) {
+                TiledMapTileLayer layer = chunkLayers.remove(chunkKey(chunkX, chunkY));
+                if (layer != null)
+                    endlessMap.getLayers().remove(layer);
+            }
+        };
+        camera.position.set(chunkSize * cellWidth * 0.5f, chunkSize * cellHeight * 0.5f, 0f);
+    }
+
+    private static long chunkKey(int chunkX, int chunkY) {
+        return (long) chunkX << 32 | (chunkY & 0xFFFFFFFFL);
+    }
+
+    private void fillLayer(TiledMapTileLayer layer, int[][] tiles) {
+        for (int x = 0; x < chunkSize; x++) {
+            for (int y = 0; y < chunkSize; y++) {
+                TiledMapTileLayer.Cell c = cells.get(tiles[x][y]);
+                if (c == null) {
+                    c = new TiledMapTileLayer.Cell();
+                    c.setTile(originalMap.getTileSets().getTile(tiles[x][y]));
+                    cells.put(tiles[x][y], c);
+                }
+                layer.setCell(x, y, c);
+            }
+        }
+    }
+
+    /**
+     * Scrolls the endless map with the arrow keys, then makes sure the chunks around the camera are kept, and generates
+     * the closest one that's missing, if any. Only one chunk is generated each frame, so scrolling into new areas
+     * spreads the work out; the chunks just outside the view are generated before they can be seen, as long as the
+     * scrolling isn't too fast.
+     */
+    private void updateEndless() {
+        float delta = Gdx.graphics.getDeltaTime() * scrollSpeed;
+        if (Gdx.input.isKeyPressed(Input.Keys.LEFT)) camera.position.x -= delta;
+        if (Gdx.input.isKeyPressed(Input.Keys.RIGHT)) camera.position.x += delta;
+        if (Gdx.input.isKeyPressed(Input.Keys.DOWN)) camera.position.y -= delta;
+        if (Gdx.input.isKeyPressed(Input.Keys.UP)) camera.position.y += delta;
+        camera.update();
+        renderer.setView(camera);
+
+        final float chunkWidth = chunkSize * cellWidth, chunkHeight = chunkSize * cellHeight,
+                halfWidth = camera.viewportWidth * camera.zoom * 0.5f, halfHeight = camera.viewportHeight * camera.zoom * 0.5f;
+        // one chunk past the edges of the view in every direction
+        final int x0 = MathUtils.floor((camera.position.x - halfWidth) / chunkWidth) - 1,
+                x1 = MathUtils.floor((camera.position.x + halfWidth) / chunkWidth) + 1,
+                y0 = MathUtils.floor((camera.position.y - halfHeight) / chunkHeight) - 1,
+                y1 = MathUtils.floor((camera.position.y + halfHeight) / chunkHeight) + 1;
+        int bestX = 0, bestY = 0;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                if (endless.has(cx, cy)) {
+                    // keeps chunks near the camera from being the ones used longest ago
+                    endless.get(cx, cy);
+                    continue;
+                }
+                float dx = (cx + 0.5f) * chunkWidth - camera.position.x, dy = (cy + 0.5f) * chunkHeight - camera.position.y,
+                        distance = dx * dx + dy * dy;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestX = cx;
+                    bestY = cy;
+                }
+            }
+        }
+        if (bestDistance == Float.POSITIVE_INFINITY)
+            return;
+        final int seams = endless.seams;
+        TiledMapTileLayer layer = new TiledMapTileLayer(chunkSize, chunkSize, cellWidth, cellHeight);
+        fillLayer(layer, endless.get(bestX, bestY));
+        if (endless.seams != seams)
+            Gdx.app.log("WFCDemo", "Chunk " + bestX + "," + bestY + " couldn't fit its neighbors; it may have seams.");
+        // a positive y offset moves a layer down
+        layer.setOffsetX(bestX * chunkWidth);
+        layer.setOffsetY(-bestY * chunkHeight);
+        endlessMap.getLayers().add(layer);
+        chunkLayers.put(chunkKey(bestX, bestY), layer);
+    }
+
     @Override
     public void render () {
+        if (endlessMode)
+            updateEndless();
         // standard clear the background routine for libGDX
         Gdx.gl.glClearColor(0, 0, 0, 1.0f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
@@ -172,4 +371,9 @@ public class WFCDemo extends ApplicationAdapter {
 //        tiledMap.getLayers().get(1).invalidateRenderOffset();
 
     }
+
+    @Override
+    public void dispose() {
+        runner.dispose();
+    }
 }
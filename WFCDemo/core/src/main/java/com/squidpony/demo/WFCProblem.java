@@ -0,0 +1,60 @@
+package com.squidpony.demo;
+
+import jagd.RNG;
+
+/**
+ * Everything needed to make one attempt at generating a map: the {@link MimicModel} learned from the sample map, and
+ * the size and settings of the map to generate. This never changes after it is made, and {@link #attempt(long, int)}
+ * gives each attempt its own {@link MimicSolver}, so attempts can run on as many threads at once as there are.
+ * <br>
+ * Attempts are numbered. Attempt {@code index} for a given master seed always uses the RNG seed
+ * {@link #seedFor(long, int)}, so a map can be made again from just the master seed and the number of the attempt that
+ * succeeded, no matter which thread ran it or how many attempts ran before.
+ */
+public final class WFCProblem {
+    public final MimicModel model;
+    public final int width, height, ground, limit;
+    public final boolean periodicOutput;
+
+    /**
+     * @param model what was learned from the sample map, as by {@link MimicModel#of(int[][], int, boolean, int)}
+     * @param width the width of maps to generate, in cells
+     * @param height the height of maps to generate, in cells
+     * @param periodicOutput true if generated maps should wrap around at their edges
+     * @param ground the pattern that must go along the bottom edge, as in {@link MimicSolver}, or 0 to not have one
+     * @param limit how many cells one attempt can decide on before it stops, or 0 for no limit
+     */
+    public WFCProblem(MimicModel model, int width, int height, boolean periodicOutput, int ground, int limit) {
+        this.model = model;
+        this.width = width;
+        this.height = height;
+        this.periodicOutput = periodicOutput;
+        this.ground = ground;
+        this.limit = limit;
+    }
+
+    /**
+     * Makes one attempt to generate a map, which can fail if the solver contradicts itself.
+     * @param seed the master seed shared by every attempt at this map
+     * @param index which attempt this is, starting at 0
+     * @return the generated tile ids, indexed [x][y], or null if this attempt ran into a contradiction
+     */
+    public int[][] attempt(long seed, int index) {
+        MimicSolver solver = new MimicSolver(model, width, height, periodicOutput, ground);
+        return solver.run(new RNG(seedFor(seed, index)), limit) ? solver.result() : null;
+    }
+
+    /**
+     * Gets the RNG seed for attempt {@code index} with the master seed {@code seed}. Nearby indices and seeds give
+     * very different results, so attempts don't repeat each other.
+     * @param seed the master seed
+     * @param index which attempt this is, starting at 0
+     * @return the seed to give the RNG for that attempt
+     */
+    public static long seedFor(long seed, int index) {
+        long z = seed + (index + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+}
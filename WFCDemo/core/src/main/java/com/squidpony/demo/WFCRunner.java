@@ -0,0 +1,22 @@
+package com.squidpony.demo;
+
+/**
+ * Makes attempts at a {@link WFCProblem} until one succeeds. {@link WFCDemo} uses a {@link SequentialWFCRunner} by
+ * default, which works everywhere; a launcher can give it something faster for its platform, like one that makes
+ * several attempts at once on different threads.
+ */
+public interface WFCRunner {
+    /**
+     * Makes attempts at problem with the master seed {@code seed} until one succeeds, and returns its map.
+     * @param problem what to generate
+     * @param seed the master seed; attempt {@code i} uses {@link WFCProblem#seedFor(long, int)} with this and i
+     * @param stats will be reset and filled with what happened
+     * @return the map made by the successful attempt, as tile ids indexed [x][y]
+     */
+    int[][] solve(WFCProblem problem, long seed, WFCStats stats);
+
+    /**
+     * Stops any threads this uses; called once when the demo closes.
+     */
+    void dispose();
+}
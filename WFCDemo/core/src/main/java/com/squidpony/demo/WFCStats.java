@@ -0,0 +1,34 @@
+package com.squidpony.demo;
+
+/**
+ * What happened while a {@link WFCRunner} generated one map: how many attempts it made, how many of those ran into
+ * contradictions, which attempt's map was used, and how long it took. Comparing these for different thread counts
+ * shows how many threads are worth using on a given machine and tile set.
+ */
+public class WFCStats {
+    /** How many threads made attempts. */
+    public int threads;
+    /** How many attempts finished before the map was returned, whether they succeeded or not. */
+    public int attempts;
+    /** How many of the finished attempts ran into contradictions. */
+    public int contradictions;
+    /** The index of the attempt whose map was returned, or -1 if none was. */
+    public int winner = -1;
+    /** How long it took from starting until a map was returned, in nanoseconds. */
+    public long nanos;
+
+    public WFCStats reset(int threads) {
+        this.threads = threads;
+        attempts = 0;
+        contradictions = 0;
+        winner = -1;
+        nanos = 0L;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "Used attempt " + winner + " after " + attempts + " attempts (" + contradictions + " contradictions) on "
+                + threads + (threads == 1 ? " thread in " : " threads in ") + (nanos / 1000000L) + " ms";
+    }
+}
@@ -6,12 +6,25 @@ import com.squidpony.demo.WFCDemo;
 
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
+    /**
+     * Passing {@code --deterministic} makes the map for each seed the same every run, even though attempts run on
+     * several threads; passing {@code --threads=N} sets how many threads that is, instead of one per processor.
+     */
     public static void main(String[] args) {
-        createApplication();
+        createApplication(args);
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new WFCDemo(), getDefaultConfiguration());
+    private static Lwjgl3Application createApplication(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean deterministic = false;
+        for (String arg : args) {
+            if (arg.equals("--deterministic"))
+                deterministic = true;
+            else if (arg.startsWith("--threads="))
+                threads = Integer.parseInt(arg.substring(10));
+        }
+        return new Lwjgl3Application(new WFCDemo(new ParallelWFCRunner(threads, deterministic)),
+                getDefaultConfiguration());
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
@@ -0,0 +1,165 @@
+package com.squidpony.demo.lwjgl3;
+
+import com.squidpony.demo.WFCProblem;
+import com.squidpony.demo.WFCRunner;
+import com.squidpony.demo.WFCStats;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link WFCRunner} that makes several attempts at once, one per thread. Each thread takes the next attempt number
+ * that hasn't been started yet, so no attempt is made twice, and each attempt uses the seed
+ * {@link WFCProblem#seedFor(long, int)} gives for its number, so which thread runs it doesn't matter.
+ * <br>
+ * There are two ways to pick the map that gets used:
+ * <ul>
+ *     <li>By default, the first attempt to succeed wins, which is as fast as possible, but which attempt that is
+ *     depends on timing, so the same seed can give different maps.</li>
+ *     <li>If deterministic, the lowest-numbered attempt to succeed wins. Once some attempt succeeds, no attempts with
+ *     higher numbers are started, but any lower ones that are running have to finish in case one of them succeeds.
+ *     This always gives the same map as {@link com.squidpony.demo.SequentialWFCRunner} for the same seed.</li>
+ * </ul>
+ * MimicWFC can't be stopped partway through an attempt, so attempts that can't win anymore keep going in the background
+ * until they finish, and their maps are thrown away. Until then they hold up the threads for the next map.
+ */
+public class ParallelWFCRunner implements WFCRunner {
+    private final int threads;
+    private final boolean deterministic;
+    private final ExecutorService executor;
+
+    /**
+     * @param threads how many attempts to make at once; usually the number of processors
+     * @param deterministic if true, the lowest-numbered success wins, so the same seed always gives the same map
+     */
+    public ParallelWFCRunner(int threads, boolean deterministic) {
+        this.threads = Math.max(1, threads);
+        this.deterministic = deterministic;
+        executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "WFC attempt " + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public int[][] solve(WFCProblem problem, long seed, WFCStats stats) {
+        stats.reset(threads);
+        long start = System.nanoTime();
+        Solve solve = new Solve(problem, seed);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(solve);
+        }
+        synchronized (solve) {
+            // deterministic solves also wait for any attempts that could still beat the winner
+            while (solve.failure == null && (solve.result == null || deterministic && solve.undecided())) {
+                try {
+                    solve.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    solve.done = true;
+                    throw new IllegalStateException("Interrupted while generating a map", e);
+                }
+            }
+            if (solve.failure != null)
+                throw new IllegalStateException("An attempt at generating a map failed", solve.failure);
+            stats.attempts = solve.attempts;
+            stats.contradictions = solve.contradictions;
+            stats.winner = solve.winner;
+            // stops threads from starting new attempts, in case some are still going
+            solve.done = true;
+        }
+        stats.nanos = System.nanoTime() - start;
+        return solve.result;
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The state shared by all threads working on one map. Everything but the problem and seed is guarded by this.
+     */
+    private final class Solve implements Runnable {
+        private final WFCProblem problem;
+        private final long seed;
+        private int next, attempts, contradictions, winner = Integer.MAX_VALUE;
+        // the numbers of attempts that have started and not finished
+        private final BitSet started = new BitSet();
+        private int[][] result;
+        private RuntimeException failure;
+        private boolean done;
+
+        private Solve(WFCProblem problem, long seed) {
+            this.problem = problem;
+            this.seed = seed;
+        }
+
+        /**
+         * True if an attempt with a lower number than the winner's is still going, so it could still win.
+         */
+        private boolean undecided() {
+            int lowest = started.nextSetBit(0);
+            return lowest >= 0 && lowest < winner;
+        }
+
+        /**
+         * Gets the number of the next attempt to make, or -1 if there's no need to make any more.
+         */
+        private int take() {
+            // a success at a higher number can still lose to one at a lower number, but not the other way around
+            if (done || failure != null || (deterministic ? next > winner : result != null))
+                return -1;
+            started.set(next);
+            return next++;
+        }
+
+        @Override
+        public void run() {
+            int index;
+            synchronized (this) {
+                index = take();
+            }
+            try {
+                while (index >= 0) {
+                    int[][] map = problem.attempt(seed, index);
+                    synchronized (this) {
+                        started.clear(index);
+                        if (done)
+                            return;
+                        attempts++;
+                        if (map == null)
+                            contradictions++;
+                        else if (index < winner) {
+                            winner = index;
+                            result = map;
+                        }
+                        // even a contradiction can be what a deterministic solve was waiting on
+                        notifyAll();
+                        index = take();
+                    }
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    if (failure == null)
+                        failure = e;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}